@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // JVM 单元测试中 android.util.Log 等调用返回默认值，而不是抛出 "not mocked"
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -12,15 +12,23 @@ import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothProfile;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.app.ActivityCompat;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @SuppressLint("MissingPermission")
@@ -33,8 +41,32 @@ public class BLEManager {
     private static final String UART_RX_CHARACTERISTIC_UUID = "6E400002-B5A3-F393-E0A9-E50E24DCCA9E";
     private static final UUID CLIENT_CHARACTERISTIC_CONFIG = UUID.fromString("00002902-0000-1000-8000-00805F9B34FB");
 
-    private static final int MAX_RECONNECT_ATTEMPTS = 3; // 最大重连次数
-    private int reconnectAttempts = 0; // 当前重连尝试次数
+    // GATT 操作的超时和重试次数；MTU/PHY 超时后按默认值继续（部分手机不回调 onMtuChanged/onPhyUpdate）
+    private static final long SETUP_STEP_TIMEOUT_MS = 2000;
+    private static final long DISCOVERY_TIMEOUT_MS = 10000;
+    private static final long IO_TIMEOUT_MS = 3000;
+    private static final int SETUP_RETRIES = 1;
+    private static final int IO_RETRIES = 2;
+
+    // 扫描：15 秒后自动停止；第一次匹配后再收集一段时间，从候选表中选出最佳设备
+    private static final long SCAN_DURATION_MS = 15000;
+    private static final long SELECTION_WINDOW_MS = 1000;
+    // 硬件过滤在这段时间内没有结果时改为不过滤扫描（固件可能不在广播中携带服务 UUID）
+    private static final long FILTER_FALLBACK_MS = 3000;
+    // 停止批量上报的扫描时，等待芯片缓存的结果上报的时间
+    private static final long SCAN_FLUSH_WAIT_MS = 200;
+    // 候选排序：每秒没有出现扣 3dB，10 秒没有出现移除
+    private static final double CANDIDATE_STALE_PENALTY_DB = 3;
+    private static final long CANDIDATE_EXPIRY_MS = 10000;
+
+    // 吞吐量统计窗口
+    private static final long THROUGHPUT_WINDOW_NANOS = 1_000_000_000L;
+
+    // 重连：带抖动的指数退避，从几十毫秒开始；直接连接多次失败后改用 autoConnect 在后台等待设备出现
+    private static final long RECONNECT_INITIAL_DELAY_MS = 50;
+    private static final long RECONNECT_MAX_DELAY_MS = 5000;
+    private static final long CONNECT_ATTEMPT_TIMEOUT_MS = 4000;  // 单次直接连接的超时，系统默认约 30 秒
+    private static final int MAX_DIRECT_RECONNECT_ATTEMPTS = 6;
 
     private final Context context;
     private final BluetoothCallback callback;
@@ -44,19 +76,155 @@ public class BLEManager {
 
     public BluetoothGatt bluetoothGatt;
     private boolean isScanning = false;
+    private boolean autoSelectTarget = true;
+
+    /**
+     * 扫描过滤方式
+     */
+    public enum ScanFilterMode {
+        HARDWARE,  // 由蓝牙芯片按 UART 服务 UUID 或设备名称过滤，只有匹配的广播才唤醒应用
+        NONE       // 不过滤，在 Java 中按名称包含 "nRF" 或 "UART" 匹配
+    }
+
+    // ---- 以下扫描状态只在主线程上访问（扫描回调在主线程上调用） ----
+    private final ScanCandidateTable<BluetoothDevice> scanCandidates =
+            new ScanCandidateTable<>(CANDIDATE_STALE_PENALTY_DB, CANDIDATE_EXPIRY_MS);
+    private ScanFilterMode scanFilterMode = ScanFilterMode.HARDWARE;
+    private int scanMode = ScanSettings.SCAN_MODE_LOW_LATENCY;
+    private long scanReportDelayMs = 0;
+    private String[] scanNames = {"nRF UART", "Nordic_UART"};
+    private boolean filteredScan;
+    private boolean selectionPending;
+    private boolean flushingScanResults;  // 已请求停止扫描，等待缓存的结果上报
+    private final Runnable scanTimeoutTask = this::stopScanning;
+    private final Runnable finishScanTask = this::finishScan;
+    private final Runnable selectTargetTask = this::selectTarget;
+    private final Runnable filterFallbackTask = this::fallBackToUnfilteredScan;
     private BluetoothDevice targetDevice;
     public BluetoothGattCharacteristic txCharacteristic;
     private BluetoothGattCharacteristic rxCharacteristic;
 
+    // ---- 以下重连状态只在主线程上访问 ----
+    private final ReconnectBackoff reconnectBackoff = new ReconnectBackoff(
+            RECONNECT_INITIAL_DELAY_MS, RECONNECT_MAX_DELAY_MS, 2, 0.5, new java.util.Random());
+    private final Runnable reconnectTask = this::attemptReconnect;
+    private final Runnable connectTimeoutTask = this::onConnectAttemptTimeout;
+    private boolean userDisconnected;      // 用户主动断开，不再重连
+    private boolean autoConnectPending;    // 已切换为 autoConnect 等待
+    private boolean reconnectScheduled;
+    private BluetoothGatt servicesGatt;    // tx/rxCharacteristic 所属的连接，重连时复用
+    private volatile boolean connected;
+
+    // ---- 重连后首个样本的耗时：disconnectNanos 由主线程写入，通知回调线程读取 ----
+    private volatile long disconnectNanos;
+    private volatile boolean awaitingFirstSample;
+    private volatile int lastReconnectAttempts;
+    private volatile long lastTimeToFirstSampleMillis = -1;
+
+    // ---- 以下 GATT 操作队列和连接建立状态只在主线程上访问 ----
+    private final Handler gattHandler = new Handler(Looper.getMainLooper());
+    private final GattOperationQueue gattQueue = new GattOperationQueue(gattHandler);
+    private ConnectionProfile connectionProfile = ConnectionProfile.HIGH_THROUGHPUT;
+    private BluetoothGatt setupGatt;
+    private long setupStartNanos;
+    private int negotiatedMtu;
+    private int txPhy;
+    private int rxPhy;
+    private int grantedPriority;
+
+    // 协商完成后的连接参数，任意线程可读
+    private volatile ConnectionInfo connectionInfo;
+
+    // ---- 吞吐量统计：接收字节数只由 GATT 回调线程写入 ----
+    private volatile long receivedBytes;
+    private volatile long throughputWindowNanos;
+    private volatile long throughputWindowBytes;
+    private volatile long bytesPerSecond;
+
+    /**
+     * 协商完成后的连接参数
+     */
+    public static final class ConnectionInfo {
+        public final ConnectionProfile profile;
+        public final int mtu;                 // 协商后的 MTU，每个通知最多 mtu - 3 字节
+        public final int txPhy;               // BluetoothDevice.PHY_LE_*，0 表示未知
+        public final int rxPhy;
+        public final int connectionPriority;  // 请求成功的连接优先级，-1 表示请求失败
+        public final long setupMillis;        // 从连接成功到开启通知的耗时
+
+        ConnectionInfo(ConnectionProfile profile, int mtu, int txPhy, int rxPhy,
+                       int connectionPriority, long setupMillis) {
+            this.profile = profile;
+            this.mtu = mtu;
+            this.txPhy = txPhy;
+            this.rxPhy = rxPhy;
+            this.connectionPriority = connectionPriority;
+            this.setupMillis = setupMillis;
+        }
+
+        @Override
+        public String toString() {
+            return profile + " MTU=" + mtu + " PHY=" + phyName(txPhy) + "/" + phyName(rxPhy)
+                    + " 优先级=" + connectionPriority + " 耗时=" + setupMillis + "ms";
+        }
+
+        private static String phyName(int phy) {
+            switch (phy) {
+                case BluetoothDevice.PHY_LE_1M:
+                    return "1M";
+                case BluetoothDevice.PHY_LE_2M:
+                    return "2M";
+                case 3:
+                    return "Coded";
+                default:
+                    return "?";
+            }
+        }
+    }
+
     // 定义蓝牙回调接口
     public interface BluetoothCallback {
-        void onDataReceived(String data); // 数据接收回调
+        void onDataReceived(String data); // 数据接收回调（兼容旧接口）
+
+        /**
+         * 字节数据接收回调，BLE 通知的原始字节直接交给上层，不做字符集解码
+         * 默认实现将字节转换为 String 后转交 {@link #onDataReceived(String)}，兼容只实现旧接口的调用方
+         *
+         * @param buf 数据缓冲区，回调返回后可能被复用，需要保留时请自行拷贝
+         * @param off 数据起始位置
+         * @param len 数据长度
+         */
+        default void onDataReceived(byte[] buf, int off, int len) {
+            onDataReceived(new String(buf, off, len, StandardCharsets.UTF_8));
+        }
+
         void onDeviceConnected(String deviceName); // 设备连接回调
         void onDeviceDisconnected(); // 设备断开回调
         void onServicesDiscovered(String serviceInfo); // 服务发现回调
         void onError(String errorMessage); // 错误回调
 
         void onScanHasResult(String deviceName);
+
+        /**
+         * 连接参数协商完成、通知已开启时回调，在主线程上调用
+         */
+        default void onConnectionReady(ConnectionInfo info) {
+        }
+
+        /**
+         * 意外断开并重连后收到第一个通知时回调，在 GATT 回调线程上调用
+         *
+         * @param timeToFirstSampleMillis 从断开到收到第一个通知的耗时
+         * @param attempts                本次重连尝试的次数
+         */
+        default void onReconnected(long timeToFirstSampleMillis, int attempts) {
+        }
+
+        /**
+         * 扫描到名称匹配的设备时回调（每次扫描结果都会回调，同一设备可能多次）
+         */
+        default void onDeviceFound(BluetoothDevice device) {
+        }
     }
 
     // 构造函数，初始化BLE管理器
@@ -70,6 +238,64 @@ public class BLEManager {
         this.bleScanner = bluetoothAdapter.getBluetoothLeScanner();
     }
 
+    /**
+     * 连接指定设备的管理器，不需要扫描（多设备时每个设备一个实例）
+     */
+    public BLEManager(Context context, BluetoothCallback callback, BluetoothDevice device) {
+        this(context, callback);
+        this.targetDevice = device;
+    }
+
+    /**
+     * 设置是否自动选择目标设备（默认是）：第一次匹配后再收集 1 秒，选出候选表中排名最高的设备并停止扫描；
+     * 多设备时设为 false，持续扫描并通过 {@link BluetoothCallback#onDeviceFound(BluetoothDevice)} 收集所有设备
+     */
+    public void setAutoSelectTarget(boolean autoSelectTarget) {
+        this.autoSelectTarget = autoSelectTarget;
+    }
+
+    /**
+     * 设置扫描过滤方式，下次扫描时生效
+     */
+    public void setScanFilterMode(ScanFilterMode mode) {
+        this.scanFilterMode = mode;
+    }
+
+    /**
+     * 设置硬件过滤匹配的设备名称（完整名称），下次扫描时生效
+     */
+    public void setScanNames(String... names) {
+        this.scanNames = names.clone();
+    }
+
+    /**
+     * 设置扫描模式（ScanSettings.SCAN_MODE_*），默认 LOW_LATENCY
+     */
+    public void setScanMode(int scanMode) {
+        this.scanMode = scanMode;
+    }
+
+    /**
+     * 设置批量上报的延迟，0 表示每个广播立即上报；芯片不支持批量扫描时忽略
+     */
+    public void setScanReportDelay(long delayMs) {
+        this.scanReportDelayMs = delayMs;
+    }
+
+    /**
+     * 按信号强度和新鲜度排序的候选设备
+     */
+    public List<ScanCandidateTable.Candidate<BluetoothDevice>> getScanCandidates() {
+        return scanCandidates.ranked(SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * 当前的目标设备地址，还没有扫描到时返回 null
+     */
+    public String getTargetAddress() {
+        return targetDevice != null ? targetDevice.getAddress() : null;
+    }
+
     /**
      * 启动蓝牙扫描
      */
@@ -86,64 +312,266 @@ public class BLEManager {
             return;
         }
 
-        // 开始扫描
+        // 开始扫描，上一次扫描的选择窗口和过滤回退不再有效
+        if (isScanning || flushingScanResults) {
+            bleScanner.stopScan(scanCallback);
+        }
+        handler.removeCallbacks(selectTargetTask);
+        handler.removeCallbacks(filterFallbackTask);
+        handler.removeCallbacks(finishScanTask);
+        flushingScanResults = false;
         isScanning = true;
-        handler.postDelayed(this::stopScanning, 15000); // 15秒后自动停止扫描
-        bleScanner.startScan(scanCallback);
+        selectionPending = false;
+        scanCandidates.clear();
+        handler.removeCallbacks(scanTimeoutTask);
+        handler.postDelayed(scanTimeoutTask, SCAN_DURATION_MS); // 15秒后自动停止扫描
+        filteredScan = scanFilterMode == ScanFilterMode.HARDWARE;
+        if (filteredScan) {
+            handler.postDelayed(filterFallbackTask, FILTER_FALLBACK_MS);
+        }
+        bleScanner.startScan(filteredScan ? buildScanFilters() : null, buildScanSettings(), scanCallback);
     }
 
     /**
      * 停止蓝牙扫描
      */
     public void stopScanning() {
+        stopScanning(scanReportDelayMs > 0);
+    }
+
+    /**
+     * @param flushResults 是否先取回芯片缓存的结果，排序后再选择目标
+     */
+    private void stopScanning(boolean flushResults) {
         if (!isScanning) return;
 
         isScanning = false;
+        handler.removeCallbacks(scanTimeoutTask);
+        handler.removeCallbacks(filterFallbackTask);
+        if (flushResults) {
+            // 缓存的结果异步上报到主线程，这批结果处理完后再停止扫描并选择目标
+            flushingScanResults = true;
+            bleScanner.flushPendingScanResults(scanCallback);
+            handler.postDelayed(finishScanTask, SCAN_FLUSH_WAIT_MS);
+        } else {
+            finishScan();
+        }
+    }
+
+    private void finishScan() {
+        handler.removeCallbacks(finishScanTask);
+        flushingScanResults = false;
+        bleScanner.stopScan(scanCallback);
+        if (selectionPending) {
+            selectTarget();
+        }
+    }
+
+    // 过滤条件之间是"或"的关系：广播包含 UART 服务 UUID，或设备名称为指定名称之一
+    private List<ScanFilter> buildScanFilters() {
+        List<ScanFilter> filters = new ArrayList<>();
+        filters.add(new ScanFilter.Builder().setServiceUuid(ParcelUuid.fromString(UART_SERVICE_UUID)).build());
+        for (String name : scanNames) {
+            filters.add(new ScanFilter.Builder().setDeviceName(name).build());
+        }
+        return filters;
+    }
+
+    private ScanSettings buildScanSettings() {
+        ScanSettings.Builder builder = new ScanSettings.Builder().setScanMode(scanMode);
+        if (scanReportDelayMs > 0 && bluetoothAdapter.isOffloadedScanBatchingSupported()) {
+            builder.setReportDelay(scanReportDelayMs);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            builder.setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES)
+                    .setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE);
+        }
+        return builder.build();
+    }
+
+    // 硬件过滤一直没有结果：固件可能只在扫描响应中携带名称，改为不过滤扫描
+    private void fallBackToUnfilteredScan() {
+        if (!isScanning || !filteredScan || scanCandidates.size() > 0) {
+            return;
+        }
+        Log.d(TAG, "过滤扫描没有结果，改为不过滤扫描");
+        filteredScan = false;
         bleScanner.stopScan(scanCallback);
+        bleScanner.startScan(null, buildScanSettings(), scanCallback);
+    }
+
+    // 处理一个扫描结果：记录到候选表，自动选择时第一次匹配后开始计时
+    private void handleScanResult(ScanResult result) {
+        if (!isScanning && !flushingScanResults) {
+            return;  // 扫描已停止
+        }
+        BluetoothDevice device = result.getDevice();
+        ScanRecord record = result.getScanRecord();
+        String deviceName = device.getName();
+        if (deviceName == null && record != null) {
+            deviceName = record.getDeviceName();
+        }
+        if (!filteredScan && !isNameMatch(deviceName)) {
+            return;  // 硬件过滤过的结果都是目标设备，不过滤时按名称匹配
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        long seenAt = result.getTimestampNanos() > 0 ? Math.min(result.getTimestampNanos(), now) : now;
+        scanCandidates.update(device.getAddress(), deviceName, device, result.getRssi(), seenAt);
+        callback.onDeviceFound(device);
+        if (autoSelectTarget && !selectionPending) {
+            selectionPending = true;
+            if (isScanning) {
+                handler.postDelayed(selectTargetTask, Math.max(SELECTION_WINDOW_MS, scanReportDelayMs));
+            }  // 停止扫描时取回的结果在 finishScan 中选择
+        }
+    }
+
+    private static boolean isNameMatch(String deviceName) {
+        return deviceName != null && (deviceName.contains("nRF") || deviceName.contains("UART"));
+    }
+
+    // 收集结束，选出排名最高的设备作为目标设备
+    private void selectTarget() {
+        handler.removeCallbacks(selectTargetTask);
+        if (!selectionPending) {
+            return;
+        }
+        selectionPending = false;
+        ScanCandidateTable.Candidate<BluetoothDevice> best = scanCandidates.best(SystemClock.elapsedRealtimeNanos());
+        if (best == null) {
+            return;
+        }
+        targetDevice = best.getDevice();
+        Log.d(TAG, "选择设备: " + best.getName() + " RSSI=" + best.getLastRssi()
+                + "，候选设备数: " + scanCandidates.size());
+        stopScanning(false);
+        callback.onScanHasResult(best.getName() != null ? best.getName() : best.getAddress());
+    }
+
+    /**
+     * 设置连接参数配置，下次连接时生效
+     */
+    public void setConnectionProfile(ConnectionProfile profile) {
+        this.connectionProfile = profile;
+    }
+
+    public ConnectionProfile getConnectionProfile() {
+        return connectionProfile;
+    }
+
+    /**
+     * 当前连接协商后的参数，协商完成前返回 null
+     */
+    public ConnectionInfo getConnectionInfo() {
+        return connectionInfo;
+    }
+
+    /**
+     * 本次连接累计接收的通知字节数
+     */
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * 最近一个统计窗口（约 1 秒）内的通知吞吐量（字节/秒）
+     * 超过一个窗口没有收到通知时（数据流停止或链路断开），按当前窗口开始以来的字节数和时间计算，逐渐降到 0
+     */
+    public long getThroughputBytesPerSecond() {
+        long windowStart = throughputWindowNanos;
+        if (windowStart == 0) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - windowStart;
+        if (elapsed < 2 * THROUGHPUT_WINDOW_NANOS) {
+            return bytesPerSecond;
+        }
+        return (receivedBytes - throughputWindowBytes) * 1_000_000_000L / elapsed;
+    }
+
+    /**
+     * 某类 GATT 操作的延迟、失败、超时和重试统计
+     */
+    public GattOperationQueue.OpStats getOperationStats(GattOperationQueue.Type type) {
+        return gattQueue.getStats(type);
+    }
+
+    /**
+     * 向设备的 UART RX 特征写入数据，排队执行，可以在任意线程调用
+     */
+    public void sendData(byte[] data) {
+        gattHandler.post(() -> {
+            BluetoothGatt gatt = setupGatt;
+            BluetoothGattCharacteristic characteristic = rxCharacteristic;
+            if (gatt == null || characteristic == null) {
+                callback.onError("设备未连接，无法发送数据");
+                return;
+            }
+            gattQueue.enqueue(GattOperationQueue.Type.WRITE, IO_TIMEOUT_MS, IO_RETRIES, () -> {
+                characteristic.setValue(data);
+                return gatt.writeCharacteristic(characteristic);
+            }, (success, status) -> {
+                if (!success) {
+                    callback.onError("发送数据失败，错误码: " + status);
+                }
+            });
+        });
+    }
+
+    /**
+     * 最近一次意外断开到重连后收到第一个通知的耗时，还没有重连过时返回 -1
+     */
+    public long getLastTimeToFirstSampleMillis() {
+        return lastTimeToFirstSampleMillis;
     }
 
     /**
-     * 连接到目标设备
+     * 最近一次重连成功前尝试的次数
+     */
+    public int getLastReconnectAttempts() {
+        return lastReconnectAttempts;
+    }
+
+    /**
+     * 连接到目标设备（用户操作，在主线程调用）
      */
     @SuppressLint("MissingPermission")
     public void connectToDevice() {
         // 1. 检查目标设备是否存在
         if (targetDevice == null) return;
 
+        userDisconnected = false;
+        cancelReconnect();
+        reconnectBackoff.reset();
+        awaitingFirstSample = false;
+
         // 2. 清理现有连接
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            bluetoothGatt.close();
-        }
+        closeGatt();
 
-        // 3. 建立新连接（兼容所有Android版本）
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            bluetoothGatt = targetDevice.connectGatt(
-                    context,
-                    false,
-                    gattCallback,
-                    BluetoothDevice.TRANSPORT_LE
-            );
-        } else {
-            bluetoothGatt = targetDevice.connectGatt(
-                    context,
-                    false,
-                    gattCallback
-            );
-        }
+        // 3. 建立新连接
+        openGatt(false);
     }
 
     /**
-     * 断开与设备的连接
+     * 断开与设备的连接（用户操作，在主线程调用），不会触发自动重连
      */
     public void disconnectDevice() {
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                bluetoothGatt.close();
-                bluetoothGatt = null;
-                callback.onDeviceDisconnected();
-                startReconnect(); // 断开后启动重连
+        userDisconnected = true;
+        cancelReconnect();
+        awaitingFirstSample = false;
+        BluetoothGatt gatt = bluetoothGatt;
+        if (gatt != null) {
+            gatt.disconnect();
+            gattHandler.postDelayed(() -> {
+                if (bluetoothGatt == gatt) {
+                    // 连接状态回调已经报告过断开时不再重复报告
+                    boolean wasConnected = connected;
+                    connected = false;
+                    closeGatt();
+                    if (wasConnected) {
+                        callback.onDeviceDisconnected();
+                    }
+                }
             }, 1000);  // 延时1秒后执行关闭
         }
     }
@@ -163,7 +591,7 @@ public class BLEManager {
      * @return 是否已连接
      */
     public boolean isConnected() {
-        return bluetoothGatt != null;
+        return connected;
     }
 
     /**
@@ -192,16 +620,14 @@ public class BLEManager {
     private final ScanCallback scanCallback = new ScanCallback() {
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            String deviceName = device.getName();
-
-            // 判断是否是目标设备
-            if (deviceName != null && (deviceName.contains("nRF") || deviceName.contains("UART"))) {
-                targetDevice = device;
-                stopScanning();
-                callback.onScanHasResult(targetDevice.getName());
-//                connectToDevice();
-//                callback.onDeviceConnected(deviceName);
+            handleScanResult(result);
+        }
+
+        // 设置了批量上报延迟时，芯片缓存的结果一次上报
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            for (ScanResult result : results) {
+                handleScanResult(result);
             }
         }
 
@@ -214,21 +640,36 @@ public class BLEManager {
 
     /**
      * 蓝牙Gatt回调，处理连接、服务发现、数据接收等事件
+     * 操作完成的回调都转到主线程，交给 GATT 操作队列
      */
     private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
         @Override
         public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
             if (newState == BluetoothProfile.STATE_CONNECTED) {
-                gatt.discoverServices();
+                connected = true;
                 callback.onDeviceConnected(targetDevice.getName());
-                reconnectAttempts = 0; // 连接成功后重置重连次数
-
-                // 请求MTU，设置为247
-                gatt.requestMtu(247); // 请求最大MTU
+                gattHandler.post(() -> {
+                    gattHandler.removeCallbacks(connectTimeoutTask);
+                    lastReconnectAttempts = reconnectBackoff.getAttempts();
+                    reconnectBackoff.reset(); // 连接成功后重置退避
+                    autoConnectPending = false;
+                    startSetup(gatt);
+                });
             } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                Log.d(TAG, "设备已断开连接");
-                callback.onDeviceDisconnected();
-                startReconnect(); // 设备断开后尝试重连
+                Log.d(TAG, "设备已断开连接, status=" + status);
+                boolean wasConnected = connected;
+                connected = false;
+                gattHandler.post(() -> {
+                    cancelSetup();
+                    if (wasConnected && !userDisconnected) {
+                        disconnectNanos = System.nanoTime();
+                        awaitingFirstSample = true;
+                    }
+                    startReconnect(); // 设备断开或连接失败后尝试重连
+                });
+                if (wasConnected) {
+                    callback.onDeviceDisconnected();
+                }
             }
         }
 
@@ -240,16 +681,6 @@ public class BLEManager {
                 if (uartService != null) {
                     txCharacteristic = uartService.getCharacteristic(UUID.fromString(UART_TX_CHARACTERISTIC_UUID));
                     rxCharacteristic = uartService.getCharacteristic(UUID.fromString(UART_RX_CHARACTERISTIC_UUID));
-
-                    // 启用通知
-                    if (txCharacteristic != null) {
-                        gatt.setCharacteristicNotification(txCharacteristic, true);
-                        BluetoothGattDescriptor descriptor = txCharacteristic.getDescriptor(CLIENT_CHARACTERISTIC_CONFIG);
-                        if (descriptor != null) {
-                            descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-                            gatt.writeDescriptor(descriptor);
-                        }
-                    }
                 }
 
                 // 报告发现的服务
@@ -259,19 +690,42 @@ public class BLEManager {
                 }
                 callback.onServicesDiscovered(servicesInfo.toString());
             }
+            completeOperation(gatt, GattOperationQueue.Type.DISCOVER_SERVICES, status);
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            completeOperation(gatt, GattOperationQueue.Type.WRITE_DESCRIPTOR, status);
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            completeOperation(gatt, GattOperationQueue.Type.WRITE, status);
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            completeOperation(gatt, GattOperationQueue.Type.READ, status);
         }
 
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
             byte[] data = characteristic.getValue();
             if (data != null && data.length > 0) {
-                callback.onDataReceived(new String(data)); // 处理数据接收
+                countReceived(data.length);
+                callback.onDataReceived(data, 0, data.length); // 处理数据接收
             }
         }
 
+        // Android 13 及以上直接携带通知数据，省去 getValue() 的拷贝
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value) {
+            if (value != null && value.length > 0) {
+                countReceived(value.length);
+                callback.onDataReceived(value, 0, value.length);
+            }
+        }
 
-
-        // 新增MTU请求的回调处理
         @Override
         public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
             if (status == BluetoothGatt.GATT_SUCCESS) {
@@ -279,28 +733,264 @@ public class BLEManager {
             } else {
                 Log.e(TAG, "MTU设置失败，错误码: " + status);
             }
+            gattHandler.post(() -> {
+                if (gatt == setupGatt && status == BluetoothGatt.GATT_SUCCESS) {
+                    negotiatedMtu = mtu;
+                }
+            });
+            completeOperation(gatt, GattOperationQueue.Type.REQUEST_MTU, status);
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int tx, int rx, int status) {
+            Log.d(TAG, "PHY更新: tx=" + tx + " rx=" + rx + " status=" + status);
+            recordPhy(gatt, tx, rx, status);
+            completeOperation(gatt, GattOperationQueue.Type.SET_PHY, status);
+        }
+
+        @Override
+        public void onPhyRead(BluetoothGatt gatt, int tx, int rx, int status) {
+            recordPhy(gatt, tx, rx, status);
+            completeOperation(gatt, GattOperationQueue.Type.READ_PHY, status);
         }
     };
 
+    // ---- 连接建立流程和 GATT 操作队列，以下方法都在主线程上调用 ----
+
+    // GATT 回调线程：把操作结果转到主线程，忽略已经断开的旧连接的回调
+    private void completeOperation(BluetoothGatt gatt, GattOperationQueue.Type type, int status) {
+        gattHandler.post(() -> {
+            if (gatt == setupGatt) {
+                gattQueue.complete(type, status);
+            }
+        });
+    }
+
+    private void recordPhy(BluetoothGatt gatt, int tx, int rx, int status) {
+        gattHandler.post(() -> {
+            if (gatt == setupGatt && status == BluetoothGatt.GATT_SUCCESS) {
+                txPhy = tx;
+                rxPhy = rx;
+            }
+        });
+    }
+
+    // 按 MTU → PHY → 连接优先级 → 服务发现 的顺序排队，服务发现完成后再排队开启通知；
+    // 重连到同一个 BluetoothGatt 时（API 34 起）复用缓存的特征，跳过服务发现
+    private void startSetup(BluetoothGatt gatt) {
+        gattQueue.clear();
+        setupGatt = gatt;
+        setupStartNanos = System.nanoTime();
+        negotiatedMtu = ConnectionProfile.DEFAULT_MTU;
+        txPhy = 0;
+        rxPhy = 0;
+        grantedPriority = -1;
+        connectionInfo = null;
+        receivedBytes = 0;
+        bytesPerSecond = 0;
+        throughputWindowNanos = 0;
+
+        ConnectionProfile profile = connectionProfile;
+        if (profile.getMtu() > ConnectionProfile.DEFAULT_MTU) {
+            gattQueue.enqueue(GattOperationQueue.Type.REQUEST_MTU, SETUP_STEP_TIMEOUT_MS, SETUP_RETRIES,
+                    () -> gatt.requestMtu(profile.getMtu()), null);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (profile.getPhyMask() != 0) {
+                gattQueue.enqueue(GattOperationQueue.Type.SET_PHY, SETUP_STEP_TIMEOUT_MS, 0, () -> {
+                    gatt.setPreferredPhy(profile.getPhyMask(), profile.getPhyMask(),
+                            BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+                    return true;
+                }, null);
+            } else {
+                gattQueue.enqueue(GattOperationQueue.Type.READ_PHY, SETUP_STEP_TIMEOUT_MS, 0, () -> {
+                    gatt.readPhy();
+                    return true;
+                }, null);
+            }
+        }
+        gattQueue.enqueue(GattOperationQueue.Type.CONNECTION_PRIORITY, 0, SETUP_RETRIES,
+                () -> gatt.requestConnectionPriority(profile.getConnectionPriority()),
+                (success, status) -> grantedPriority = success ? profile.getConnectionPriority() : -1);
+        if (gatt == servicesGatt && txCharacteristic != null) {
+            Log.d(TAG, "复用缓存的服务，跳过服务发现");
+            enableNotification(gatt, true);
+        } else {
+            discoverServices(gatt);
+        }
+    }
+
+    private void discoverServices(BluetoothGatt gatt) {
+        servicesGatt = null;
+        gattQueue.enqueue(GattOperationQueue.Type.DISCOVER_SERVICES, DISCOVERY_TIMEOUT_MS, SETUP_RETRIES,
+                gatt::discoverServices, (success, status) -> {
+                    if (success) {
+                        servicesGatt = gatt;
+                        enableNotification(gatt, false);
+                    } else {
+                        failSetup("服务发现失败，错误码: " + status);
+                    }
+                });
+    }
+
+    /**
+     * @param cached 特征来自上一次连接的缓存；写入失败时重新发现服务后再试一次
+     */
+    private void enableNotification(BluetoothGatt gatt, boolean cached) {
+        BluetoothGattCharacteristic characteristic = txCharacteristic;
+        BluetoothGattDescriptor descriptor = characteristic != null
+                ? characteristic.getDescriptor(CLIENT_CHARACTERISTIC_CONFIG) : null;
+        if (descriptor == null) {
+            if (cached) {
+                discoverServices(gatt);
+            } else {
+                failSetup("未找到UART通知特征");
+            }
+            return;
+        }
+        // 只修改本地状态，不是 GATT 操作
+        gatt.setCharacteristicNotification(characteristic, true);
+        gattQueue.enqueue(GattOperationQueue.Type.WRITE_DESCRIPTOR, IO_TIMEOUT_MS, IO_RETRIES, () -> {
+            descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+            return gatt.writeDescriptor(descriptor);
+        }, (success, status) -> {
+            if (success) {
+                finishSetup();
+            } else if (cached) {
+                Log.w(TAG, "缓存的特征已失效，重新发现服务");
+                discoverServices(gatt);
+            } else {
+                failSetup("开启通知失败，错误码: " + status);
+            }
+        });
+    }
+
+    private void finishSetup() {
+        long setupMillis = (System.nanoTime() - setupStartNanos) / 1_000_000L;
+        ConnectionInfo info = new ConnectionInfo(connectionProfile, negotiatedMtu, txPhy, rxPhy,
+                grantedPriority, setupMillis);
+        connectionInfo = info;
+        Log.d(TAG, "连接参数协商完成: " + info);
+        callback.onConnectionReady(info);
+    }
+
+    private void failSetup(String message) {
+        gattQueue.clear();
+        Log.e(TAG, message);
+        callback.onError(message);
+    }
+
+    private void cancelSetup() {
+        gattQueue.clear();
+        setupGatt = null;
+        bytesPerSecond = 0;
+        throughputWindowNanos = 0;
+    }
+
+    // GATT 回调线程：累计接收字节数，每个窗口更新一次吞吐量
+    private void countReceived(int length) {
+        if (awaitingFirstSample) {
+            awaitingFirstSample = false;
+            long millis = (System.nanoTime() - disconnectNanos) / 1_000_000L;
+            lastTimeToFirstSampleMillis = millis;
+            Log.d(TAG, "重连后收到首个样本，耗时 " + millis + "ms");
+            callback.onReconnected(millis, lastReconnectAttempts);
+        }
+        long total = receivedBytes + length;
+        receivedBytes = total;
+        long now = System.nanoTime();
+        if (throughputWindowNanos == 0) {
+            throughputWindowNanos = now;
+            throughputWindowBytes = total - length;
+        } else if (now - throughputWindowNanos >= THROUGHPUT_WINDOW_NANOS) {
+            bytesPerSecond = (total - throughputWindowBytes) * 1_000_000_000L / (now - throughputWindowNanos);
+            throughputWindowNanos = now;
+            throughputWindowBytes = total;
+        }
+    }
+
+    // ---- 连接与重连，以下方法都在主线程上调用 ----
+
+    private void openGatt(boolean autoConnect) {
+        // autoConnect 为 false 时直接连接，超时后由退避逻辑重试
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            bluetoothGatt = targetDevice.connectGatt(context, autoConnect, gattCallback, BluetoothDevice.TRANSPORT_LE);
+        } else {
+            bluetoothGatt = targetDevice.connectGatt(context, autoConnect, gattCallback);
+        }
+        if (!autoConnect) {
+            gattHandler.postDelayed(connectTimeoutTask, CONNECT_ATTEMPT_TIMEOUT_MS);
+        }
+    }
+
+    private void closeGatt() {
+        gattHandler.removeCallbacks(connectTimeoutTask);
+        if (bluetoothGatt != null) {
+            bluetoothGatt.disconnect();
+            bluetoothGatt.close();
+            bluetoothGatt = null;
+        }
+        servicesGatt = null;
+        autoConnectPending = false;
+    }
+
     /**
      * 自动重连逻辑
-     * 如果设备断开连接，会尝试重新连接
+     * 设备意外断开或重连失败时，按指数退避安排下一次重连；用户主动断开时不重连
      */
     private void startReconnect() {
-        if (reconnectAttempts < MAX_RECONNECT_ATTEMPTS) {
-            reconnectAttempts++;
-            Log.d(TAG, "尝试重连，重连次数：" + reconnectAttempts);
-
-            // 延时一段时间后重连
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                if (targetDevice != null && !isConnected()) {
-                    Log.d(TAG, "自动重连...");
-                    connectToDevice();
-                }
-            }, 5000); // 5秒后自动重连
+        gattHandler.removeCallbacks(connectTimeoutTask);
+        if (userDisconnected || targetDevice == null || connected || autoConnectPending || reconnectScheduled) {
+            return;
+        }
+        reconnectScheduled = true;
+        long delay = reconnectBackoff.nextDelayMs();
+        Log.d(TAG, "尝试重连，重连次数：" + reconnectBackoff.getAttempts() + "，延迟 " + delay + "ms");
+        gattHandler.postDelayed(reconnectTask, delay);
+    }
+
+    private void attemptReconnect() {
+        reconnectScheduled = false;
+        if (userDisconnected || targetDevice == null || connected) {
+            return;
+        }
+        if (reconnectBackoff.getAttempts() > MAX_DIRECT_RECONNECT_ATTEMPTS) {
+            // 设备可能已离开范围：改用 autoConnect，由系统在后台低占空比扫描，设备出现后自动连接
+            Log.d(TAG, "直接重连失败，改用后台自动连接");
+            callback.onError("设备暂时不可用，等待设备出现后自动连接");
+            closeGatt();
+            autoConnectPending = true;
+            openGatt(true);
+            return;
+        }
+        // API 34 起 BluetoothGatt.connect() 是直接连接，复用原来的 BluetoothGatt，保留缓存的服务和特征引用。
+        // 更早的版本中 connect() 发起的是后台连接（isDirect=false，低占空比扫描），几秒内很难连上，
+        // 因此关闭旧连接重新 connectGatt(autoConnect=false) 直接连接，服务发现由系统的 GATT 缓存加速
+        BluetoothGatt gatt = bluetoothGatt;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE && gatt != null && gatt.connect()) {
+            gattHandler.postDelayed(connectTimeoutTask, CONNECT_ATTEMPT_TIMEOUT_MS);
         } else {
-            callback.onError("最大重连次数已达到，无法重连。");
+            closeGatt();
+            openGatt(false);
         }
     }
 
-}
+    // 直接连接超时：取消这次连接，按退避安排下一次
+    private void onConnectAttemptTimeout() {
+        if (connected) {
+            return;
+        }
+        Log.w(TAG, "连接超时");
+        if (bluetoothGatt != null) {
+            bluetoothGatt.disconnect();
+        }
+        startReconnect();
+    }
+
+    private void cancelReconnect() {
+        reconnectScheduled = false;
+        gattHandler.removeCallbacks(reconnectTask);
+        gattHandler.removeCallbacks(connectTimeoutTask);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+package com.example.bletest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 二进制录制文件格式（小端序）
+ *
+ * <pre>
+ * 文件头：
+ *   u32 magic          "PXSR"
+ *   u16 schemaVersion  格式版本
+ *   u16 headerSize     文件头总字节数，记录从此偏移开始
+ *   u16 recordSize     每条记录的字节数（36）
+ *   u16 valueScale     x/y/z/t 的定点缩放倍数（1000，即保留 3 位小数）
+ *   i64 startTime      开始录制的手机时间（UTC 毫秒）
+ *   u16 nameLength     设备名 UTF-8 字节数
+ *   u8[] deviceName
+ * 记录（定长）：
+ *   i64 wallTime       手机时间（UTC 毫秒）
+ *   i64 timestamp      设备时间戳
+ *   i32 index          设备样本索引
+ *   i32 x, y, z, t     定点数值 = round(值 * valueScale)
+ * 文件尾（正常关闭时写入，稀疏索引）：
+ *   每 INDEX_INTERVAL 条记录一项：i64 timestamp, i64 recordOffset
+ *   i64 recordCount, i32 entryCount, i32 indexInterval, u32 magic "PXIX"
+ * </pre>
+ *
+ * 文件没有正常关闭时没有文件尾，记录数由文件长度推算，定长记录仍可直接按下标访问。
+ */
+public final class BinaryRecordingFormat {
+
+    public static final int MAGIC = 0x52535850;         // "PXSR"
+    public static final int FOOTER_MAGIC = 0x58495850;  // "PXIX"
+    public static final int SCHEMA_VERSION = 1;
+    public static final int RECORD_SIZE = 36;
+    public static final int VALUE_SCALE = 1000;
+    public static final int INDEX_INTERVAL = 1024;
+    public static final int INDEX_ENTRY_SIZE = 16;
+    public static final int TRAILER_SIZE = 20;
+    public static final String FILE_EXTENSION = ".bin";
+
+    // 文件头中设备名之前的固定部分
+    static final int FIXED_HEADER_SIZE = 22;
+    static final int MAX_DEVICE_NAME_BYTES = 255;
+
+    private BinaryRecordingFormat() {
+    }
+
+    /**
+     * 文件头信息
+     */
+    public static final class Header {
+        public final int schemaVersion;
+        public final int headerSize;
+        public final int recordSize;
+        public final int valueScale;
+        public final long startTimeMillis;
+        public final String deviceName;
+
+        Header(int schemaVersion, int headerSize, int recordSize, int valueScale,
+               long startTimeMillis, String deviceName) {
+            this.schemaVersion = schemaVersion;
+            this.headerSize = headerSize;
+            this.recordSize = recordSize;
+            this.valueScale = valueScale;
+            this.startTimeMillis = startTimeMillis;
+            this.deviceName = deviceName;
+        }
+    }
+
+    /**
+     * 文件尾中的稀疏索引
+     */
+    public static final class Footer {
+        public final long recordCount;
+        public final int indexInterval;
+        public final long[] indexTimestamps;
+        public final long[] indexOffsets;
+
+        Footer(long recordCount, int indexInterval, long[] indexTimestamps, long[] indexOffsets) {
+            this.recordCount = recordCount;
+            this.indexInterval = indexInterval;
+            this.indexTimestamps = indexTimestamps;
+            this.indexOffsets = indexOffsets;
+        }
+    }
+
+    /**
+     * 将数值转换为定点整数，舍入规则与文本格式的 %.3f 相同（见 {@link DecimalWriter}），
+     * 超出范围时取边界值，NaN 记为 0
+     */
+    public static int toFixed(double value) {
+        double abs = Math.abs(value);
+        long rounded;
+        if (abs < (double) Integer.MAX_VALUE / VALUE_SCALE) {
+            rounded = DecimalWriter.roundScaled(abs, 3);
+        } else {
+            rounded = abs > 0 ? Integer.MAX_VALUE : 0;
+        }
+        if (rounded > Integer.MAX_VALUE) {
+            rounded = Integer.MAX_VALUE;
+        }
+        return value < 0 ? -(int) rounded : (int) rounded;
+    }
+
+    public static double fromFixed(int fixed) {
+        return fixed / (double) VALUE_SCALE;
+    }
+
+    /**
+     * 读取文件头，buffer 需为小端序，position 位于文件开头
+     */
+    public static Header readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < FIXED_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("不是二进制录制文件");
+        }
+        int schemaVersion = buffer.getShort() & 0xFFFF;
+        if (schemaVersion > SCHEMA_VERSION) {
+            throw new IOException("不支持的文件版本: " + schemaVersion);
+        }
+        int headerSize = buffer.getShort() & 0xFFFF;
+        int recordSize = buffer.getShort() & 0xFFFF;
+        int valueScale = buffer.getShort() & 0xFFFF;
+        long startTime = buffer.getLong();
+        int nameLength = buffer.getShort() & 0xFFFF;
+        if (recordSize < RECORD_SIZE || buffer.remaining() < nameLength) {
+            throw new IOException("文件头损坏");
+        }
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        return new Header(schemaVersion, headerSize, recordSize, valueScale, startTime,
+                new String(name, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取文件头
+     */
+    public static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_HEADER_SIZE + MAX_DEVICE_NAME_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(buffer, 0);
+        buffer.flip();
+        return readHeader(buffer);
+    }
+
+    /**
+     * 读取文件尾的稀疏索引
+     *
+     * @return 文件没有正常关闭（没有文件尾）时返回 null
+     */
+    public static Footer readFooter(FileChannel channel, Header header) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < header.headerSize + TRAILER_SIZE) {
+            return null;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(trailer, fileSize - TRAILER_SIZE);
+        trailer.flip();
+        long recordCount = trailer.getLong();
+        int entryCount = trailer.getInt();
+        int indexInterval = trailer.getInt();
+        if (trailer.getInt() != FOOTER_MAGIC || entryCount < 0 || indexInterval <= 0) {
+            return null;
+        }
+        long indexStart = fileSize - TRAILER_SIZE - (long) entryCount * INDEX_ENTRY_SIZE;
+        if (indexStart != header.headerSize + recordCount * header.recordSize) {
+            return null;  // 尾部恰好出现 magic，但长度对不上
+        }
+
+        ByteBuffer entries = ByteBuffer.allocate(entryCount * INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(entries, indexStart);
+        entries.flip();
+        long[] timestamps = new long[entryCount];
+        long[] offsets = new long[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            timestamps[i] = entries.getLong();
+            offsets[i] = entries.getLong();
+        }
+        return new Footer(recordCount, indexInterval, timestamps, offsets);
+    }
+
+    /**
+     * 计算记录数：有文件尾时取文件尾中的值，否则按文件长度推算
+     */
+    public static long recordCount(FileChannel channel, Header header, Footer footer) throws IOException {
+        if (footer != null) {
+            return footer.recordCount;
+        }
+        return Math.max(0, (channel.size() - header.headerSize) / header.recordSize);
+    }
+
+    /**
+     * 将二进制录制文件转换回原来的文本格式（"世界时间, 时间戳, 索引, X, Y, Z, T"）
+     *
+     * @param binaryFile 二进制录制文件
+     * @param textFile   输出的文本文件，已存在时覆盖
+     * @return 转换的记录数
+     */
+    public static long convertToText(File binaryFile, File textFile) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(binaryFile, "r");
+             FileOutputStream output = new FileOutputStream(textFile)) {
+            FileChannel channel = input.getChannel();
+            Header header = readHeader(channel);
+            long count = recordCount(channel, header, readFooter(channel, header));
+
+            TextSampleEncoder encoder = new TextSampleEncoder();
+            ByteBuffer in = ByteBuffer.allocate(header.recordSize * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            encoder.writeHeader(out, true);
+
+            long position = header.headerSize;
+            long remaining = count;
+            while (remaining > 0) {
+                int batch = (int) Math.min(remaining, in.capacity() / header.recordSize);
+                in.clear();
+                in.limit(batch * header.recordSize);
+                while (in.hasRemaining()) {
+                    if (channel.read(in, position + in.position()) < 0) {
+                        throw new IOException("文件被截断");
+                    }
+                }
+                in.flip();
+                for (int i = 0; i < batch; i++) {
+                    int recordStart = in.position();
+                    if (out.remaining() < encoder.maxRecordSize()) {
+                        output.write(out.array(), 0, out.position());
+                        out.clear();
+                    }
+                    long wallTime = in.getLong();
+                    long timestamp = in.getLong();
+                    int index = in.getInt();
+                    double x = in.getInt() / (double) header.valueScale;
+                    double y = in.getInt() / (double) header.valueScale;
+                    double z = in.getInt() / (double) header.valueScale;
+                    double t = in.getInt() / (double) header.valueScale;
+                    encoder.encode(out, wallTime, timestamp, index, x, y, z, t);
+                    in.position(recordStart + header.recordSize);
+                }
+                position += (long) batch * header.recordSize;
+                remaining -= batch;
+            }
+            output.write(out.array(), 0, out.position());
+            return count;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bletest;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 二进制格式的样本编码器，格式见 {@link BinaryRecordingFormat}
+ * 每个文件使用一个新的编码器实例，编码器记录已写入的记录数并在关闭时写入稀疏索引。
+ */
+public final class BinarySampleEncoder implements SampleEncoder {
+
+    private final byte[] deviceName;
+
+    private int headerSize;
+    private long recordCount;
+
+    // 稀疏索引：每 INDEX_INTERVAL 条记录一项
+    private long[] indexTimestamps = new long[64];
+    private long[] indexOffsets = new long[64];
+    private int indexCount;
+
+    /**
+     * @param deviceName 写入文件头的设备名，可以为 null
+     */
+    public BinarySampleEncoder(String deviceName) {
+        byte[] name = deviceName == null ? new byte[0] : deviceName.getBytes(StandardCharsets.UTF_8);
+        this.deviceName = name.length > BinaryRecordingFormat.MAX_DEVICE_NAME_BYTES
+                ? Arrays.copyOf(name, BinaryRecordingFormat.MAX_DEVICE_NAME_BYTES) : name;
+    }
+
+    @Override
+    public int maxRecordSize() {
+        return Math.max(BinaryRecordingFormat.RECORD_SIZE,
+                BinaryRecordingFormat.FIXED_HEADER_SIZE + BinaryRecordingFormat.MAX_DEVICE_NAME_BYTES);
+    }
+
+    @Override
+    public boolean isAppendable() {
+        return false;  // 每个文件只有一个文件头和文件尾
+    }
+
+    @Override
+    public void writeHeader(ByteBuffer out, boolean emptyFile) {
+        headerSize = BinaryRecordingFormat.FIXED_HEADER_SIZE + deviceName.length;
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(BinaryRecordingFormat.MAGIC);
+        out.putShort((short) BinaryRecordingFormat.SCHEMA_VERSION);
+        out.putShort((short) headerSize);
+        out.putShort((short) BinaryRecordingFormat.RECORD_SIZE);
+        out.putShort((short) BinaryRecordingFormat.VALUE_SCALE);
+        out.putLong(System.currentTimeMillis());
+        out.putShort((short) deviceName.length);
+        out.put(deviceName);
+    }
+
+    @Override
+    public void encode(ByteBuffer out, long wallTimeMillis, long timestamp, int index,
+                       double x, double y, double z, double t) {
+        if (recordCount % BinaryRecordingFormat.INDEX_INTERVAL == 0) {
+            addIndexEntry(timestamp, headerSize + recordCount * BinaryRecordingFormat.RECORD_SIZE);
+        }
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putLong(wallTimeMillis);
+        out.putLong(timestamp);
+        out.putInt(index);
+        out.putInt(BinaryRecordingFormat.toFixed(x));
+        out.putInt(BinaryRecordingFormat.toFixed(y));
+        out.putInt(BinaryRecordingFormat.toFixed(z));
+        out.putInt(BinaryRecordingFormat.toFixed(t));
+        recordCount++;
+    }
+
+    @Override
+    public void writeFooter(ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < indexCount; i++) {
+            out.putLong(indexTimestamps[i]);
+            out.putLong(indexOffsets[i]);
+        }
+        out.putLong(recordCount);
+        out.putInt(indexCount);
+        out.putInt(BinaryRecordingFormat.INDEX_INTERVAL);
+        out.putInt(BinaryRecordingFormat.FOOTER_MAGIC);
+    }
+
+    @Override
+    public int maxFooterSize() {
+        return indexCount * BinaryRecordingFormat.INDEX_ENTRY_SIZE + BinaryRecordingFormat.TRAILER_SIZE;
+    }
+
+    private void addIndexEntry(long timestamp, long offset) {
+        if (indexCount == indexTimestamps.length) {
+            indexTimestamps = Arrays.copyOf(indexTimestamps, indexCount * 2);
+            indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+        }
+        indexTimestamps[indexCount] = timestamp;
+        indexOffsets[indexCount] = offset;
+        indexCount++;
+    }
+}
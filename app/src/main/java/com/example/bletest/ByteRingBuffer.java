@@ -0,0 +1,103 @@
+package com.example.bletest;
+
+/**
+ * 可复用的字节环形缓冲区
+ * 容量为 2 的幂，写满时才按倍数扩容，最大不超过 maxCapacity。
+ * 非线程安全，由同一个线程读写。
+ */
+public final class ByteRingBuffer {
+
+    private final int maxCapacity;
+    private byte[] buffer;
+    private int mask;
+
+    // 读写位置，只增不减，通过 mask 映射到数组下标
+    private long head;
+    private long tail;
+
+    /**
+     * @param initialCapacity 初始容量，会向上取整为 2 的幂
+     * @param maxCapacity     最大容量，超过后拒绝写入，同样向上取整为 2 的幂
+     */
+    public ByteRingBuffer(int initialCapacity, int maxCapacity) {
+        if (initialCapacity <= 0 || maxCapacity < initialCapacity) {
+            throw new IllegalArgumentException("容量参数非法: " + initialCapacity + ", " + maxCapacity);
+        }
+        this.maxCapacity = roundUpToPowerOfTwo(maxCapacity);
+        this.buffer = new byte[roundUpToPowerOfTwo(initialCapacity)];
+        this.mask = buffer.length - 1;
+    }
+
+    /**
+     * 写入数据，空间不足时扩容
+     *
+     * @return 写入成功返回 true；超过最大容量时不写入任何数据并返回 false
+     */
+    public boolean write(byte[] src, int off, int len) {
+        int required = size() + len;
+        if (required > buffer.length) {
+            if (required > maxCapacity) {
+                return false;
+            }
+            grow(required);
+        }
+
+        int start = (int) (tail & mask);
+        int firstPart = Math.min(len, buffer.length - start);
+        System.arraycopy(src, off, buffer, start, firstPart);
+        System.arraycopy(src, off + firstPart, buffer, 0, len - firstPart);
+        tail += len;
+        return true;
+    }
+
+    /**
+     * 将全部内容按顺序拷贝到 dst，不移动读位置
+     *
+     * @return 拷贝的字节数
+     */
+    public int copyTo(byte[] dst, int dstOff) {
+        int length = size();
+        int start = (int) (head & mask);
+        int firstPart = Math.min(length, buffer.length - start);
+        System.arraycopy(buffer, start, dst, dstOff, firstPart);
+        System.arraycopy(buffer, 0, dst, dstOff + firstPart, length - firstPart);
+        return length;
+    }
+
+    /**
+     * 丢弃前 n 个字节
+     */
+    public void skip(int n) {
+        head += Math.min(n, size());
+    }
+
+    public void clear() {
+        head = tail;
+    }
+
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    private void grow(int required) {
+        byte[] newBuffer = new byte[Math.min(roundUpToPowerOfTwo(required), maxCapacity)];
+        int length = copyTo(newBuffer, 0);
+        buffer = newBuffer;
+        mask = buffer.length - 1;
+        head = 0;
+        tail = length;
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
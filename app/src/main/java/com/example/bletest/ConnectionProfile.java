@@ -0,0 +1,53 @@
+package com.example.bletest;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * 连接参数配置
+ * 连接建立后 {@link BLEManager} 按 MTU → PHY → 连接优先级 → 服务发现 → 开启通知 的顺序依次协商，
+ * 每一步等待上一步的回调（或超时）后再进行。
+ */
+public enum ConnectionProfile {
+    // 最大 MTU、2M PHY、高优先级（7.5ms 左右的连接间隔），通知吞吐最高，功耗也最高
+    HIGH_THROUGHPUT(247, BluetoothDevice.PHY_LE_2M_MASK, BluetoothGatt.CONNECTION_PRIORITY_HIGH),
+    // 中等 MTU，PHY 由双方决定，系统默认的连接间隔
+    BALANCED(185, BluetoothDevice.PHY_LE_1M_MASK | BluetoothDevice.PHY_LE_2M_MASK,
+            BluetoothGatt.CONNECTION_PRIORITY_BALANCED),
+    // 不请求 MTU 和 PHY（默认 23 字节、1M PHY），低功耗连接间隔
+    LOW_POWER(0, 0, BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER);
+
+    // BLE 默认 MTU
+    public static final int DEFAULT_MTU = 23;
+
+    private final int mtu;
+    private final int phyMask;
+    private final int connectionPriority;
+
+    ConnectionProfile(int mtu, int phyMask, int connectionPriority) {
+        this.mtu = mtu;
+        this.phyMask = phyMask;
+        this.connectionPriority = connectionPriority;
+    }
+
+    /**
+     * 请求的 MTU，0 表示不请求
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * 请求的 PHY（BluetoothDevice.PHY_LE_*_MASK），0 表示不请求
+     */
+    public int getPhyMask() {
+        return phyMask;
+    }
+
+    /**
+     * 请求的连接优先级（BluetoothGatt.CONNECTION_PRIORITY_*）
+     */
+    public int getConnectionPriority() {
+        return connectionPriority;
+    }
+}
@@ -3,56 +3,112 @@ package com.example.bletest;
 import android.content.Context;
 import android.util.Log;
 import android.widget.TextView;
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import android.os.Environment;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.util.Arrays;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.IOException;
 import android.content.Context;
 import android.util.Log;
 public class DataParser {
     // TAG 用于日志输出
     private static final String TAG = "DataParser";
+    private static final int SAMPLE_RING_CAPACITY = 8192;
+    // 按列保存的原始样本只保留最近 65536 行（约 2.8 MB，200Hz 时约 5.5 分钟），更早的数据看录制文件
+    private static final int SENSOR_STORE_CAPACITY = 1 << 16;
+
+    // 绘图用的多分辨率存储：原始、10x、100x 三层，每层 16384 项（200Hz 时 100x 层约覆盖 2.3 小时）
+    private static final int HISTORY_FACTOR = 10;
+    private static final int HISTORY_TIERS = 3;
+    private static final int HISTORY_CAPACITY = 16384;
+
+    // 正样本触发采集：保留最近的样本，默认截取触发前 1 秒和触发后 2 秒
+    private static final int CAPTURE_CAPACITY = 16384;
+    public static final long DEFAULT_CAPTURE_PRE_MILLIS = 1000;
+    public static final long DEFAULT_CAPTURE_POST_MILLIS = 2000;
+
+    // 解析结果和解析错误的处理，同步解析和接收流水线共用
+    private final FrameReassembler.FrameListener frameListener = new FrameReassembler.FrameListener() {
+        @Override
+        public void onFrame(SensorData data) {
+            processFrame(data);
+        }
+
+        @Override
+        public void onNumberError(byte[] buf, int from, int to) {
+            callback.onParseError(new String(buf, from, to - from, StandardCharsets.US_ASCII).trim(),
+                    "数值格式错误: 时间戳或索引超出范围");
+        }
+
+        @Override
+        public void onInvalidNumber(byte[] buf, int from, int to) {
+            Log.w(TAG, "Invalid number format: " + new String(buf, from, to - from, StandardCharsets.US_ASCII));
+        }
+    };
 
-    // 正则表达式，用于解析数据格式
-    private static final Pattern DATA_PATTERN = Pattern.compile(
-            "\\[(\\d+)\\](\\d+)x ([-\\d.]+)y ([-\\d.]+)z ([-\\d.]+)t ([-\\d.]+)"
-    );
-    public SensorData data;
+    // 跨包帧重组器，内部使用字节级帧解析器，替代原来的正则表达式（同步解析 feed 使用）
+    private final FrameReassembler reassembler = new FrameReassembler(frameListener);
+
+    // 接收流水线：GATT 回调线程只入队，重组/解析和保存/回调分别在独立线程完成（enqueue 使用）
+    private final IngestPipeline ingestPipeline;
+
+    // feed(ByteBuffer) 处理直接缓冲区时使用的临时数组
+    private byte[] directScratch = new byte[256];
+    // 解析结果发布到环形缓冲区，界面和分析等消费者各自用游标读取，不再共享可变的 data 字段
+    private final SampleRingBuffer sampleRing = new SampleRingBuffer(SAMPLE_RING_CAPACITY);
+    private final MultiResolutionStore history =
+            new MultiResolutionStore(HISTORY_FACTOR, HISTORY_TIERS, HISTORY_CAPACITY);
     // 用于显示解析后数据的 TextView
     private final TextView tvParsedData;
 
     // 数据解析的回调接口
     public final DataDisplayCallback callback;
 
-    // 存储解析后的传感器数据
-    public final List<SensorData> sensorDataList = new ArrayList<>();
+    // 存储最近解析的传感器数据（按列存储的有界环形，通过享元对象读取）
+    public final SensorDataStore sensorDataStore = new SensorDataStore(SENSOR_STORE_CAPACITY);
 
-    // 用于缓存接收到的数据
-    private StringBuilder databuffer = new StringBuilder();
-
-    // 控制是否保存数据的标志位
-    private boolean isSavingData = false;
     private String currentFileName;  // 用于存储当前的文件名
 
-    public boolean isSavingNoiseData = true;
+    // 控制是否保存噪声数据的标志位，连接设备时开启
+    public volatile boolean isSavingNoiseData = false;
     private int noiseFileCounter = -1;  // 初始计数器
-    private int FileCounter =0 ;
-    private FileOutputStream currentFileOutputStream = null;  // 当前文件输出流
-    private BufferedWriter writer = null;  // 当前文件的 BufferedWriter
+    // 正样本采集文件的计数器，只在采集输出的线程（分发线程）上使用
+    private int captureFileCounter = 0;
+
+    // 正样本（触发采集）和噪声数据各用一个异步写入器，编码和写文件都在后台线程完成
+    private final RecordingWriter positiveWriter;
+    private final RecordingWriter noiseWriter;
+    private volatile boolean noiseFileOpen = false;
+
+    // 正样本触发采集，按设备时间戳截取触发前后的样本写入正样本文件，噪声录制不中断
+    private final TriggeredCapture positiveCapture;
+    private volatile long capturePreMillis = DEFAULT_CAPTURE_PRE_MILLIS;
+    private volatile long capturePostMillis = DEFAULT_CAPTURE_POST_MILLIS;
+    // 只在采集输出的线程（分发线程）上使用
+    private File captureFile;
+
+    // 滑动窗口特征提取，未启动时为 null；在分发线程上更新，启动/停止在主线程上调用
+    private volatile FeatureExtractor featureExtractor;
+    private volatile FeatureFileWriter featureWriter;
+    private int featureFileCounter = 0;
+    // 频谱分析，未设置时为 null
+    private volatile SpectralAnalyzer spectralAnalyzer;
+    // 事件检测，未设置时为 null；autoCapture 为 true 时每个检测到的事件自动触发一次正样本采集
+    private volatile EventDetector eventDetector;
+    private volatile boolean autoCapture;
+    private volatile long autoCaptureCount;
+
+    // 录制文件格式，默认与原来相同的文本格式
+    private volatile RecordingFormat recordingFormat = RecordingFormat.TEXT;
+    private volatile String deviceName;
+    // 大于 0 时文本录制的世界时间由设备时间戳推算，值为每个时间戳单位的毫秒数
+    private volatile double deviceMillisPerTick = 0;
+
+    // 录制文件格式
+    public enum RecordingFormat {
+        TEXT,   // 逗号分隔文本（.txt），每行约 70 字节
+        BINARY  // 定长二进制记录 + 稀疏时间索引（.bin），每条 36 字节，见 BinaryRecordingFormat
+    }
     // 用于检查是否正在保存噪声数据
     public boolean isSavingNoiseData() {
         return this.isSavingNoiseData;  // 返回当前的保存状态
@@ -64,6 +120,14 @@ public class DataParser {
     public interface DataDisplayCallback {
         void onDataParsed(SensorData data); // 数据解析成功的回调
         void onParseError(String rawData, String errorMessage); // 数据解析错误的回调
+
+        /**
+         * 一次正样本触发采集已全部放入写入队列，在接收流水线的分发线程上调用
+         *
+         * @param truncated 缓冲区不够或数据流中断，样本不完整
+         */
+        default void onPositiveCaptured(File file, int sampleCount, boolean truncated) {
+        }
     }
     public void setCurrentFileName(String fileName) {
         this.currentFileName = fileName;
@@ -72,235 +136,372 @@ public class DataParser {
     public DataParser(TextView tvParsedData, DataDisplayCallback callback) {
         this.tvParsedData = tvParsedData;
         this.callback = callback;
-    }
 
-    // 允许外部控制是否保存数据
+        RecordingWriter.ErrorListener errorListener = (message, e) -> Log.e(TAG, message, e);
+        this.positiveWriter = new RecordingWriter("positive", new TextSampleEncoder(), errorListener);
+        this.noiseWriter = new RecordingWriter("noise", new TextSampleEncoder(), errorListener);
+        this.ingestPipeline = new IngestPipeline("ble", frameListener);
+        this.positiveCapture = new TriggeredCapture(CAPTURE_CAPACITY,
+                DEFAULT_CAPTURE_PRE_MILLIS, DEFAULT_CAPTURE_POST_MILLIS, new TriggeredCapture.Sink() {
+            @Override
+            public void onCaptureStart(long triggerTimestamp) {
+                captureFileCounter++;
+                captureFile = createRecordingFile("px_c_a_" + captureFileCounter);
+                positiveWriter.open(captureFile, createEncoder());
+                Log.d(TAG, "正样本采集写入文件: " + captureFile.getAbsolutePath() + "，触发时间戳 " + triggerTimestamp);
+            }
+
+            @Override
+            public void onCaptureSample(long wallTimeMillis, long timestamp, int index,
+                                        double x, double y, double z, double t) {
+                positiveWriter.write(wallTimeMillis, timestamp, index, x, y, z, t);
+            }
 
+            @Override
+            public void onCaptureEnd(int sampleCount, boolean truncated) {
+                positiveWriter.close();
+                Log.d(TAG, "正样本采集结束: " + sampleCount + " 条" + (truncated ? "（不完整）" : ""));
+                callback.onPositiveCaptured(captureFile, sampleCount, truncated);
+            }
+        });
+    }
 
     /**
-     * 处理接收到的原始数据
-     * 将数据分行并逐行解析
-     *
-     * @param rawData 原始接收到的数据
+     * 获取解析结果的环形缓冲区，消费者通过 {@link SampleRingBuffer#newCursor(boolean)} 注册自己的游标
      */
-    public void processIncomingData(String rawData) {
-//        Log.e("raw data: ", rawData);
-//        databuffer.append(rawData);
-//        Log.e("processed_data:", databuffer.toString());
+    public SampleRingBuffer getSampleRing() {
+        return sampleRing;
+    }
 
-//        String buffercontent = databuffer.toString()
-//                .replace("\r", "")
-//                .replace("\t", " ");
-//
-//        Log.e("processed_data",buffercontent);
-//        Log.e("processed_data",String.valueOf(buffercontent.length()));
+    /**
+     * 获取多分辨率存储，实时曲线按缩放级别从中读取
+     */
+    public MultiResolutionStore getHistory() {
+        return history;
+    }
 
-        String[] lines = rawData.split("\\n");
+    /**
+     * 获取接收流水线，用于读取各级延迟、队列深度和丢弃的数据包数
+     */
+    public IngestPipeline getIngestPipeline() {
+        return ingestPipeline;
+    }
 
-        int lastProcessedPosition = 0;
+    /**
+     * 获取正样本数据写入器，用于读取队列深度、写入字节数、刷新延迟和丢弃样本数等统计
+     */
+    public RecordingWriter getPositiveWriter() {
+        return positiveWriter;
+    }
 
+    /**
+     * 获取噪声数据写入器，用于读取统计信息
+     */
+    public RecordingWriter getNoiseWriter() {
+        return noiseWriter;
+    }
 
-        for (String line : lines) {
-            String cleanLine = line.trim().replaceAll("\\s+", " ").trim();
+    /**
+     * 设置录制队列满时的处理策略（阻塞或丢弃）
+     */
+    public void setRecordingOverflowPolicy(RecordingWriter.OverflowPolicy policy) {
+        positiveWriter.setOverflowPolicy(policy);
+        noiseWriter.setOverflowPolicy(policy);
+    }
 
-            data = parseData(cleanLine);
-//            Log.e("ssss",data.toString());
+    /**
+     * 设置之后新建的录制文件使用的格式，已打开的文件不受影响
+     */
+    public void setRecordingFormat(RecordingFormat format) {
+        this.recordingFormat = format;
+    }
 
-            // 更新UI和回调（总是执行）
-//            updateDisplay(data);
-            callback.onDataParsed(data);
+    public RecordingFormat getRecordingFormat() {
+        return recordingFormat;
+    }
 
-            // 互斥的数据保存逻辑
-            if (isSavingData) {
-               saveDataToCSVFile(data);  // 只保存常规数据
-           }
-          else if (isSavingNoiseData) {
-                saveNoiseDataToCSVFile(data);  // 只保存噪声数据
-           }
-        // 如果两个标志都是false，则不保存任何数据
+    /**
+     * 设置当前设备名，写入二进制录制文件的文件头
+     */
+    public void setDeviceName(String deviceName) {
+        this.deviceName = deviceName;
+    }
 
-         lastProcessedPosition += line.length()+1;
+    /**
+     * 设置之后新建的文本录制文件如何得到世界时间
+     * 大于 0 时以文件第一条样本为锚点，由设备时间戳推算之后每行的世界时间；为 0 时使用每条样本收到时的手机时间
+     *
+     * @param millisPerTick 设备时间戳每个单位对应的毫秒数
+     */
+    public void setDerivedWallClock(double millisPerTick) {
+        this.deviceMillisPerTick = millisPerTick;
+        if (millisPerTick > 0) {
+            ingestPipeline.getLinkQuality().setMillisPerTick(millisPerTick);
         }
-      Log.e("processed_data",String.valueOf(lastProcessedPosition));
-        // 保留未处理的数据
-       if (lastProcessedPosition > 0) {
+    }
+
+    /**
+     * 设置正样本触发采集截取的触发前、触发后时长，下一次触发时生效
+     * 时长按 {@link #setDerivedWallClock(double)} 设置的时间戳单位换算，未设置时按 1 毫秒换算
+     */
+    public void setCaptureWindow(long preMillis, long postMillis) {
+        this.capturePreMillis = preMillis;
+        this.capturePostMillis = postMillis;
+    }
 
-          databuffer.setLength(0);
+    /**
+     * 触发一次正样本采集：以当前最新样本的设备时间戳为触发时刻，
+     * 触发后时长内的样本到齐后，把触发前后的样本异步写入新的正样本文件
+     * 噪声数据照常录制，结果通过 {@link DataDisplayCallback#onPositiveCaptured} 通知
+     *
+     * @return 上一次采集尚未完成时返回 false
+     */
+    public boolean triggerPositiveCapture() {
+        double millisPerTick = deviceMillisPerTick > 0 ? deviceMillisPerTick : 1;
+        positiveCapture.setWindow(Math.round(capturePreMillis / millisPerTick),
+                Math.round(capturePostMillis / millisPerTick));
+        return positiveCapture.trigger();
+    }
 
-////            Log.e("processed_data",databuffer.toString());
-       }
+    public boolean isCapturingPositive() {
+        return positiveCapture.isCapturing();
     }
 
-    private SensorData parseData(String cleanLine) {
-        Matcher matcher = DATA_PATTERN.matcher(cleanLine);
-        if (!matcher.find()) {
-            return null;
-        }
-        try {
-            return extractSensorData(matcher);
-        } catch (NumberFormatException e) {
-            callback.onParseError(cleanLine, "数值格式错误: " + e.getMessage());
-            return null;
+    /**
+     * 启动滑动窗口特征提取，之前启动的提取和特征文件会先停止
+     *
+     * @param windowSize 窗口样本数
+     * @param hop        每隔多少个样本输出一次特征向量
+     * @param listener   在接收流水线的分发线程上调用，可以为 null
+     * @param writeFile  是否同时把特征向量写入 Download 目录下的特征文件（px_f_N.feat）
+     */
+    public void startFeatureExtraction(int windowSize, int hop, FeatureExtractor.Listener listener, boolean writeFile) {
+        stopFeatureExtraction();
+        FeatureFileWriter writer = null;
+        if (writeFile) {
+            featureFileCounter++;
+            File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+            File file = new File(downloadDir, "px_f_" + featureFileCounter + FeatureFileWriter.FILE_EXTENSION);
+            writer = new FeatureFileWriter(file, windowSize, hop, (message, e) -> Log.e(TAG, message, e));
+            Log.d(TAG, "特征向量写入文件: " + file.getAbsolutePath());
         }
+        FeatureFileWriter fileWriter = writer;
+        featureWriter = writer;
+        featureExtractor = new FeatureExtractor(windowSize, hop, features -> {
+            if (fileWriter != null) {
+                fileWriter.write(features);
+            }
+            if (listener != null) {
+                listener.onFeatures(features);
+            }
+        });
     }
 
-
+    /**
+     * 设置频谱分析，之后解析出的样本都交给它；为 null 时停止
+     * 分析和回调在接收流水线的分发线程上执行
+     */
+    public void setSpectralAnalyzer(SpectralAnalyzer analyzer) {
+        this.spectralAnalyzer = analyzer;
+    }
 
     /**
-     * 从正则表达式的匹配结果中提取传感器数据
+     * 设置事件检测，之后解析出的样本都交给它；为 null 时停止
+     * 检测和回调在接收流水线的分发线程上执行
      *
-     * @param matcher 正则表达式匹配器
-     * @return 返回一个 SensorData 对象
+     * @param autoCapture 检测到事件开始时是否自动触发正样本采集（{@link #triggerPositiveCapture()}），
+     *                    上一次采集尚未完成时忽略
+     */
+    public void setEventDetector(EventDetector detector, boolean autoCapture) {
+        this.autoCapture = autoCapture;
+        this.eventDetector = detector;
+    }
+
+    public void setAutoCapture(boolean autoCapture) {
+        this.autoCapture = autoCapture;
+    }
+
+    public boolean isAutoCapture() {
+        return autoCapture;
+    }
+
+    /**
+     * 由事件检测自动触发的正样本采集次数
      */
-    private SensorData extractSensorData(Matcher matcher) {
-        return new SensorData(
-                Long.parseLong(matcher.group(1)),  // timestamp
-                Integer.parseInt(matcher.group(2)), // index
-                parseDoubleSafely(matcher.group(3)), // x
-                parseDoubleSafely(matcher.group(4)), // y
-                parseDoubleSafely(matcher.group(5)), // z
-                parseDoubleSafely(matcher.group(6))  // t
-        );
+    public long getAutoCaptureCount() {
+        return autoCaptureCount;
     }
 
     /**
-     * 安全地解析字符串为双精度浮点数
-     * 如果解析失败，返回 0.0
-     *
-     * @param value 要解析的字符串
-     * @return 解析后的双精度浮点数值
+     * 停止特征提取，特征文件中剩余的记录写完后关闭
      */
-    private double parseDoubleSafely(String value) {
+    public void stopFeatureExtraction() {
+        featureExtractor = null;
+        FeatureFileWriter writer = featureWriter;
+        featureWriter = null;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * 关闭录制文件并停止后台写入线程，队列中剩余的数据会先写完
+     */
+    public void shutdown() {
+        ingestPipeline.shutdown();
+        boolean terminated = false;
         try {
-            return Double.parseDouble(value.trim());
-        } catch (NumberFormatException e) {
-            Log.w(TAG, "Invalid number format: " + value); // 解析失败时的警告日志
-            return 0.0; // 返回默认值
+            terminated = ingestPipeline.awaitTermination(200);  // 让已入队的样本先进入写入队列
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        if (terminated) {
+            positiveCapture.flush();  // 分发线程已结束，写出未完成的采集
+        } else {
+            // 分发线程仍在调用 append，不能在这里 flush，未完成的采集不写出
+            Log.w(TAG, "接收流水线未能及时结束，放弃未完成的正样本采集");
+        }
+        stopFeatureExtraction();
+        positiveWriter.shutdown();
+        noiseWriter.shutdown();
     }
 
     /**
-     * 更新 UI 显示传感器数据
-     * 将解析后的数据更新到 TextView 上
+     * 处理接收到的原始数据（兼容旧接口）
+     * 将字符串转换为字节后交给 {@link #feed(byte[], int, int)}
      *
-     * @param data 传感器数据
+     * @param rawData 原始接收到的数据
      */
+    public void processIncomingData(String rawData) {
+        byte[] bytes = rawData.getBytes(StandardCharsets.US_ASCII);
+        feed(bytes, 0, bytes.length);
+    }
 
     /**
-     * 获取当前的世界时间（UTC）
+     * 处理接收到的原始字节数据
+     * 直接在缓冲区上按换行符分行并逐行解析，不创建中间字符串
+     * 处理完成后 buffer 的 position 移动到 limit
      *
-     * @return 返回格式化的世界时间字符串
+     * @param buffer 原始接收到的数据
      */
-    private String getWorldTime() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));  // 设置为世界时（UTC）
-        Date now = new Date();
-        return sdf.format(now); // 格式化并返回世界时间
-    }
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
 
-    public void setSavingData(boolean isSaving) {
-        if (isSaving == this.isSavingData) {
-            return;  // 如果状态未变化时，直接返回
+        // 直接缓冲区没有底层数组，先拷贝到复用的临时数组
+        int length = buffer.remaining();
+        if (directScratch.length < length) {
+            directScratch = new byte[length];
         }
+        buffer.get(directScratch, 0, length);
+        feed(directScratch, 0, length);
+    }
 
-        this.isSavingData = isSaving;
+    /**
+     * 处理接收到的原始字节数据
+     * 完整的行直接在缓冲区上解析，不创建中间字符串；
+     * 末尾未以换行符结束的半行暂存起来，与下一个通知包拼接后再解析
+     *
+     * @param buf 数据缓冲区
+     * @param off 数据起始位置
+     * @param len 数据长度
+     */
+    public void feed(byte[] buf, int off, int len) {
+        reassembler.feed(buf, off, len);
+    }
 
-        if (isSaving) {
-            // 每次开始保存时，创建一个新的文件
-            FileCounter++;  // 更新计数器，确保文件名唯一
+    /**
+     * 解析暂存的最后半行数据，在数据流结束（如断开连接）时调用
+     */
+    public void flush() {
+        reassembler.flush();
+    }
 
-            // 生成新的文件名
-            String dataFileName = "px_c_a_" + FileCounter + ".txt";  // 可以根据需要修改扩展名
+    /**
+     * 把接收到的数据包交给接收流水线，在 GATT 回调线程调用，拷贝后立即返回
+     * 解析、保存和 onDataParsed 回调都在流水线的后台线程上执行
+     *
+     * @return 流水线队列已满时返回 false，数据包被丢弃
+     */
+    public boolean enqueue(byte[] buf, int off, int len) {
+        return ingestPipeline.offer(buf, off, len);
+    }
 
-            // 获取Download目录
-            File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-            File outputFile = new File(downloadDir, dataFileName);  // 新文件路径
+    /**
+     * 通过接收流水线解析暂存的最后半行数据，与 {@link #enqueue(byte[], int, int)} 配合使用
+     */
+    public void enqueueFlush() {
+        ingestPipeline.flush();
+    }
 
-            try {
-                // 以追加模式打开文件
-                currentFileOutputStream = new FileOutputStream(outputFile, true);
-                writer = new BufferedWriter(new OutputStreamWriter(currentFileOutputStream));
+    /**
+     * 获取成功解析并交付的帧数
+     */
+    public long getDeliveredFrameCount() {
+        return reassembler.getDeliveredFrames() + ingestPipeline.getDeliveredFrameCount();
+    }
 
-                // 如果文件为空时，写入表头
-                if (outputFile.length() == 0) {
-                    writer.write("世界时间, 时间戳, 索引, X, Y, Z, T\n");
-                }
+    /**
+     * 获取跨通知包拼接恢复的帧数
+     */
+    public long getRecoveredFrameCount() {
+        return reassembler.getRecoveredFrames() + ingestPipeline.getRecoveredFrameCount();
+    }
 
-                Log.d(TAG, "正样本数据开始保存到文件: " + outputFile.getAbsolutePath());
-            } catch (IOException e) {
-                Log.e(TAG, "无法创建正样本数据文件", e);
-            }
-        } else {
-            // 停止保存正样本数据
-            try {
-                if (writer != null) {
-                    writer.close();
-                }
-                if (currentFileOutputStream != null) {
-                    currentFileOutputStream.close();
-                }
-                Log.d(TAG, "正样本数据保存已停止");
-            } catch (IOException e) {
-                Log.e(TAG, "关闭正样本数据文件时出错", e);
-            }
-        }
+    /**
+     * 获取暂存到下一个通知包的字节数
+     */
+    public long getCarriedOverBytes() {
+        return reassembler.getCarriedOverBytes() + ingestPipeline.getCarriedOverBytes();
     }
 
     /**
-     * 将传感器数据保存到 CSV 文件，并加上世界时间
-     *
-     * @param data 要保存的传感器数据
+     * 对一帧解析结果执行回调和保存
+     * parsedData 由重组器复用，需要长期持有时请自行拷贝
      */
-// 保存正样本数据到txt文件
-    public void saveDataToCSVFile(SensorData data) {
-        if (!isSavingData || writer == null) {  // 只有在开启保存时才会执行
-            return;  // 如果未开启保存或文件未初始化时跳过
+    private void processFrame(SensorData parsedData) {
+        sampleRing.publish(parsedData);
+        sensorDataStore.append(parsedData);
+        history.append(parsedData);
+        positiveCapture.append(System.currentTimeMillis(), parsedData);
+        FeatureExtractor extractor = featureExtractor;
+        if (extractor != null) {
+            extractor.add(parsedData);
         }
-        try {
-            // 获取当前世界时间
-            String worldTime = getWorldTime();
-
-            // 格式化数据并写入文件
-            String dataString = String.format(
-                    "%s, %d, %d, %.3f, %.3f, %.3f, %.3f\n",
-                    worldTime, data.timestamp, data.index, data.x, data.y, data.z, data.t
-            );
-            writer.write(dataString); // 将数据写入文件
-            writer.flush(); // 确保数据立即写入文件
-            Log.d(TAG, "正样本数据保存到文件");
-
-        } catch (IOException e) {
-            Log.e(TAG, "保存正样本数据失败", e);  // 错误日志
+        SpectralAnalyzer analyzer = spectralAnalyzer;
+        if (analyzer != null) {
+            analyzer.add(parsedData);
         }
-    }
+        EventDetector detector = eventDetector;
+        if (detector != null && detector.process(parsedData) && autoCapture && triggerPositiveCapture()) {
+            autoCaptureCount++;
+        }
+        callback.onDataParsed(parsedData);
 
+        // 噪声数据持续保存，正样本由触发采集单独写入，两者互不打断
+        saveNoiseDataToCSVFile(parsedData);
+    }
 
     /**
      * 清空数据
      * 清除所有传感器数据并更新 UI
      */
     public void clearData() {
-        sensorDataList.clear(); // 清空传感器数据列表
+        sensorDataStore.clear(); // 清空传感器数据
+        history.clear();
         tvParsedData.setText("无数据"); // 更新 UI 显示
         Log.i(TAG, "All data cleared"); // 记录日志
     }
 
     // 保存噪声数据到txt文件
     public void saveNoiseDataToCSVFile(SensorData data) {
-        if (!isSavingNoiseData || writer == null) {
+        if (!isSavingNoiseData || !noiseFileOpen) {
             return; // 未开启保存或文件未初始化时跳过
         }
-        try {
-            String worldTime = getWorldTime();
-            String dataString = String.format(
-                    "%s, %d, %d, %.3f, %.3f, %.3f, %.3f\n",
-                    worldTime, data.timestamp, data.index, data.x, data.y, data.z, data.t
-            );
-            writer.write(dataString); // 写入数据
-            writer.flush(); // 实时写入文件，避免缓冲延迟
-        } catch (IOException e) {
-            Log.e(TAG, "保存噪声数据失败", e);
-        }
+        noiseWriter.write(data);
     }
 
     // 修改启动保存逻辑，保存为txt文件
@@ -312,29 +513,45 @@ public class DataParser {
         this.isSavingNoiseData = isSaving;
 
         if (isSaving) {
-            // 生成新文件名（如 px_1_x.txt, px_2_x.txt...）
-            String noiseFileName = "px_n_" + noiseFileCounter + ".txt";  // 更改为.txt扩展名
+            // 生成新文件名（如 px_n_-1.txt, px_n_-2.txt...）
+            File outputFile = createRecordingFile("px_n_" + noiseFileCounter);
             noiseFileCounter--; // 每次保存后递增计数器，确保文件名唯一
-            try {
-                // 获取Download目录
-                File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-                File outputFile = new File(downloadDir, noiseFileName); // 文件路径
-
-                // 以追加模式打开文件
-                currentFileOutputStream = new FileOutputStream(outputFile, true);
-                writer = new BufferedWriter(new OutputStreamWriter(currentFileOutputStream));
-
-                // 如果是新文件，写入表头
-                if (outputFile.length() == 0) {  // 文件为空时写入表头
-                    writer.write("世界时间, 时间戳, 索引, X, Y, Z, T\n");
-                }
-                Log.d(TAG, "开始保存噪声数据到文件: " + outputFile.getAbsolutePath());
-            } catch (IOException e) {
-                Log.e(TAG, "无法创建噪声数据文件", e);
-            }
+
+            // 文本格式以追加模式打开文件，新文件写入表头（在写入线程上完成）
+            noiseWriter.open(outputFile, createEncoder());
+            noiseFileOpen = true;
+            Log.d(TAG, "开始保存噪声数据到文件: " + outputFile.getAbsolutePath());
+        } else {
+            // 停止保存噪声数据，队列中的数据写完后关闭文件
+            noiseWriter.close();
+            noiseFileOpen = false;
         }
     }
 
+    /**
+     * 在Download目录下生成录制文件
+     * 文本格式沿用原来的追加方式；二进制格式不能追加，文件已存在时在文件名后加序号
+     *
+     * @param baseName 不含扩展名的文件名
+     */
+    private File createRecordingFile(String baseName) {
+        File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+        if (recordingFormat == RecordingFormat.TEXT) {
+            return new File(downloadDir, baseName + ".txt");
+        }
+        File file = new File(downloadDir, baseName + BinaryRecordingFormat.FILE_EXTENSION);
+        for (int i = 1; file.exists(); i++) {
+            file = new File(downloadDir, baseName + "_" + i + BinaryRecordingFormat.FILE_EXTENSION);
+        }
+        return file;
+    }
 
-
+    private SampleEncoder createEncoder() {
+        if (recordingFormat == RecordingFormat.BINARY) {
+            return new BinarySampleEncoder(deviceName);
+        }
+        double millisPerTick = deviceMillisPerTick;
+        return new TextSampleEncoder(millisPerTick > 0
+                ? TimestampEncoder.derivedFromDeviceClock(millisPerTick) : new TimestampEncoder());
+    }
 }
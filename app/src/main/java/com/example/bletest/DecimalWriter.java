@@ -0,0 +1,97 @@
+package com.example.bletest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 无分配的数值格式化工具，直接把 ASCII 数字写入字节缓冲区
+ * 定点小数的结果与 {@code String.format(Locale.ROOT, "%.3f", value)} 相同：
+ * Formatter 先取能唯一还原该 double 的最短十进制表示，再按四舍五入（远离零）截取，
+ * 所以 1.0005（二进制略小于 1.0005）输出 "1.001"，-0.0001 输出 "-0.000"。
+ * 小数点固定为 '.'，不受系统区域设置影响。
+ */
+public final class DecimalWriter {
+
+    public static final int MAX_DECIMALS = 6;
+
+    // 快速路径的数值上限；超过时 ulp 可能大于舍入精度，回退到 String.format
+    private static final double FAST_PATH_LIMIT = 1e9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L
+    };
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private DecimalWriter() {
+    }
+
+    /**
+     * 将 |value| 按 %.Nf 的规则舍入并放大为整数，例如 decimals 为 3 时 1.0005 返回 1001
+     * value 需为有限值且 |value| < 1e9
+     */
+    public static long roundScaled(double value, int decimals) {
+        double abs = Math.abs(value);
+        long scale = POWERS_OF_TEN[decimals];
+        long n = (long) Math.floor(abs * scale);
+        // 舍入分界点 (n + 0.5) / scale；2n+1 和 2*scale 都能精确表示，除法结果是分界点最近的 double。
+        // 舍入是单调的：abs 大于分界点时取整后也不小于它；abs 恰好是分界点的最近 double 时，
+        // 最短表示就是分界点本身，Formatter 向上舍入。乘法误差造成的 n 偏差一位也会在这里被纠正。
+        double tie = (2 * n + 1) / (2.0 * scale);
+        return abs >= tie ? n + 1 : n;
+    }
+
+    /**
+     * 写入保留 decimals 位小数的数值，等同于 %.Nf
+     */
+    public static void writeFixed(ByteBuffer out, double value, int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("decimals: " + decimals);
+        }
+        if (!(Math.abs(value) < FAST_PATH_LIMIT)) {
+            // NaN、无穷大和极大值很少出现，直接交给 Formatter
+            out.put(String.format(Locale.ROOT, "%." + decimals + "f", value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (Double.doubleToRawLongBits(value) < 0) {
+            out.put((byte) '-');  // 与 Formatter 相同，负数（包括 -0.0）舍入到零时仍保留负号
+        }
+        long scaled = roundScaled(value, decimals);
+        long scale = POWERS_OF_TEN[decimals];
+        writeLong(out, scaled / scale);
+        if (decimals > 0) {
+            out.put((byte) '.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                out.put((byte) ('0' + fraction / digit));
+                fraction %= digit;
+            }
+        }
+    }
+
+    /**
+     * 写入十进制整数，等同于 %d（Locale.ROOT）
+     */
+    public static void writeLong(ByteBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            out.put(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        // 先计算位数，再从低位向高位直接写入目标位置
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        int end = out.position() + digits;
+        for (int i = end - 1; i >= out.position(); i--) {
+            out.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(end);
+    }
+}
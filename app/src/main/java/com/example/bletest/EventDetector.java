@@ -0,0 +1,298 @@
+package com.example.bletest;
+
+/**
+ * 流式事件检测
+ * 每个样本由 {@link Scorer} 计算一个分数，再经过带迟滞的状态机判断事件的开始和结束：
+ * 分数连续 confirmSamples 个样本不低于 onThreshold 时事件开始，
+ * 事件中分数连续 releaseSamples 个样本低于 offThreshold 时事件结束。
+ * 两个阈值之间的分数不改变状态，避免在阈值附近反复触发。
+ *
+ * 统计检测延迟（分数第一次越过 onThreshold 到确认事件开始的设备时间）和每个样本的处理耗时
+ * （每 COST_SAMPLE_INTERVAL 个样本计时一次），供界面读取。
+ * {@link #process} 只在一个线程（接收流水线的分发线程）上调用，统计可以在任意线程读取。
+ */
+public final class EventDetector {
+
+    // 每隔多少个样本测量一次处理耗时，避免每个样本都调用 System.nanoTime
+    private static final int COST_SAMPLE_INTERVAL = 64;
+    private static final long MAX_COST_NANOS = 10_000_000L;
+
+    /**
+     * 样本打分，分数越高越可能是事件
+     * 只在 process 所在的线程上调用
+     */
+    public interface Scorer {
+        double score(SensorData data);
+
+        /**
+         * 清空内部状态（如数据流中断时）
+         */
+        void reset();
+    }
+
+    /**
+     * 事件回调，在 process 所在的线程上调用
+     */
+    public interface Listener {
+        void onEventStart(long onsetTimestamp, long confirmTimestamp, double score);
+
+        void onEventEnd(long startTimestamp, long endTimestamp, double peakScore);
+    }
+
+    /**
+     * 阈值打分：三轴幅值偏离其慢速指数平均（重力等基线）的绝对值
+     */
+    public static final class DeviationScorer implements Scorer {
+        private final double baselineAlpha;
+        private double baseline;
+        private boolean initialized;
+
+        /**
+         * @param baselineAlpha 基线的指数平滑系数，越小基线跟随越慢
+         */
+        public DeviationScorer(double baselineAlpha) {
+            this.baselineAlpha = baselineAlpha;
+        }
+
+        @Override
+        public double score(SensorData data) {
+            double magnitude = Math.sqrt(data.x * data.x + data.y * data.y + data.z * data.z);
+            if (!initialized) {
+                initialized = true;
+                baseline = magnitude;
+            }
+            double deviation = magnitude - baseline;
+            baseline += baselineAlpha * deviation;
+            return Math.abs(deviation);
+        }
+
+        @Override
+        public void reset() {
+            initialized = false;
+        }
+    }
+
+    /**
+     * 能量打分：短时能量与长时能量之比（STA/LTA）
+     * 能量为三轴幅值偏离慢速基线的平方，分别以短时和长时的指数平均累计；
+     * 平静时分数约为 1，突发的冲击或振动使分数迅速升高。
+     * 开始后的 1 / longAlpha 个样本用于估计长时能量，期间分数固定为 1。
+     */
+    public static final class EnergyRatioScorer implements Scorer {
+        private final double shortAlpha;
+        private final double longAlpha;
+        private final double minLongEnergy;
+        private final DeviationScorer deviation;
+        private double shortEnergy;
+        private double longEnergy;
+        private final int warmupSamples;
+        private int seen;
+
+        /**
+         * @param shortAlpha    短时能量的平滑系数（如 0.2）
+         * @param longAlpha     长时能量的平滑系数（如 0.005）
+         * @param minLongEnergy 长时能量的下限，避免完全静止时噪声被放大
+         */
+        public EnergyRatioScorer(double shortAlpha, double longAlpha, double minLongEnergy) {
+            this.shortAlpha = shortAlpha;
+            this.longAlpha = longAlpha;
+            this.minLongEnergy = minLongEnergy;
+            this.deviation = new DeviationScorer(longAlpha);
+            this.warmupSamples = (int) Math.ceil(1 / longAlpha);
+        }
+
+        @Override
+        public double score(SensorData data) {
+            double d = deviation.score(data);
+            double energy = d * d;
+            if (seen < warmupSamples) {
+                // 预热：长时能量取累计平均，短时能量跟随
+                seen++;
+                longEnergy += (energy - longEnergy) / seen;
+                shortEnergy += shortAlpha * (energy - shortEnergy);
+                return 1;
+            }
+            shortEnergy += shortAlpha * (energy - shortEnergy);
+            // 用更新前的长时能量计算比值，事件本身要过一段时间才会抬高长时能量
+            double ratio = shortEnergy / Math.max(longEnergy, minLongEnergy);
+            longEnergy += longAlpha * (energy - longEnergy);
+            return ratio;
+        }
+
+        @Override
+        public void reset() {
+            deviation.reset();
+            seen = 0;
+            shortEnergy = 0;
+            longEnergy = 0;
+        }
+    }
+
+    /**
+     * 统计快照，由调用方持有并复用
+     */
+    public static final class Metrics {
+        public long samples;
+        public long events;
+        public boolean active;
+        // 检测延迟（设备时间戳单位）
+        public long lastDetectionLatency;
+        public double meanDetectionLatency;
+        public long maxDetectionLatency;
+        // 每个样本的处理耗时（纳秒，含打分和回调）
+        public double meanCostNanos;
+        public long p99CostNanos;
+        public long maxCostNanos;
+    }
+
+    private final Scorer scorer;
+    private final Listener listener;
+    private volatile double onThreshold;
+    private volatile double offThreshold;
+    private volatile int confirmSamples;
+    private volatile int releaseSamples;
+
+    // ---- 状态机，只在 process 线程修改 ----
+    private volatile boolean active;
+    private int aboveCount;
+    private int belowCount;
+    private long onsetTimestamp;
+    private long startTimestamp;
+    private long lastTimestamp;
+    private double peakScore;
+
+    // ---- 统计 ----
+    private volatile long sampleCount;
+    private volatile long eventCount;
+    private volatile long lastDetectionLatency;
+    private volatile long maxDetectionLatency;
+    private volatile long totalDetectionLatency;
+    private final LatencyHistogram cost = new LatencyHistogram(MAX_COST_NANOS);
+
+    /**
+     * @param onThreshold    事件开始的分数阈值
+     * @param offThreshold   事件结束的分数阈值，不大于 onThreshold
+     * @param confirmSamples 分数连续不低于 onThreshold 多少个样本后确认事件开始
+     * @param releaseSamples 分数连续低于 offThreshold 多少个样本后事件结束
+     */
+    public EventDetector(Scorer scorer, double onThreshold, double offThreshold,
+                         int confirmSamples, int releaseSamples, Listener listener) {
+        this.scorer = scorer;
+        this.listener = listener;
+        setThresholds(onThreshold, offThreshold, confirmSamples, releaseSamples);
+    }
+
+    /**
+     * 修改阈值，从下一个样本开始生效
+     */
+    public void setThresholds(double onThreshold, double offThreshold, int confirmSamples, int releaseSamples) {
+        if (offThreshold > onThreshold || confirmSamples < 1 || releaseSamples < 1) {
+            throw new IllegalArgumentException("offThreshold <= onThreshold, confirmSamples >= 1, releaseSamples >= 1");
+        }
+        this.onThreshold = onThreshold;
+        this.offThreshold = offThreshold;
+        this.confirmSamples = confirmSamples;
+        this.releaseSamples = releaseSamples;
+    }
+
+    /**
+     * 处理一个样本
+     *
+     * @return 该样本确认了一个新事件的开始时返回 true
+     */
+    public boolean process(SensorData data) {
+        long count = sampleCount;
+        boolean timed = count % COST_SAMPLE_INTERVAL == 0;
+        long startNanos = timed ? System.nanoTime() : 0;
+        sampleCount = count + 1;
+
+        boolean started = step(data.timestamp, scorer.score(data));
+
+        if (timed) {
+            long elapsed = System.nanoTime() - startNanos;
+            synchronized (cost) {
+                cost.record(elapsed);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * 数据流中断时调用：结束正在进行的事件并清空打分器状态
+     */
+    public void reset() {
+        if (active) {
+            active = false;
+            listener.onEventEnd(startTimestamp, lastTimestamp, peakScore);
+        }
+        aboveCount = 0;
+        belowCount = 0;
+        scorer.reset();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 把当前统计写入 into
+     */
+    public Metrics getMetrics(Metrics into) {
+        into.samples = sampleCount;
+        long events = eventCount;
+        into.events = events;
+        into.active = active;
+        into.lastDetectionLatency = lastDetectionLatency;
+        into.maxDetectionLatency = maxDetectionLatency;
+        into.meanDetectionLatency = events == 0 ? 0 : (double) totalDetectionLatency / events;
+        synchronized (cost) {
+            into.meanCostNanos = cost.getMean();
+            into.p99CostNanos = cost.getValueAtPercentile(99);
+            into.maxCostNanos = cost.getMax();
+        }
+        return into;
+    }
+
+    private boolean step(long timestamp, double score) {
+        lastTimestamp = timestamp;
+        if (!active) {
+            if (score >= onThreshold) {
+                if (aboveCount == 0) {
+                    onsetTimestamp = timestamp;
+                    peakScore = score;
+                }
+                aboveCount++;
+                peakScore = Math.max(peakScore, score);
+                if (aboveCount >= confirmSamples) {
+                    active = true;
+                    aboveCount = 0;
+                    belowCount = 0;
+                    startTimestamp = onsetTimestamp;
+                    long latency = timestamp - onsetTimestamp;
+                    lastDetectionLatency = latency;
+                    maxDetectionLatency = Math.max(maxDetectionLatency, latency);
+                    totalDetectionLatency += latency;
+                    eventCount++;
+                    listener.onEventStart(onsetTimestamp, timestamp, score);
+                    return true;
+                }
+            } else {
+                aboveCount = 0;
+            }
+            return false;
+        }
+
+        peakScore = Math.max(peakScore, score);
+        if (score < offThreshold) {
+            belowCount++;
+            if (belowCount >= releaseSamples) {
+                active = false;
+                belowCount = 0;
+                listener.onEventEnd(startTimestamp, timestamp, peakScore);
+            }
+        } else {
+            belowCount = 0;
+        }
+        return false;
+    }
+}
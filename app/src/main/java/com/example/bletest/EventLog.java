@@ -0,0 +1,130 @@
+package com.example.bletest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.util.Date;
+
+/**
+ * 固定容量的事件日志
+ * 环形缓冲区保存最近 capacity 条事件，追加为 O(1)，满了之后覆盖最旧的一条；
+ * 界面只渲染末尾若干行，完整内容可以按需导出到文件。线程安全。
+ */
+public final class EventLog {
+
+    private final long[] times;
+    private final String[] messages;
+    private int head;   // 下一条写入的位置
+    private int size;
+    private long totalCount;
+
+    // 只在持有锁时使用
+    private final DateFormat timeFormat = DateFormat.getTimeInstance();
+    private final Date date = new Date();
+
+    public EventLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        this.times = new long[capacity];
+        this.messages = new String[capacity];
+    }
+
+    /**
+     * 追加一条事件，时间取当前手机时间
+     */
+    public void add(String message) {
+        add(System.currentTimeMillis(), message);
+    }
+
+    public synchronized void add(long timeMillis, String message) {
+        times[head] = timeMillis;
+        messages[head] = message;
+        head = (head + 1) % messages.length;
+        if (size < messages.length) {
+            size++;
+        }
+        totalCount++;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * 当前保存的事件数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 追加过的事件总数，包括已经被覆盖的
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 把最近 maxLines 条事件按 "[时间] 消息" 逐行追加到 out，最新的在最后
+     *
+     * @return out
+     */
+    public synchronized StringBuilder renderTail(StringBuilder out, int maxLines) {
+        int count = Math.min(maxLines, size);
+        for (int i = size - count; i < size; i++) {
+            if (i > size - count) {
+                out.append('\n');
+            }
+            appendLine(out, i);
+        }
+        return out;
+    }
+
+    /**
+     * 把保存的所有事件写入文件，已存在时覆盖
+     *
+     * @return 写入的事件数
+     */
+    public int exportTo(File file) throws IOException {
+        // 先在锁内拷贝快照，写文件时不阻塞追加
+        long[] snapshotTimes;
+        String[] snapshotMessages;
+        synchronized (this) {
+            snapshotTimes = new long[size];
+            snapshotMessages = new String[size];
+            for (int i = 0; i < size; i++) {
+                int slot = slot(i);
+                snapshotTimes[i] = times[slot];
+                snapshotMessages[i] = messages[slot];
+            }
+        }
+
+        DateFormat format = DateFormat.getDateTimeInstance();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < snapshotMessages.length; i++) {
+                writer.write("[" + format.format(new Date(snapshotTimes[i])) + "] " + snapshotMessages[i] + "\n");
+            }
+        }
+        return snapshotMessages.length;
+    }
+
+    // 第 i 条（0 为最旧）在数组中的位置
+    private int slot(int i) {
+        return (head - size + i + messages.length) % messages.length;
+    }
+
+    private void appendLine(StringBuilder out, int i) {
+        int slot = slot(i);
+        date.setTime(times[slot]);
+        out.append('[').append(timeFormat.format(date)).append("] ").append(messages[slot]);
+    }
+}
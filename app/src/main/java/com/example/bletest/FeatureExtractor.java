@@ -0,0 +1,264 @@
+package com.example.bletest;
+
+import java.util.Arrays;
+
+/**
+ * 滑动窗口特征提取
+ * 对 x/y/z/t 和三轴幅值 sqrt(x²+y²+z²) 共 5 个通道，在最近 windowSize 个样本的窗口上增量计算：
+ * 均值、标准差（滑动 Welford）、RMS、最小值、最大值（单调队列）和过零次数，
+ * 窗口填满后每 hop 个样本输出一次特征向量。每个样本的计算量是常数，
+ * 窗口数据和单调队列都保存在构造时分配的基本类型环形数组中，特征向量对象复用，输出时不创建对象。
+ * 不是线程安全的，只在一个线程（接收流水线的分发线程）上使用。
+ */
+public final class FeatureExtractor {
+
+    // 通道
+    public static final int CHANNEL_X = 0;
+    public static final int CHANNEL_Y = 1;
+    public static final int CHANNEL_Z = 2;
+    public static final int CHANNEL_T = 3;
+    public static final int CHANNEL_MAGNITUDE = 4;
+    public static final int CHANNEL_COUNT = 5;
+
+    // 每个通道的特征
+    public static final int FEATURE_MEAN = 0;
+    public static final int FEATURE_STD = 1;
+    public static final int FEATURE_RMS = 2;
+    public static final int FEATURE_MIN = 3;
+    public static final int FEATURE_MAX = 4;
+    // 相邻样本符号不同的次数（0 按正数算）；幅值不为负，其过零次数总是 0
+    public static final int FEATURE_ZERO_CROSSINGS = 5;
+    public static final int FEATURES_PER_CHANNEL = 6;
+
+    // 滑动更新均值和方差会累积舍入误差，每隔这么多个样本按窗口数据重新计算一次
+    private static final int RESYNC_INTERVAL = 1 << 16;
+
+    /**
+     * 特征向量输出回调
+     */
+    public interface Listener {
+        /**
+         * @param features 复用对象，只在回调内有效
+         */
+        void onFeatures(FeatureVector features);
+    }
+
+    /**
+     * 一个窗口的特征，values 按 通道 * FEATURES_PER_CHANNEL + 特征 排列
+     */
+    public static final class FeatureVector {
+        public long startTimestamp;
+        public long endTimestamp;
+        public int firstIndex;
+        public int lastIndex;
+        public int sampleCount;
+        public final double[] values = new double[CHANNEL_COUNT * FEATURES_PER_CHANNEL];
+
+        public double get(int channel, int feature) {
+            return values[channel * FEATURES_PER_CHANNEL + feature];
+        }
+    }
+
+    private final int windowSize;
+    private final int hop;
+    private final Listener listener;
+    private final FeatureVector vector = new FeatureVector();
+
+    // 窗口数据，按样本序号 & mask 存放
+    private final int mask;
+    private final double[][] values = new double[CHANNEL_COUNT][];
+    private final long[] timestamps;
+    private final int[] indices;
+    // crossed[c][s]：样本 s 与前一个样本的符号是否不同
+    private final boolean[][] crossed = new boolean[CHANNEL_COUNT][];
+
+    // 单调队列，保存样本序号：最小值队列递增，最大值队列递减
+    private final long[][] minQueue = new long[CHANNEL_COUNT][];
+    private final long[][] maxQueue = new long[CHANNEL_COUNT][];
+    private final long[] minHead = new long[CHANNEL_COUNT];
+    private final long[] minTail = new long[CHANNEL_COUNT];
+    private final long[] maxHead = new long[CHANNEL_COUNT];
+    private final long[] maxTail = new long[CHANNEL_COUNT];
+
+    private final double[] mean = new double[CHANNEL_COUNT];
+    private final double[] m2 = new double[CHANNEL_COUNT];
+    private final int[] crossings = new int[CHANNEL_COUNT];
+
+    // 已加入的样本数
+    private long count;
+    private long windowCount;
+
+    /**
+     * @param windowSize 窗口样本数
+     * @param hop        窗口填满后每隔多少个样本输出一次（等于 windowSize 时窗口不重叠）
+     */
+    public FeatureExtractor(int windowSize, int hop, Listener listener) {
+        if (windowSize < 2 || hop < 1) {
+            throw new IllegalArgumentException("windowSize >= 2, hop >= 1: " + windowSize + ", " + hop);
+        }
+        this.windowSize = windowSize;
+        this.hop = hop;
+        this.listener = listener;
+        int size = Integer.highestOneBit(windowSize - 1) << 1;
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.indices = new int[size];
+        for (int c = 0; c < CHANNEL_COUNT; c++) {
+            values[c] = new double[size];
+            crossed[c] = new boolean[size];
+            minQueue[c] = new long[size];
+            maxQueue[c] = new long[size];
+        }
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    /**
+     * 已输出的特征向量数
+     */
+    public long getWindowCount() {
+        return windowCount;
+    }
+
+    /**
+     * 加入一个样本
+     */
+    public void add(SensorData data) {
+        add(data.timestamp, data.index, data.x, data.y, data.z, data.t);
+    }
+
+    /**
+     * 加入一个样本，窗口填满后每 hop 个样本输出一次特征向量
+     */
+    public void add(long timestamp, int index, double x, double y, double z, double t) {
+        long seq = count++;
+        int slot = (int) (seq & mask);
+        timestamps[slot] = timestamp;
+        indices[slot] = index;
+        addValue(CHANNEL_X, seq, x);
+        addValue(CHANNEL_Y, seq, y);
+        addValue(CHANNEL_Z, seq, z);
+        addValue(CHANNEL_T, seq, t);
+        addValue(CHANNEL_MAGNITUDE, seq, Math.sqrt(x * x + y * y + z * z));
+
+        if (count % RESYNC_INTERVAL == 0) {
+            resync();
+        }
+        if (count >= windowSize && (count - windowSize) % hop == 0) {
+            emit();
+        }
+    }
+
+    /**
+     * 清空窗口（如数据流中断时），之后重新填满窗口才会输出
+     */
+    public void reset() {
+        count = 0;
+        Arrays.fill(mean, 0);
+        Arrays.fill(m2, 0);
+        Arrays.fill(crossings, 0);
+        Arrays.fill(minHead, 0);
+        Arrays.fill(minTail, 0);
+        Arrays.fill(maxHead, 0);
+        Arrays.fill(maxTail, 0);
+    }
+
+    private void addValue(int c, long seq, double v) {
+        double[] window = values[c];
+        int slot = (int) (seq & mask);
+        boolean full = seq >= windowSize;
+        double old = full ? window[(int) ((seq - windowSize) & mask)] : 0;
+
+        // 过零：新样本与前一个样本的符号比较；离开窗口的是 seq - windowSize，
+        // 它与下一个样本之间的过零不再属于窗口
+        boolean cross = seq > 0 && (v < 0) != (window[(int) ((seq - 1) & mask)] < 0);
+        window[slot] = v;
+        crossed[c][slot] = cross;
+        if (cross) {
+            crossings[c]++;
+        }
+        if (full && crossed[c][(int) ((seq - windowSize + 1) & mask)]) {
+            crossings[c]--;
+        }
+
+        // 均值和方差：窗口未满时是 Welford 增量更新，满了之后用新值替换最旧的值
+        if (!full) {
+            double delta = v - mean[c];
+            mean[c] += delta / (seq + 1);
+            m2[c] += delta * (v - mean[c]);
+        } else {
+            double delta = v - old;
+            double oldMean = mean[c];
+            mean[c] += delta / windowSize;
+            m2[c] += delta * (v - mean[c] + old - oldMean);
+        }
+
+        // 先移除离开窗口的序号，队列中最多保留窗口内的 windowSize 个序号
+        long expired = seq - windowSize;
+        long[] q = minQueue[c];
+        while (minTail[c] > minHead[c] && q[(int) (minHead[c] & mask)] <= expired) {
+            minHead[c]++;
+        }
+        // 最小值：队尾不小于新值的元素不会再成为最小值
+        while (minTail[c] > minHead[c] && window[(int) (q[(int) ((minTail[c] - 1) & mask)] & mask)] >= v) {
+            minTail[c]--;
+        }
+        q[(int) (minTail[c]++ & mask)] = seq;
+
+        q = maxQueue[c];
+        while (maxTail[c] > maxHead[c] && q[(int) (maxHead[c] & mask)] <= expired) {
+            maxHead[c]++;
+        }
+        while (maxTail[c] > maxHead[c] && window[(int) (q[(int) ((maxTail[c] - 1) & mask)] & mask)] <= v) {
+            maxTail[c]--;
+        }
+        q[(int) (maxTail[c]++ & mask)] = seq;
+    }
+
+    // 按窗口中的数据重新计算均值和方差，消除滑动更新累积的舍入误差
+    private void resync() {
+        int n = (int) Math.min(count, windowSize);
+        for (int c = 0; c < CHANNEL_COUNT; c++) {
+            double[] window = values[c];
+            double m = 0;
+            double s = 0;
+            for (int i = 0; i < n; i++) {
+                double v = window[(int) ((count - n + i) & mask)];
+                double delta = v - m;
+                m += delta / (i + 1);
+                s += delta * (v - m);
+            }
+            mean[c] = m;
+            m2[c] = s;
+        }
+    }
+
+    private void emit() {
+        long first = count - windowSize;
+        vector.startTimestamp = timestamps[(int) (first & mask)];
+        vector.endTimestamp = timestamps[(int) ((count - 1) & mask)];
+        vector.firstIndex = indices[(int) (first & mask)];
+        vector.lastIndex = indices[(int) ((count - 1) & mask)];
+        vector.sampleCount = windowSize;
+        double[] out = vector.values;
+        for (int c = 0; c < CHANNEL_COUNT; c++) {
+            int base = c * FEATURES_PER_CHANNEL;
+            double variance = Math.max(0, m2[c] / windowSize);
+            double[] window = values[c];
+            out[base + FEATURE_MEAN] = mean[c];
+            out[base + FEATURE_STD] = Math.sqrt(variance);
+            out[base + FEATURE_RMS] = Math.sqrt(variance + mean[c] * mean[c]);
+            out[base + FEATURE_MIN] = window[(int) (minQueue[c][(int) (minHead[c] & mask)] & mask)];
+            out[base + FEATURE_MAX] = window[(int) (maxQueue[c][(int) (maxHead[c] & mask)] & mask)];
+            out[base + FEATURE_ZERO_CROSSINGS] = crossings[c];
+        }
+        windowCount++;
+        listener.onFeatures(vector);
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.bletest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 特征向量文件的异步写入器（小端序定长记录）
+ *
+ * <pre>
+ * 文件头：
+ *   u32 magic              "PXFT"
+ *   u16 schemaVersion      格式版本
+ *   u16 headerSize         文件头总字节数，记录从此偏移开始
+ *   u16 recordSize         每条记录的字节数
+ *   u16 channelCount       通道数（5：x, y, z, t, 幅值）
+ *   u16 featuresPerChannel 每个通道的特征数（6：均值、标准差、RMS、最小值、最大值、过零次数）
+ *   u16 reserved
+ *   i32 windowSize         窗口样本数
+ *   i32 hop                输出间隔样本数
+ *   i64 startTime          创建文件的手机时间（UTC 毫秒）
+ * 记录：
+ *   i64 startTimestamp, i64 endTimestamp   窗口首尾样本的设备时间戳
+ *   i32 firstIndex, i32 lastIndex          窗口首尾样本的索引
+ *   f32[channelCount * featuresPerChannel] 特征，按 通道 * featuresPerChannel + 特征 排列
+ * </pre>
+ *
+ * 调用方线程只把特征拷贝进预先分配的环形数组，后台线程批量编码并写入文件；队列满时丢弃新记录。
+ */
+public final class FeatureFileWriter {
+
+    public static final int MAGIC = 0x54465850;  // "PXFT"
+    public static final int SCHEMA_VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int FEATURE_COUNT = FeatureExtractor.CHANNEL_COUNT * FeatureExtractor.FEATURES_PER_CHANNEL;
+    public static final int RECORD_SIZE = 24 + 4 * FEATURE_COUNT;
+    public static final String FILE_EXTENSION = ".feat";
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int FLUSH_BYTES = 16 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final File file;
+    private final int windowSize;
+    private final int hop;
+    private final RecordingWriter.ErrorListener errorListener;
+
+    // ---- 以下队列状态由 lock 保护 ----
+    private final Object lock = new Object();
+    private final int mask = QUEUE_CAPACITY - 1;
+    private final long[] startTimestamps = new long[QUEUE_CAPACITY];
+    private final long[] endTimestamps = new long[QUEUE_CAPACITY];
+    private final int[] firstIndices = new int[QUEUE_CAPACITY];
+    private final int[] lastIndices = new int[QUEUE_CAPACITY];
+    private final float[] features = new float[QUEUE_CAPACITY * FEATURE_COUNT];
+    private long head;
+    private long tail;
+    private boolean running = true;
+
+    // 只在写入线程上使用
+    private final ByteBuffer buffer = ByteBuffer.allocate(FLUSH_BYTES + RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private volatile long recordsWritten;
+    private volatile long droppedRecords;
+
+    private final Thread thread;
+
+    /**
+     * 创建文件并启动写入线程，已存在的文件会被覆盖
+     */
+    public FeatureFileWriter(File file, int windowSize, int hop, RecordingWriter.ErrorListener errorListener) {
+        this.file = file;
+        this.windowSize = windowSize;
+        this.hop = hop;
+        this.errorListener = errorListener;
+        this.thread = new Thread(this::runLoop, "FeatureFileWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 写入一条特征向量
+     *
+     * @return 记录进入队列返回 true，队列满或已关闭时返回 false
+     */
+    public boolean write(FeatureExtractor.FeatureVector vector) {
+        synchronized (lock) {
+            if (!running || tail - head > mask) {
+                droppedRecords++;
+                return false;
+            }
+            int slot = (int) (tail & mask);
+            startTimestamps[slot] = vector.startTimestamp;
+            endTimestamps[slot] = vector.endTimestamp;
+            firstIndices[slot] = vector.firstIndex;
+            lastIndices[slot] = vector.lastIndex;
+            int base = slot * FEATURE_COUNT;
+            for (int i = 0; i < FEATURE_COUNT; i++) {
+                features[base + i] = (float) vector.values[i];
+            }
+            tail++;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * 队列中剩余的记录写完后关闭文件，写入线程结束
+     */
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    public void awaitTermination(long timeoutMillis) throws InterruptedException {
+        thread.join(timeoutMillis);
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    // ---- 写入线程 ----
+
+    private void runLoop() {
+        FileOutputStream output;
+        try {
+            output = new FileOutputStream(file);
+        } catch (IOException e) {
+            errorListener.onError("创建特征文件失败: " + file, e);
+            synchronized (lock) {
+                running = false;
+            }
+            return;
+        }
+        try {
+            writeHeader();
+            long lastFlushNanos = System.nanoTime();
+            while (true) {
+                boolean exit = false;
+                synchronized (lock) {
+                    if (head == tail) {
+                        if (!running) {
+                            exit = true;
+                        } else {
+                            try {
+                                lock.wait(FLUSH_INTERVAL_MS);
+                            } catch (InterruptedException e) {
+                                running = false;
+                            }
+                        }
+                    }
+                    while (head != tail && buffer.remaining() >= RECORD_SIZE) {
+                        encode((int) (head & mask));
+                        head++;
+                    }
+                }
+                if (exit || buffer.position() >= FLUSH_BYTES
+                        || System.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_MS * 1_000_000L) {
+                    flush(output);
+                    lastFlushNanos = System.nanoTime();
+                }
+                if (exit) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            errorListener.onError("写入特征文件失败: " + file, e);
+            synchronized (lock) {
+                running = false;
+            }
+        } finally {
+            try {
+                output.close();
+            } catch (IOException e) {
+                errorListener.onError("关闭特征文件失败: " + file, e);
+            }
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) SCHEMA_VERSION);
+        buffer.putShort((short) HEADER_SIZE);
+        buffer.putShort((short) RECORD_SIZE);
+        buffer.putShort((short) FeatureExtractor.CHANNEL_COUNT);
+        buffer.putShort((short) FeatureExtractor.FEATURES_PER_CHANNEL);
+        buffer.putShort((short) 0);
+        buffer.putInt(windowSize);
+        buffer.putInt(hop);
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    // 调用时已持有 lock
+    private void encode(int slot) {
+        buffer.putLong(startTimestamps[slot]);
+        buffer.putLong(endTimestamps[slot]);
+        buffer.putInt(firstIndices[slot]);
+        buffer.putInt(lastIndices[slot]);
+        int base = slot * FEATURE_COUNT;
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            buffer.putFloat(features[base + i]);
+        }
+        recordsWritten++;
+    }
+
+    private void flush(FileOutputStream output) throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
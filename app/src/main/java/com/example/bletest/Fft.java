@@ -0,0 +1,74 @@
+package com.example.bletest;
+
+/**
+ * 预先规划的原地基 2 FFT
+ * 位反转表和旋转因子表在构造时计算好，变换时只做蝶形运算，不创建对象。
+ * 同一个实例可以被反复使用，但不是线程安全的。
+ */
+public final class Fft {
+
+    private final int size;
+    private final int[] bitReversed;
+    // 旋转因子 e^(-2πik/N)，k = 0..N/2-1
+    private final double[] cos;
+    private final double[] sin;
+
+    /**
+     * @param size 点数，必须是 2 的幂
+     */
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT 点数必须是 2 的幂: " + size);
+        }
+        this.size = size;
+        int bits = Integer.numberOfTrailingZeros(size);
+        this.bitReversed = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 原地正变换，re/im 的长度至少为 size
+     */
+    public void transform(double[] re, double[] im) {
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            int j = bitReversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int half = 1; half < n; half <<= 1) {
+            int step = n / (half << 1);
+            for (int start = 0; start < n; start += half << 1) {
+                for (int k = 0, w = 0; k < half; k++, w += step) {
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * cos[w] - im[b] * sin[w];
+                    double ti = re[b] * sin[w] + im[b] * cos[w];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
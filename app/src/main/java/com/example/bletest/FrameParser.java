@@ -0,0 +1,206 @@
+package com.example.bletest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字节级数据帧解析器
+ * 以手写状态机解析 "[ts]idx x .. y .. z .. t .." 格式的一行数据，
+ * 数字直接从字节解码为基本类型，热路径上不创建 String、Matcher，也不装箱。
+ *
+ * 匹配语义与原正则 {@code \[(\d+)\](\d+)x ([-\d.]+)y ([-\d.]+)z ([-\d.]+)t ([-\d.]+)}
+ * 在"去首尾空白并折叠连续空白"后的行上调用 find() 的结果保持一致：
+ * 正则中的单个空格对应原始数据中的一个或多个空白字符，其余位置不允许出现空白。
+ */
+public final class FrameParser {
+
+    // 解析结果
+    public static final int RESULT_MATCH = 0;        // 匹配成功，数据已写入输出对象
+    public static final int RESULT_NO_MATCH = 1;     // 行内没有符合格式的数据
+    public static final int RESULT_NUMBER_ERROR = 2; // 格式匹配但时间戳或索引超出范围
+
+    // 能被 double 精确表示的 10 的幂（10^0 ~ 10^22）
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    // 尾数不超过 2^53 时，尾数 / 10^n 的一次除法即可得到正确舍入的结果
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // 最近一次解析中无法识别、按 0.0 处理的数值个数
+    private int invalidNumberCount;
+
+    /**
+     * 解析 buf[from, to) 中的一行数据
+     *
+     * @param buf  数据缓冲区
+     * @param from 行起始位置（包含）
+     * @param to   行结束位置（不包含），不应包含换行符
+     * @param out  解析结果写入的对象
+     * @return RESULT_MATCH、RESULT_NO_MATCH 或 RESULT_NUMBER_ERROR
+     */
+    public int parse(byte[] buf, int from, int to, SensorData out) {
+        invalidNumberCount = 0;
+        for (int start = from; start < to; start++) {
+            if (buf[start] == '[') {
+                int result = parseAt(buf, start, to, out);
+                if (result != RESULT_NO_MATCH) {
+                    return result;
+                }
+            }
+        }
+        return RESULT_NO_MATCH;
+    }
+
+    /**
+     * 获取最近一次解析中无法识别的数值个数（这些数值按 0.0 处理）
+     *
+     * @return 无法识别的数值个数
+     */
+    public int getInvalidNumberCount() {
+        return invalidNumberCount;
+    }
+
+    /**
+     * 从 '[' 所在位置开始尝试匹配一帧
+     */
+    private int parseAt(byte[] buf, int pos, int to, SensorData out) {
+        // [ts]
+        int tsStart = ++pos;
+        pos = skipDigits(buf, pos, to);
+        if (pos == tsStart || pos >= to || buf[pos] != ']') return RESULT_NO_MATCH;
+        int tsEnd = pos++;
+
+        // idx，紧跟 'x'
+        int idxStart = pos;
+        pos = skipDigits(buf, pos, to);
+        if (pos == idxStart || pos >= to || buf[pos] != 'x') return RESULT_NO_MATCH;
+        int idxEnd = pos++;
+
+        // x/y/z/t 四个数值，标记字母后至少一个空白，数值后紧跟下一个标记字母
+        int xStart = skipSpaces(buf, pos, to);
+        if (xStart == pos) return RESULT_NO_MATCH;
+        int xEnd = scanNumber(buf, xStart, to);
+        if (xEnd == xStart || xEnd >= to || buf[xEnd] != 'y') return RESULT_NO_MATCH;
+
+        pos = xEnd + 1;
+        int yStart = skipSpaces(buf, pos, to);
+        if (yStart == pos) return RESULT_NO_MATCH;
+        int yEnd = scanNumber(buf, yStart, to);
+        if (yEnd == yStart || yEnd >= to || buf[yEnd] != 'z') return RESULT_NO_MATCH;
+
+        pos = yEnd + 1;
+        int zStart = skipSpaces(buf, pos, to);
+        if (zStart == pos) return RESULT_NO_MATCH;
+        int zEnd = scanNumber(buf, zStart, to);
+        if (zEnd == zStart || zEnd >= to || buf[zEnd] != 't') return RESULT_NO_MATCH;
+
+        pos = zEnd + 1;
+        int tStart = skipSpaces(buf, pos, to);
+        if (tStart == pos) return RESULT_NO_MATCH;
+        int tEnd = scanNumber(buf, tStart, to);
+        if (tEnd == tStart) return RESULT_NO_MATCH;
+
+        // 格式匹配成功，开始解码数值
+        long timestamp = parseLong(buf, tsStart, tsEnd, Long.MAX_VALUE);
+        long index = parseLong(buf, idxStart, idxEnd, Integer.MAX_VALUE);
+        if (timestamp < 0 || index < 0) {
+            return RESULT_NUMBER_ERROR;
+        }
+
+        out.timestamp = timestamp;
+        out.index = (int) index;
+        out.x = parseDouble(buf, xStart, xEnd);
+        out.y = parseDouble(buf, yStart, yEnd);
+        out.z = parseDouble(buf, zStart, zEnd);
+        out.t = parseDouble(buf, tStart, tEnd);
+        return RESULT_MATCH;
+    }
+
+    private static int skipDigits(byte[] buf, int pos, int to) {
+        while (pos < to && buf[pos] >= '0' && buf[pos] <= '9') pos++;
+        return pos;
+    }
+
+    private static int skipSpaces(byte[] buf, int pos, int to) {
+        while (pos < to && isSpace(buf[pos])) pos++;
+        return pos;
+    }
+
+    // 与正则 \s 相同：空格、\t、\n、\u000B、\f、\r
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    // 与正则 [-\d.]+ 相同的贪婪扫描
+    private static int scanNumber(byte[] buf, int pos, int to) {
+        while (pos < to) {
+            byte b = buf[pos];
+            if ((b < '0' || b > '9') && b != '-' && b != '.') break;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 解析十进制整数，超过 max 时返回 -1（对应原实现中的 NumberFormatException）
+     */
+    private static long parseLong(byte[] buf, int from, int to, long max) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buf[i] - '0';
+            if (value > (max - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * 解析由 '-'、数字和 '.' 组成的数值，结果与 Double.parseDouble 一致
+     * 格式非法时返回 0.0（与原 parseDoubleSafely 一致）
+     */
+    private double parseDouble(byte[] buf, int from, int to) {
+        int pos = from;
+        boolean negative = buf[pos] == '-';
+        if (negative) pos++;
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDot = false;
+        boolean exact = true;
+        for (; pos < to; pos++) {
+            byte b = buf[pos];
+            if (b == '.') {
+                if (seenDot) return invalidNumber();
+                seenDot = true;
+            } else if (b == '-') {
+                return invalidNumber();
+            } else {
+                digits++;
+                if (mantissa < MAX_EXACT_MANTISSA) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenDot) scale++;
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (digits == 0) return invalidNumber();
+
+        if (!exact || mantissa > MAX_EXACT_MANTISSA || scale >= POW10.length) {
+            // 有效位数过多，交给 JDK 处理，极少出现
+            return Double.parseDouble(new String(buf, from, to - from, StandardCharsets.US_ASCII));
+        }
+        double value = scale == 0 ? (double) mantissa : mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    private double invalidNumber() {
+        invalidNumberCount++;
+        return 0.0;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.bletest;
+
+/**
+ * 跨通知包的数据帧重组器
+ * BLE 通知按 MTU 切分，一行数据可能跨越两个甚至多个通知包。
+ * 本类把每个包末尾未以换行符结束的部分暂存在环形缓冲区中，
+ * 与下一个包的开头拼接成完整的一行后再交给 {@link FrameParser} 解析。
+ * 完整的行直接在输入缓冲区上解析，不做拷贝。非线程安全。
+ */
+public final class FrameReassembler {
+
+    // 暂存区初始容量，可容纳两个 247 字节 MTU 的通知包
+    private static final int INITIAL_CARRY_CAPACITY = 512;
+    // 暂存区最大容量，超过说明长时间收不到换行符，数据已不可用
+    private static final int MAX_CARRY_CAPACITY = 64 * 1024;
+
+    // 解析结果回调接口
+    public interface FrameListener {
+        void onFrame(SensorData data); // 解析出一帧数据，data 会被复用
+        void onNumberError(byte[] buf, int from, int to); // 格式匹配但数值超出范围
+        void onInvalidNumber(byte[] buf, int from, int to); // 存在无法识别的数值（按 0.0 处理）
+    }
+
+    private final FrameListener listener;
+    private final FrameParser frameParser = new FrameParser();
+    private final SensorData parsedData = new SensorData(0, 0, 0, 0, 0, 0);
+    private final ByteRingBuffer carry = new ByteRingBuffer(INITIAL_CARRY_CAPACITY, MAX_CARRY_CAPACITY);
+
+    // 拼接跨包行时使用的连续缓冲区
+    private byte[] lineScratch = new byte[INITIAL_CARRY_CAPACITY];
+
+    // 统计计数
+    private long deliveredFrames;   // 成功解析并交付的帧数
+    private long recoveredFrames;   // 其中由跨包拼接恢复的帧数
+    private long carriedOverBytes;  // 暂存到下一个包的字节数
+    private long droppedBytes;      // 超过暂存区上限被丢弃的字节数
+
+    public FrameReassembler(FrameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 输入一个通知包的数据
+     *
+     * @param buf 数据缓冲区，方法返回后即可复用
+     * @param off 数据起始位置
+     * @param len 数据长度
+     */
+    public void feed(byte[] buf, int off, int len) {
+        int end = off + len;
+        int pos = off;
+
+        // 先补全上一个包遗留的半行
+        if (!carry.isEmpty()) {
+            int newline = indexOfNewline(buf, pos, end);
+            if (newline < 0) {
+                carryOver(buf, pos, end);
+                return;
+            }
+            carryOver(buf, pos, newline);
+            parseCarry();
+            pos = newline + 1;
+        }
+
+        // 完整的行直接在输入缓冲区上解析
+        int lineStart = pos;
+        for (int i = pos; i < end; i++) {
+            if (buf[i] == '\n') {
+                parseLine(buf, lineStart, i, false);
+                lineStart = i + 1;
+            }
+        }
+
+        if (lineStart < end) {
+            carryOver(buf, lineStart, end);
+        }
+    }
+
+    /**
+     * 将暂存区中剩余的半行作为完整的一行解析，用于数据流结束时（如断开连接）
+     */
+    public void flush() {
+        if (!carry.isEmpty()) {
+            parseCarry();
+        }
+    }
+
+    /**
+     * 丢弃暂存的半行数据
+     */
+    public void reset() {
+        carry.clear();
+    }
+
+    public long getDeliveredFrames() {
+        return deliveredFrames;
+    }
+
+    public long getRecoveredFrames() {
+        return recoveredFrames;
+    }
+
+    public long getCarriedOverBytes() {
+        return carriedOverBytes;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    private void carryOver(byte[] buf, int from, int to) {
+        int length = to - from;
+        if (length == 0) {
+            return;
+        }
+        if (carry.write(buf, from, length)) {
+            carriedOverBytes += length;
+        } else {
+            // 超过上限：丢弃已暂存的数据和本段数据
+            droppedBytes += carry.size() + length;
+            carry.clear();
+        }
+    }
+
+    private void parseCarry() {
+        int length = carry.size();
+        if (lineScratch.length < length) {
+            lineScratch = new byte[Math.max(length, lineScratch.length * 2)];
+        }
+        carry.copyTo(lineScratch, 0);
+        carry.clear();
+        parseLine(lineScratch, 0, length, true);
+    }
+
+    private void parseLine(byte[] buf, int from, int to, boolean recovered) {
+        int result = frameParser.parse(buf, from, to, parsedData);
+        if (result == FrameParser.RESULT_NUMBER_ERROR) {
+            listener.onNumberError(buf, from, to);
+            return;
+        }
+        if (result != FrameParser.RESULT_MATCH) {
+            return;  // 不符合格式的行直接忽略
+        }
+        if (frameParser.getInvalidNumberCount() > 0) {
+            listener.onInvalidNumber(buf, from, to);
+        }
+
+        deliveredFrames++;
+        if (recovered) {
+            recoveredFrames++;
+        }
+        listener.onFrame(parsedData);
+    }
+
+    private static int indexOfNewline(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.bletest;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * GATT 操作队列
+ * Android 同一时间只允许一个未完成的 GATT 操作，前一个操作还没有回调时发起的新操作会直接失败。
+ * 服务发现、读写、描述符写入、MTU 和 PHY 请求都通过本队列串行执行：前一个操作回调（或超时）后才发起下一个。
+ * 发起失败、回调失败或超时的操作按设定次数重试，重试用尽后以失败结束并继续执行后面的操作。
+ * 所有方法都必须在 handler 所在的线程上调用，GATT 回调需要先 post 到该线程再调用 {@link #complete}。
+ * 超时和重试的定时通过 {@link Scheduler} 完成，单元测试可以用手动推进的实现代替 Handler。
+ */
+public final class GattOperationQueue {
+
+    private static final String TAG = "GattOperationQueue";
+
+    // 重试前的等待时间，给协议栈释放上一个操作的时间
+    private static final long RETRY_DELAY_MS = 100;
+
+    // 超时时上报的状态码
+    public static final int STATUS_TIMEOUT = -1;
+    // 协议栈拒绝发起操作（通常是忙）时上报的状态码
+    public static final int STATUS_NOT_STARTED = -2;
+
+    /**
+     * 操作类型，每种类型对应一个 BluetoothGattCallback 回调
+     */
+    public enum Type {
+        DISCOVER_SERVICES(true),
+        REQUEST_MTU(true),
+        SET_PHY(true),
+        READ_PHY(true),
+        CONNECTION_PRIORITY(false),  // 没有公开的完成回调，发起成功即完成
+        READ(true),
+        WRITE(true),
+        WRITE_DESCRIPTOR(true);
+
+        final boolean hasCallback;
+
+        Type(boolean hasCallback) {
+            this.hasCallback = hasCallback;
+        }
+    }
+
+    /**
+     * 延时任务，任务在调用方所在的线程上执行
+     */
+    public interface Scheduler {
+        void postDelayed(Runnable task, long delayMs);
+
+        void removeCallbacks(Runnable task);
+    }
+
+    /**
+     * 发起一次 GATT 操作
+     */
+    public interface Operation {
+        /**
+         * @return 协议栈接受请求时返回 true
+         */
+        boolean start();
+    }
+
+    /**
+     * 操作结束（成功或重试用尽）时调用，在 handler 线程上
+     */
+    public interface Completion {
+        void onComplete(boolean success, int status);
+    }
+
+    /**
+     * 单类操作的统计，延迟从第一次发起到最终结束（含重试），只由 handler 线程写入
+     */
+    public static final class OpStats {
+        private volatile long count;
+        private volatile long failures;
+        private volatile long timeouts;
+        private volatile long retries;
+        private volatile long lastNanos;
+        private volatile long maxNanos;
+        private volatile long totalNanos;
+
+        void record(long nanos, boolean success) {
+            lastNanos = nanos;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            if (!success) {
+                failures++;
+            }
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getAverageNanos() {
+            long n = count;
+            return n == 0 ? 0 : totalNanos / n;
+        }
+    }
+
+    private static final class Pending {
+        final Type type;
+        final Operation operation;
+        final Completion completion;
+        final long timeoutMs;
+        final int maxRetries;
+        int attempts;
+        long firstStartNanos;
+
+        Pending(Type type, long timeoutMs, int maxRetries, Operation operation, Completion completion) {
+            this.type = type;
+            this.operation = operation;
+            this.completion = completion;
+            this.timeoutMs = timeoutMs;
+            this.maxRetries = maxRetries;
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Map<Type, OpStats> stats = new EnumMap<>(Type.class);
+    private Pending current;
+    // 当前操作失败后正在等待重试
+    private boolean retryPending;
+
+    private final Runnable timeoutTask = this::onTimeout;
+    private final Runnable retryTask = this::retry;
+
+    public GattOperationQueue(Handler handler) {
+        this(new Scheduler() {
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        });
+    }
+
+    public GattOperationQueue(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        for (Type type : Type.values()) {
+            stats.put(type, new OpStats());
+        }
+    }
+
+    /**
+     * 加入一个操作，队列空闲时立即发起
+     *
+     * @param timeoutMs  等待回调的超时
+     * @param maxRetries 失败后的最大重试次数
+     * @param completion 可以为 null
+     */
+    public void enqueue(Type type, long timeoutMs, int maxRetries, Operation operation, Completion completion) {
+        queue.add(new Pending(type, timeoutMs, maxRetries, operation, completion));
+        if (current == null) {
+            next();
+        }
+    }
+
+    /**
+     * GATT 回调到达，结束当前操作；类型不匹配的回调（如对端发起的 PHY 更新、已清空的操作）被忽略
+     * 超时后等待重试期间迟到的成功回调直接结束操作并取消重试，迟到的失败回调被忽略（已经在等待重试）
+     */
+    public void complete(Type type, int status) {
+        if (current == null || current.type != type) {
+            return;
+        }
+        if (retryPending) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                return;
+            }
+            scheduler.removeCallbacks(retryTask);
+            retryPending = false;
+        }
+        scheduler.removeCallbacks(timeoutTask);
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            finish(true, status);
+        } else {
+            retryOrFail(status);
+        }
+    }
+
+    /**
+     * 清空队列（如断开连接时），未完成的操作不再回调
+     */
+    public void clear() {
+        scheduler.removeCallbacks(timeoutTask);
+        scheduler.removeCallbacks(retryTask);
+        retryPending = false;
+        queue.clear();
+        current = null;
+    }
+
+    /**
+     * 是否有正在执行的操作
+     */
+    public boolean isBusy() {
+        return current != null;
+    }
+
+    public int size() {
+        return queue.size() + (current != null ? 1 : 0);
+    }
+
+    public OpStats getStats(Type type) {
+        return stats.get(type);
+    }
+
+    private void next() {
+        current = queue.poll();
+        if (current != null) {
+            startCurrent();
+        }
+    }
+
+    private void startCurrent() {
+        Pending op = current;
+        if (op == null) {
+            return;
+        }
+        if (op.attempts == 0) {
+            op.firstStartNanos = System.nanoTime();
+        }
+        op.attempts++;
+        boolean started;
+        try {
+            started = op.operation.start();
+        } catch (SecurityException e) {
+            Log.e(TAG, "缺少蓝牙权限: " + op.type, e);
+            started = false;
+        }
+        if (current != op) {
+            return;  // 发起操作时队列被清空
+        }
+        if (!started) {
+            retryOrFail(STATUS_NOT_STARTED);
+        } else if (!op.type.hasCallback) {
+            finish(true, BluetoothGatt.GATT_SUCCESS);
+        } else {
+            scheduler.postDelayed(timeoutTask, op.timeoutMs);
+        }
+    }
+
+    private void retry() {
+        retryPending = false;
+        startCurrent();
+    }
+
+    private void onTimeout() {
+        if (current == null || retryPending) {
+            return;
+        }
+        stats.get(current.type).timeouts++;
+        Log.w(TAG, "GATT操作超时: " + current.type);
+        retryOrFail(STATUS_TIMEOUT);
+    }
+
+    private void retryOrFail(int status) {
+        Pending op = current;
+        if (op.attempts <= op.maxRetries) {
+            stats.get(op.type).retries++;
+            Log.w(TAG, "GATT操作失败，重试: " + op.type + " status=" + status);
+            retryPending = true;
+            scheduler.postDelayed(retryTask, RETRY_DELAY_MS);
+        } else {
+            Log.e(TAG, "GATT操作失败: " + op.type + " status=" + status);
+            finish(false, status);
+        }
+    }
+
+    private void finish(boolean success, int status) {
+        Pending op = current;
+        stats.get(op.type).record(System.nanoTime() - op.firstStartNanos, success);
+        current = null;
+        if (op.completion != null) {
+            op.completion.onComplete(success, status);
+        }
+        // 回调中可能已经加入或清空了操作
+        if (current == null) {
+            next();
+        }
+    }
+}
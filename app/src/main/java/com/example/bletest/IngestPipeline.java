@@ -0,0 +1,381 @@
+package com.example.bletest;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分级接收流水线：接收 → 重组/解析 → 分发
+ * <ul>
+ *   <li>接收：GATT 回调线程调用 {@link #offer(byte[], int, int)}，只把数据包拷贝进无锁队列后立即返回；</li>
+ *   <li>重组/解析：解析线程从数据包队列取出数据，用 {@link FrameReassembler} 就地拼接和解析，
+ *       解析结果写入无锁样本队列（重组和解析在同一个缓冲区上完成，放在同一级避免再拷贝一次）；</li>
+ *   <li>分发：分发线程取出样本，调用监听器的 onFrame（保存、刷新界面、分析等）。</li>
+ * </ul>
+ * 各级之间是单生产者单消费者的无锁队列，不同级互不阻塞。消费者空闲时 park，
+ * 生产者发布后按需 unpark；发布使用 lazySet，极少数情况下会错过唤醒，最多延迟 {@link #PARK_NANOS}。
+ * 数据包队列满时丢弃新数据包并计数，GATT 回调线程永远不会等待；样本队列满时解析线程等待分发线程。
+ * {@link #flush(Runnable)} 的回调在结束标记之前的样本全部分发后，在分发线程上调用。
+ */
+public final class IngestPipeline {
+
+    private static final int DEFAULT_PACKET_SLOTS = 1024;
+    private static final int PACKET_SLOT_SIZE = 512;  // 大于 MTU 247 对应的最大通知长度
+    private static final int DEFAULT_SAMPLE_CAPACITY = 8192;
+    private static final long PARK_NANOS = 1_000_000L;
+
+    // 没有回调的结束标记
+    private static final Runnable NO_CALLBACK = () -> { };
+
+    /**
+     * 单级的延迟统计，只由一个线程写入
+     */
+    public static final class StageStats {
+        private volatile long count;
+        private volatile long lastNanos;
+        private volatile long maxNanos;
+        private volatile long totalNanos;
+
+        void record(long nanos) {
+            lastNanos = nanos;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getAverageNanos() {
+            long n = count;
+            return n == 0 ? 0 : totalNanos / n;
+        }
+    }
+
+    private final FrameReassembler.FrameListener listener;
+    private final SpscPacketQueue packets;
+    private final SpscSampleQueue samples;
+    private final FrameReassembler reassembler;
+    private final Thread parseThread;
+    private final Thread dispatchThread;
+
+    // GATT 回调可能来自不同的 binder 线程（多设备时可能并发），用一个几乎不会竞争的锁保证单生产者
+    private final Object producerLock = new Object();
+
+    private volatile boolean running = true;
+    private volatile boolean parseWaiting;
+    private volatile boolean dispatchWaiting;
+
+    // 只在解析线程使用：当前数据包的接收时间
+    private long currentPacketNanos;
+    // 只在解析线程使用：已写入样本队列的样本数
+    private long publishedSamples;
+    // 只在分发线程使用：已分发的样本数
+    private long dispatchedSamples;
+
+    // 结束标记的回调，按标记入队的顺序排列（生产者入队，解析线程取出）
+    private final ConcurrentLinkedDeque<Runnable> flushCallbacks = new ConcurrentLinkedDeque<>();
+    // 解析线程处理完结束标记后登记的回调和此前写入的样本数（解析线程入队，分发线程取出）
+    private final ConcurrentLinkedQueue<FlushPoint> flushPoints = new ConcurrentLinkedQueue<>();
+    // 只在分发线程使用：等待样本分发完的回调
+    private final ArrayDeque<FlushPoint> pendingFlushes = new ArrayDeque<>();
+
+    private static final class FlushPoint {
+        final long samples;
+        final Runnable callback;
+
+        FlushPoint(long samples, Runnable callback) {
+            this.samples = samples;
+            this.callback = callback;
+        }
+    }
+
+    // 统计
+    private final StageStats receiveStats = new StageStats();
+    private final StageStats parseStats = new StageStats();
+    private final StageStats dispatchStats = new StageStats();
+    private final LinkQualityMonitor linkQuality = new LinkQualityMonitor();
+    private volatile long droppedPackets;
+    private volatile int maxPacketQueueDepth;
+    private volatile int maxSampleQueueDepth;
+
+    public IngestPipeline(String name, FrameReassembler.FrameListener listener) {
+        this(name, listener, DEFAULT_PACKET_SLOTS, DEFAULT_SAMPLE_CAPACITY);
+    }
+
+    /**
+     * @param name           线程名后缀
+     * @param listener       onFrame 在分发线程上调用；onNumberError/onInvalidNumber 在解析线程上调用
+     * @param packetSlots    数据包队列的槽位数
+     * @param sampleCapacity 样本队列容量
+     */
+    public IngestPipeline(String name, FrameReassembler.FrameListener listener, int packetSlots, int sampleCapacity) {
+        this.listener = listener;
+        this.packets = new SpscPacketQueue(packetSlots, PACKET_SLOT_SIZE);
+        this.samples = new SpscSampleQueue(sampleCapacity);
+        this.reassembler = new FrameReassembler(new FrameReassembler.FrameListener() {
+            @Override
+            public void onFrame(SensorData data) {
+                publishSample(data);
+            }
+
+            @Override
+            public void onNumberError(byte[] buf, int from, int to) {
+                IngestPipeline.this.listener.onNumberError(buf, from, to);
+            }
+
+            @Override
+            public void onInvalidNumber(byte[] buf, int from, int to) {
+                IngestPipeline.this.listener.onInvalidNumber(buf, from, to);
+            }
+        });
+
+        this.parseThread = new Thread(this::parseLoop, "IngestParse-" + name);
+        this.parseThread.setDaemon(true);
+        this.dispatchThread = new Thread(this::dispatchLoop, "IngestDispatch-" + name);
+        this.dispatchThread.setDaemon(true);
+        this.parseThread.start();
+        this.dispatchThread.start();
+    }
+
+    /**
+     * 接收一个通知包，在 GATT 回调线程调用，只做一次拷贝
+     *
+     * @return 队列已满或流水线已停止时返回 false（数据包被丢弃）
+     */
+    public boolean offer(byte[] buf, int off, int len) {
+        long start = System.nanoTime();
+        boolean accepted;
+        synchronized (producerLock) {
+            accepted = running && packets.offer(buf, off, len, start);
+            if (accepted) {
+                int depth = packets.size();
+                if (depth > maxPacketQueueDepth) {
+                    maxPacketQueueDepth = depth;
+                }
+                receiveStats.record(System.nanoTime() - start);
+            } else {
+                droppedPackets++;
+            }
+        }
+        if (accepted && parseWaiting) {
+            LockSupport.unpark(parseThread);
+        }
+        return accepted;
+    }
+
+    /**
+     * 在数据流中插入结束标记，解析线程处理到这里时解析暂存的最后半行（如断开连接时）
+     */
+    public void flush() {
+        flush(null);
+    }
+
+    /**
+     * 在数据流中插入结束标记，解析线程处理到这里时解析暂存的最后半行
+     *
+     * @param onFlushed 标记之前的样本全部分发后在分发线程上调用（如断开连接后关闭合并源）；
+     *                  流水线已停止或队列已满、标记无法入队时，在调用线程上立即调用
+     */
+    public void flush(Runnable onFlushed) {
+        Runnable callback = onFlushed != null ? onFlushed : NO_CALLBACK;
+        boolean accepted;
+        synchronized (producerLock) {
+            // 先登记回调再发布标记，解析线程看到标记时回调一定已在队列中
+            flushCallbacks.offerLast(callback);
+            accepted = running && packets.offerMarker(System.nanoTime());
+            if (!accepted) {
+                flushCallbacks.removeLastOccurrence(callback);
+            }
+        }
+        if (accepted) {
+            if (parseWaiting) {
+                LockSupport.unpark(parseThread);
+            }
+        } else if (onFlushed != null) {
+            onFlushed.run();
+        }
+    }
+
+    /**
+     * 停止接收；已入队的数据包和样本会继续处理完
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(parseThread);
+        LockSupport.unpark(dispatchThread);
+    }
+
+    /**
+     * 等待两个线程处理完剩余数据并退出
+     *
+     * @return 超时前退出时返回 true
+     */
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        parseThread.join(Math.max(1, timeoutMs));
+        dispatchThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        return !parseThread.isAlive() && !dispatchThread.isAlive();
+    }
+
+    /**
+     * 接收级：GATT 回调中入队的耗时
+     */
+    public StageStats getReceiveStats() {
+        return receiveStats;
+    }
+
+    /**
+     * 解析级：从数据包入队到解析完成的延迟
+     */
+    public StageStats getParseStats() {
+        return parseStats;
+    }
+
+    /**
+     * 分发级：从数据包入队到样本分发完成的端到端延迟
+     */
+    public StageStats getDispatchStats() {
+        return dispatchStats;
+    }
+
+    public int getPacketQueueDepth() {
+        return packets.size();
+    }
+
+    public int getMaxPacketQueueDepth() {
+        return maxPacketQueueDepth;
+    }
+
+    public int getSampleQueueDepth() {
+        return samples.size();
+    }
+
+    public int getMaxSampleQueueDepth() {
+        return maxSampleQueueDepth;
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    public long getDeliveredFrameCount() {
+        return reassembler.getDeliveredFrames();
+    }
+
+    public long getRecoveredFrameCount() {
+        return reassembler.getRecoveredFrames();
+    }
+
+    public long getCarriedOverBytes() {
+        return reassembler.getCarriedOverBytes();
+    }
+
+    /**
+     * 按样本序号和到达时间统计的丢失、抖动和时钟漂移
+     */
+    public LinkQualityMonitor getLinkQuality() {
+        return linkQuality;
+    }
+
+    private void parseLoop() {
+        byte[] data = packets.data();
+        int slotSize = packets.slotSize();
+        while (true) {
+            int slot = packets.peek();
+            if (slot < 0) {
+                if (!running) {
+                    break;
+                }
+                parseWaiting = true;
+                if (packets.peek() < 0 && running) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                parseWaiting = false;
+                continue;
+            }
+            currentPacketNanos = packets.enqueueNanos(slot);
+            int length = packets.length(slot);
+            if (length == SpscPacketQueue.FLUSH_MARKER) {
+                reassembler.flush();
+                Runnable callback = flushCallbacks.poll();
+                if (callback != null && callback != NO_CALLBACK) {
+                    flushPoints.offer(new FlushPoint(publishedSamples, callback));
+                    if (dispatchWaiting) {
+                        LockSupport.unpark(dispatchThread);
+                    }
+                }
+            } else {
+                reassembler.feed(data, slot * slotSize, length);
+            }
+            packets.release();
+            parseStats.record(System.nanoTime() - currentPacketNanos);
+        }
+        LockSupport.unpark(dispatchThread);
+    }
+
+    // 解析线程：把样本交给分发线程，队列满时等待
+    private void publishSample(SensorData data) {
+        while (!samples.offer(data, currentPacketNanos)) {
+            LockSupport.unpark(dispatchThread);
+            LockSupport.parkNanos(this, PARK_NANOS / 20);
+        }
+        publishedSamples++;
+        int depth = samples.size();
+        if (depth > maxSampleQueueDepth) {
+            maxSampleQueueDepth = depth;
+        }
+        if (dispatchWaiting) {
+            LockSupport.unpark(dispatchThread);
+        }
+    }
+
+    private void dispatchLoop() {
+        SensorData sample = new SensorData(0, 0, 0, 0, 0, 0);
+        while (true) {
+            runFlushCallbacks();
+            if (!samples.poll(sample)) {
+                if (!parseThread.isAlive()) {
+                    if (!samples.poll(sample)) {
+                        runFlushCallbacks();
+                        break;  // 解析线程已退出且样本已全部分发
+                    }
+                } else {
+                    dispatchWaiting = true;
+                    if (samples.size() == 0 && flushPoints.isEmpty()) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    dispatchWaiting = false;
+                    continue;
+                }
+            }
+            linkQuality.record(sample.index, sample.timestamp, samples.polledNanos());
+            listener.onFrame(sample);
+            dispatchedSamples++;
+            dispatchStats.record(System.nanoTime() - samples.polledNanos());
+        }
+    }
+
+    // 分发线程：调用标记之前的样本已全部分发的回调
+    private void runFlushCallbacks() {
+        FlushPoint point;
+        while ((point = flushPoints.poll()) != null) {
+            pendingFlushes.add(point);
+        }
+        while (!pendingFlushes.isEmpty() && pendingFlushes.peek().samples <= dispatchedSamples) {
+            pendingFlushes.poll().callback.run();
+        }
+    }
+}
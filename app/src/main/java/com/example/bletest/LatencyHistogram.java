@@ -0,0 +1,131 @@
+package com.example.bletest;
+
+import java.util.Arrays;
+
+/**
+ * 对数-线性分桶的直方图（HdrHistogram 的简化版），用于记录时间间隔
+ * 小于 2^SUB_BITS 的值每个值一个桶；更大的值每个 2 的幂区间分成 2^(SUB_BITS-1) 个等宽的桶，
+ * 相对误差不超过 1/2^(SUB_BITS-1)（约 3%）。桶数组在构造时分配，记录时不创建对象。
+ * 不是线程安全的。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long maxValue;
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * @param maxValue 可记录的最大值，更大的值按最大值记录
+     */
+    public LatencyHistogram(long maxValue) {
+        this.maxValue = Math.max(SUB_COUNT, maxValue);
+        this.counts = new long[indexOf(this.maxValue) + 1];
+    }
+
+    /**
+     * 记录一个值，负数按 0 记录
+     */
+    public void record(long value) {
+        long v = Math.min(Math.max(value, 0), maxValue);
+        counts[indexOf(v)]++;
+        totalCount++;
+        sum += v;
+        if (v < min) {
+            min = v;
+        }
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * 百分位数，返回所在桶内的最大值（不超过记录过的最大值）
+     *
+     * @param percentile 0 到 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 把 other 的计数加到本直方图（两者的最大值必须相同）
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * 复制到 into，用于在另一个线程上读取快照（两者的最大值必须相同）
+     */
+    public void copyInto(LatencyHistogram into) {
+        System.arraycopy(counts, 0, into.counts, 0, counts.length);
+        into.totalCount = totalCount;
+        into.sum = sum;
+        into.min = min;
+        into.max = max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+        return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >> (SUB_BITS - 1)) - 1;
+        long mantissa = index - ((long) shift << (SUB_BITS - 1));
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
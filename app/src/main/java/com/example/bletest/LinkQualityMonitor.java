@@ -0,0 +1,243 @@
+package com.example.bletest;
+
+/**
+ * 链路质量监测
+ * 根据每个样本的序号（index）、设备时间戳和到达手机的时间统计：
+ * <ul>
+ *   <li>序号：丢失（跳号）、重复、乱序（晚到的跳号样本，从丢失中扣除）、设备重启（序号大幅回退）；</li>
+ *   <li>通知包到达间隔的直方图；</li>
+ *   <li>到达抖动直方图：相邻样本的 |到达间隔 - 设备时间间隔|（RFC 3550 的传输时间差）；</li>
+ *   <li>设备时钟相对手机时钟的漂移：设备时间对手机时间做在线线性回归，斜率偏离 1 的部分（ppm）。</li>
+ * </ul>
+ * {@link #record} 在接收流水线的分发线程上调用，不创建对象；{@link #snapshot} 可以在任意线程调用。
+ */
+public final class LinkQualityMonitor {
+
+    // 判断重复和乱序的序号窗口
+    private static final int WINDOW = 1024;
+    private static final int WINDOW_MASK = WINDOW - 1;
+
+    // 直方图单位为微秒，最大记录 60 秒
+    private static final long MAX_MICROS = 60_000_000L;
+
+    // 漂移估计至少需要的样本数和时间跨度
+    private static final int DRIFT_MIN_SAMPLES = 100;
+    private static final double DRIFT_MIN_SPAN_NANOS = 10e9;
+
+    /**
+     * 统计快照，由调用方持有并复用
+     */
+    public static final class Snapshot {
+        public long received;
+        public long lost;
+        public long duplicates;
+        public long reordered;
+        public long restarts;
+        public double lossRate;
+
+        // 通知包到达间隔（微秒）
+        public long intervalP50Micros;
+        public long intervalP99Micros;
+        public long intervalMaxMicros;
+        public double intervalMeanMicros;
+
+        // 到达抖动（微秒）
+        public long jitterP50Micros;
+        public long jitterP90Micros;
+        public long jitterP99Micros;
+        public long jitterMaxMicros;
+
+        // 设备时钟漂移，正数表示设备时钟比手机快；样本不足时 driftValid 为 false
+        public boolean driftValid;
+        public double clockDriftPpm;
+    }
+
+    private double nanosPerTick = 1_000_000.0;
+
+    // ---- 序号 ----
+    private final long[] seen = new long[WINDOW / 64];
+    private boolean hasHighest;
+    // 开始统计（或设备重启后重新开始）时的第一个序号，更早的序号从未计入丢失
+    private long firstIndex;
+    private long highestIndex;
+    private long received;
+    private long lost;
+    private long duplicates;
+    private long reordered;
+    private long restarts;
+
+    // ---- 到达时间 ----
+    private final LatencyHistogram intervals = new LatencyHistogram(MAX_MICROS);
+    private final LatencyHistogram jitter = new LatencyHistogram(MAX_MICROS);
+    private boolean hasPrevious;
+    private long previousArrivalNanos;
+    private long previousPacketNanos;
+    private double previousDeviceNanos;
+
+    // ---- 时钟漂移：以第一个样本为原点，x = 手机时间，y = 设备时间 ----
+    private boolean hasOrigin;
+    private long originArrivalNanos;
+    private long originTimestamp;
+    private long driftCount;
+    private double meanX;
+    private double meanY;
+    private double m2x;
+    private double cxy;
+    private double driftSpanNanos;
+
+    /**
+     * 设置设备时间戳的单位（默认 1 毫秒），用于计算抖动和漂移
+     */
+    public synchronized void setMillisPerTick(double millisPerTick) {
+        this.nanosPerTick = millisPerTick * 1_000_000.0;
+        resetClock();
+    }
+
+    /**
+     * 记录一个样本
+     *
+     * @param arrivalNanos 样本所在通知包到达手机的时间（System.nanoTime）
+     */
+    public synchronized void record(int index, long timestamp, long arrivalNanos) {
+        received++;
+        if (!hasHighest) {
+            hasHighest = true;
+            firstIndex = index;
+            highestIndex = index;
+            markSeen(index);
+        } else {
+            long delta = index - highestIndex;
+            if (delta > 0) {
+                if (delta > 1) {
+                    lost += delta - 1;
+                }
+                clearSeen(highestIndex + 1, Math.min(delta, WINDOW));
+                markSeen(index);
+                highestIndex = index;
+            } else if (delta <= -WINDOW) {
+                // 序号大幅回退：设备重启或序号回绕，重新开始统计
+                restarts++;
+                clearSeen(index, WINDOW);
+                markSeen(index);
+                firstIndex = index;
+                highestIndex = index;
+                resetClock();
+            } else if (isSeen(index)) {
+                duplicates++;
+                return;
+            } else {
+                // 晚到的样本；只有在第一个序号之后的才曾按丢失计数，更早的序号不从丢失中扣除
+                reordered++;
+                if (index > firstIndex) {
+                    lost--;
+                }
+                markSeen(index);
+                return;
+            }
+        }
+        recordTiming(timestamp, arrivalNanos);
+    }
+
+    /**
+     * 把当前统计写入 into
+     */
+    public synchronized Snapshot snapshot(Snapshot into) {
+        into.received = received;
+        into.lost = lost;
+        into.duplicates = duplicates;
+        into.reordered = reordered;
+        into.restarts = restarts;
+        long expected = received - duplicates + lost;
+        into.lossRate = expected == 0 ? 0 : (double) lost / expected;
+
+        into.intervalP50Micros = intervals.getValueAtPercentile(50);
+        into.intervalP99Micros = intervals.getValueAtPercentile(99);
+        into.intervalMaxMicros = intervals.getMax();
+        into.intervalMeanMicros = intervals.getMean();
+
+        into.jitterP50Micros = jitter.getValueAtPercentile(50);
+        into.jitterP90Micros = jitter.getValueAtPercentile(90);
+        into.jitterP99Micros = jitter.getValueAtPercentile(99);
+        into.jitterMaxMicros = jitter.getMax();
+
+        into.driftValid = driftCount >= DRIFT_MIN_SAMPLES && driftSpanNanos >= DRIFT_MIN_SPAN_NANOS;
+        into.clockDriftPpm = into.driftValid ? (cxy / m2x - 1) * 1e6 : 0;
+        return into;
+    }
+
+    /**
+     * 清空所有统计（如重新连接时）
+     */
+    public synchronized void reset() {
+        hasHighest = false;
+        received = 0;
+        lost = 0;
+        duplicates = 0;
+        reordered = 0;
+        restarts = 0;
+        intervals.reset();
+        jitter.reset();
+        resetClock();
+    }
+
+    private void recordTiming(long timestamp, long arrivalNanos) {
+        double deviceNanos = timestamp * nanosPerTick;
+        if (hasPrevious) {
+            // 同一个通知包中的样本到达时间相同，只在包之间记录到达间隔
+            if (arrivalNanos != previousPacketNanos) {
+                intervals.record((arrivalNanos - previousPacketNanos) / 1000);
+                previousPacketNanos = arrivalNanos;
+            }
+            double transitDelta = (arrivalNanos - previousArrivalNanos) - (deviceNanos - previousDeviceNanos);
+            jitter.record((long) (Math.abs(transitDelta) / 1000));
+        } else {
+            previousPacketNanos = arrivalNanos;
+        }
+        hasPrevious = true;
+        previousArrivalNanos = arrivalNanos;
+        previousDeviceNanos = deviceNanos;
+
+        if (!hasOrigin) {
+            hasOrigin = true;
+            originArrivalNanos = arrivalNanos;
+            originTimestamp = timestamp;
+        }
+        double x = arrivalNanos - originArrivalNanos;
+        driftSpanNanos = Math.max(driftSpanNanos, x);
+        double y = (timestamp - originTimestamp) * nanosPerTick;
+        driftCount++;
+        double dx = x - meanX;
+        meanX += dx / driftCount;
+        meanY += (y - meanY) / driftCount;
+        m2x += dx * (x - meanX);
+        cxy += dx * (y - meanY);
+    }
+
+    private void resetClock() {
+        hasPrevious = false;
+        hasOrigin = false;
+        driftCount = 0;
+        meanX = 0;
+        meanY = 0;
+        m2x = 0;
+        cxy = 0;
+        driftSpanNanos = 0;
+    }
+
+    private boolean isSeen(long index) {
+        int slot = (int) index & WINDOW_MASK;
+        return (seen[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void markSeen(long index) {
+        int slot = (int) index & WINDOW_MASK;
+        seen[slot >>> 6] |= 1L << slot;
+    }
+
+    private void clearSeen(long from, long count) {
+        for (long i = 0; i < count; i++) {
+            int slot = (int) (from + i) & WINDOW_MASK;
+            seen[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.bletest;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.view.ViewParent;
+
+/**
+ * 实时曲线
+ * 从 {@link MultiResolutionStore} 读取最近 spanSamples 个样本的 x/y/z，按缩放级别自动选择存储层，
+ * 每列画一条 最小值-最大值 的竖线并用均值连线，绘制耗时只与控件宽度有关。
+ * 双指缩放改变显示的样本数，纵轴按可见数据自动缩放。绘制用的数组在尺寸变化时分配，onDraw 中不创建对象。
+ * 调用 {@link #invalidate()} 刷新（由 RenderScheduler 每个显示帧最多触发一次）。
+ */
+public class LiveChartView extends View {
+
+    private static final int[] CHANNELS = {
+            MultiResolutionStore.CHANNEL_X, MultiResolutionStore.CHANNEL_Y, MultiResolutionStore.CHANNEL_Z};
+    private static final int[] COLORS = {0xFFE53935, 0xFF43A047, 0xFF1E88E5};
+    private static final String[] LABELS = {"X", "Y", "Z"};
+
+    private static final long MIN_SPAN_SAMPLES = 20;
+    private static final long DEFAULT_SPAN_SAMPLES = 2000;
+    // 每列的像素宽度
+    private static final int PIXELS_PER_COLUMN = 2;
+
+    private MultiResolutionStore store;
+    private long spanSamples = DEFAULT_SPAN_SAMPLES;
+
+    private final Paint[] linePaints = new Paint[CHANNELS.length];
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint axisPaint = new Paint();
+    private final ScaleGestureDetector scaleDetector;
+    private final StringBuilder label = new StringBuilder();
+
+    // 按列数分配：每个通道的最小/最大/均值，以及 drawLines 用的坐标（每列两条线段）
+    private int columns;
+    private float[][] mins = new float[CHANNELS.length][0];
+    private float[][] maxs = new float[CHANNELS.length][0];
+    private float[][] means = new float[CHANNELS.length][0];
+    private final int[] counts = new int[CHANNELS.length];
+    private float[] points = new float[0];
+
+    public LiveChartView(Context context) {
+        this(context, null);
+    }
+
+    public LiveChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        for (int i = 0; i < CHANNELS.length; i++) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(COLORS[i]);
+            paint.setStrokeWidth(density);
+            paint.setTextSize(11 * density);
+            linePaints[i] = paint;
+        }
+        textPaint.setColor(0xFF424242);
+        textPaint.setTextSize(11 * density);
+        axisPaint.setColor(0xFFBDBDBD);
+        axisPaint.setStrokeWidth(density);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                // 两指分开放大（显示更少的样本）
+                setSpanSamples(Math.round(spanSamples / detector.getScaleFactor()));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 设置数据来源，在主线程调用
+     */
+    public void setStore(MultiResolutionStore store) {
+        this.store = store;
+        invalidate();
+    }
+
+    /**
+     * 设置显示最近多少个样本，限制在 [MIN_SPAN_SAMPLES, 最粗一层能覆盖的样本数] 内
+     */
+    public void setSpanSamples(long spanSamples) {
+        long max = store != null ? store.getMaxSpanSamples() : Long.MAX_VALUE;
+        this.spanSamples = Math.max(MIN_SPAN_SAMPLES, Math.min(max, spanSamples));
+        invalidate();
+    }
+
+    public long getSpanSamples() {
+        return spanSamples;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        columns = Math.max(1, w / PIXELS_PER_COLUMN);
+        for (int i = 0; i < CHANNELS.length; i++) {
+            mins[i] = new float[columns];
+            maxs[i] = new float[columns];
+            means[i] = new float[columns];
+        }
+        points = new float[columns * 8];
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        scaleDetector.onTouchEvent(event);
+        // 图表在 ScrollView 中，双指缩放期间不让父视图拦截纵向移动
+        ViewParent parent = getParent();
+        if (parent != null) {
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                parent.requestDisallowInterceptTouchEvent(false);
+            } else if (scaleDetector.isInProgress() || event.getPointerCount() > 1) {
+                parent.requestDisallowInterceptTouchEvent(true);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        if (store == null || columns == 0 || width == 0 || height == 0) {
+            return;
+        }
+
+        float lo = Float.POSITIVE_INFINITY;
+        float hi = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < CHANNELS.length; i++) {
+            int n = store.queryLatest(CHANNELS[i], spanSamples, columns, mins[i], maxs[i], means[i]);
+            counts[i] = n;
+            for (int col = 0; col < n; col++) {
+                lo = Math.min(lo, mins[i][col]);
+                hi = Math.max(hi, maxs[i][col]);
+            }
+        }
+        int tier = store.chooseTier(spanSamples, columns);
+        label.setLength(0);
+        label.append(spanSamples).append(" 样本  层 ").append(tier)
+                .append(" (").append(store.getSamplesPerEntry(tier)).append("x)");
+        float textHeight = textPaint.getTextSize();
+        canvas.drawText(label, 0, label.length(), 0, textHeight, textPaint);
+        if (lo > hi) {
+            return;  // 没有数据
+        }
+        if (hi - lo < 1e-6f) {
+            lo -= 0.5f;
+            hi += 0.5f;
+        }
+
+        float top = textHeight * 1.5f;
+        float plotHeight = height - top;
+        float scale = plotHeight / (hi - lo);
+        if (lo < 0 && hi > 0) {
+            float zeroY = top + hi * scale;
+            canvas.drawLine(0, zeroY, width, zeroY, axisPaint);
+        }
+
+        for (int i = 0; i < CHANNELS.length; i++) {
+            int n = counts[i];
+            if (n == 0) {
+                continue;
+            }
+            float step = (float) width / n;
+            int p = 0;
+            for (int col = 0; col < n; col++) {
+                float x = (col + 0.5f) * step;
+                // 竖线：该列的最小值到最大值
+                points[p++] = x;
+                points[p++] = top + (hi - maxs[i][col]) * scale;
+                points[p++] = x;
+                points[p++] = top + (hi - mins[i][col]) * scale;
+                // 与上一列的均值连线
+                if (col > 0) {
+                    points[p++] = x - step;
+                    points[p++] = top + (hi - means[i][col - 1]) * scale;
+                    points[p++] = x;
+                    points[p++] = top + (hi - means[i][col]) * scale;
+                }
+            }
+            canvas.drawLines(points, 0, p, linePaints[i]);
+            canvas.drawText(LABELS[i], width - textHeight * (CHANNELS.length - i) * 1.2f, textHeight,
+                    linePaints[i]);
+        }
+    }
+}
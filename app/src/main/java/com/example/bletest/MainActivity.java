@@ -1,12 +1,18 @@
 package com.example.bletest;
 
 import android.os.Bundle;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -14,7 +20,8 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
 
     // 定义界面上的按钮和文本视图
     private Button btnScan, btnConnect, btnDisconnect, btnPermissions, btnReadData, btnSendTest, btnClearData, btnSaveData;
-    private TextView tvStatus, tvData, tvDeviceName, tvPermissionStatus, tvServiceInfo, tvParsedData;
+    private TextView tvStatus, tvData, tvDeviceName, tvPermissionStatus, tvServiceInfo, tvParsedData, tvLinkQuality;
+    private LiveChartView liveChart;
 
     // 创建ExecutorService来管理后台线程
     private ExecutorService executorService;
@@ -23,11 +30,35 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
     private BLEManager bleManager;
     private PermissionManager permissionManager;
     private DataParser dataParser;
+    // 每个显示帧最多刷新一次解析数据，避免每个通知都向主线程投递任务
+    private RenderScheduler renderScheduler;
+
+    // 链路质量每 LINK_QUALITY_REFRESH_MS 刷新一次，快照对象复用
+    private static final long LINK_QUALITY_REFRESH_MS = 500;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final LinkQualityMonitor.Snapshot linkSnapshot = new LinkQualityMonitor.Snapshot();
+    private final EventDetector.Metrics detectorMetrics = new EventDetector.Metrics();
+
+    // 事件检测：短时/长时能量比超过 EVENT_ON_RATIO 连续 3 个样本时事件开始，低于 EVENT_OFF_RATIO 连续 20 个样本时结束
+    private static final double EVENT_ON_RATIO = 6;
+    private static final double EVENT_OFF_RATIO = 2;
+    private EventDetector eventDetector;
+    private final Runnable linkQualityRefresh = new Runnable() {
+        @Override
+        public void run() {
+            updateLinkQuality();
+            uiHandler.postDelayed(this, LINK_QUALITY_REFRESH_MS);
+        }
+    };
+
+    // 事件日志：最多保存 LOG_CAPACITY 条，界面只显示最后 LOG_VISIBLE_LINES 条，长按日志区域导出全部
+    private static final int LOG_CAPACITY = 2000;
+    private static final int LOG_VISIBLE_LINES = 50;
+    private final EventLog eventLog = new EventLog(LOG_CAPACITY);
+    private final StringBuilder logText = new StringBuilder();
 
     // 设备连接状态和数据保存状态标志
     private boolean isConnected = false;
-    private long saveStartTime; // 记录开始保存的时间戳
-    private boolean isSavingData = false; // 标记是否正在保存数据
 
     // 初始化视图组件
     private void initViews() {
@@ -45,6 +76,8 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
         tvPermissionStatus = findViewById(R.id.tv_permission_status);
         tvServiceInfo = findViewById(R.id.tv_service_info);
         tvParsedData = findViewById(R.id.tv_parsed_data);
+        tvLinkQuality = findViewById(R.id.tv_link_quality);
+        liveChart = findViewById(R.id.live_chart);
     }
 
     @Override
@@ -72,16 +105,43 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
         dataParser = new DataParser(this.tvParsedData, new DataParser.DataDisplayCallback() {
             @Override
             public void onDataParsed(SensorData data) {
-                if (dataParser.isSavingNoiseData()) {
-                    dataParser.setSavingNoiseData(true);
-                }
+                // 在接收流水线的分发线程上调用，与保存逻辑在同一线程
+                renderScheduler.requestFrame();
             }
 
             @Override
             public void onParseError(String rawData, String errorMessage) {
                 // 处理解析错误
             }
+
+            @Override
+            public void onPositiveCaptured(File file, int sampleCount, boolean truncated) {
+                String message = "正样本已保存 " + sampleCount + " 条" + (truncated ? "（不完整）" : "");
+                Log.d("SaveData", message + ": " + file.getAbsolutePath());
+                runOnUiThread(() -> {
+                    tvStatus.setText(message);
+                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+        renderScheduler = new RenderScheduler(dataParser.getSampleRing(), this::updateDisplay);
+        liveChart.setStore(dataParser.getHistory());
+        uiHandler.post(linkQualityRefresh);
+
+        eventDetector = new EventDetector(new EventDetector.EnergyRatioScorer(0.2, 0.005, 1e-4),
+                EVENT_ON_RATIO, EVENT_OFF_RATIO, 3, 20, new EventDetector.Listener() {
+            @Override
+            public void onEventStart(long onsetTimestamp, long confirmTimestamp, double score) {
+                addLogMessage(String.format("检测到事件: 时间戳 %d，分数 %.1f", onsetTimestamp, score));
+            }
+
+            @Override
+            public void onEventEnd(long startTimestamp, long endTimestamp, double peakScore) {
+                addLogMessage(String.format("事件结束: 持续 %d，峰值分数 %.1f", endTimestamp - startTimestamp, peakScore));
+            }
         });
+        // 默认只检测和记录，长按保存按钮开启自动采集正样本
+        dataParser.setEventDetector(eventDetector, false);
     }
 
     // 设置按钮点击事件监听器
@@ -104,29 +164,37 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
         btnDisconnect.setOnClickListener(v -> bleManager.disconnectDevice());
         btnPermissions.setOnClickListener(v -> permissionManager.requestBluetoothPermissions());
         btnClearData.setOnClickListener(v -> clearAllData());
-        btnSaveData.setOnClickListener(v -> saveDataForTwoSeconds());
+        btnSaveData.setOnClickListener(v -> capturePositiveSample());
+        btnSaveData.setOnLongClickListener(v -> {
+            boolean enabled = !dataParser.isAutoCapture();
+            dataParser.setAutoCapture(enabled);
+            Toast.makeText(this, enabled ? "已开启自动采集正样本" : "已关闭自动采集正样本", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+        tvData.setOnLongClickListener(v -> {
+            exportEventLog();
+            return true;
+        });
     }
 
     // 清空数据
     private void clearAllData() {
         dataParser.clearData();
+        eventLog.clear();
+        dataParser.getIngestPipeline().getLinkQuality().reset();
         tvData.setText("原始数据日志: 已清空");
         tvParsedData.setText("解析的传感器数据: 已清空");
         Toast.makeText(this, "数据已清空", Toast.LENGTH_SHORT).show();
     }
 
-    // 将保存数据的操作移到后台线程
-    private void saveDataForTwoSeconds() {
-        // 停止噪声数据，开始正样本数据保存
-        dataParser.setSavingNoiseData(false);
-        dataParser.setSavingData(true);
-        isSavingData = true; // 标记为正在保存
-        saveStartTime = System.currentTimeMillis(); // 记录开始时间
-
-        Log.d("SaveData", "开始保存正样本数据，持续2秒");
-        tvStatus.setText("正在保存正样本数据（2秒）...");
-
-        // 不需要显式延迟，数据回调中会自动检查时间
+    // 触发正样本采集：截取按下前 1 秒和按下后 2 秒的数据，噪声数据照常录制
+    private void capturePositiveSample() {
+        if (!dataParser.triggerPositiveCapture()) {
+            Toast.makeText(this, "上一次正样本采集尚未完成", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Log.d("SaveData", "触发正样本采集");
+        tvStatus.setText("正在采集正样本数据...");
     }
 
     // 更新UI界面
@@ -152,41 +220,55 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
             tvStatus.setText(isConnected ? "已连接" : "准备就绪");
         }
     }
-    private void updateDisplay(SensorData data) {
+    private void updateDisplay(SensorData data, RenderScheduler.FrameStats stats) {
         if(data!=null){
             String displayText = String.format(
                     "时间戳: %d\n索引: %d\nX: %.3f\nY: %.3f\nZ: %.3f\nT: %.3f",
                     data.timestamp, data.index, data.x, data.y, data.z, data.t
             );
             tvParsedData.setText(displayText); // 更新 TextView
+            liveChart.invalidate();
         }
 
     }
+
+    // 刷新链路质量：吞吐量、丢失/重复/乱序、包间隔和抖动的百分位数、设备时钟漂移
+    // 定时刷新，数据流停止后吞吐量也会降到 0
+    private void updateLinkQuality() {
+        LinkQualityMonitor.Snapshot s = dataParser.getIngestPipeline().getLinkQuality().snapshot(linkSnapshot);
+        if (s.received == 0) {
+            return;
+        }
+        String drift = s.driftValid ? String.format("%+.1f ppm", s.clockDriftPpm) : "统计中";
+        EventDetector.Metrics m = eventDetector.getMetrics(detectorMetrics);
+        tvLinkQuality.setText(String.format(
+                "吞吐: %d B/s\n" +
+                        "丢失: %d (%.2f%%)  重复: %d  乱序: %d  重启: %d\n" +
+                        "包间隔 p50/p99/max: %.1f/%.1f/%.1f ms\n" +
+                        "抖动 p50/p99/max: %.2f/%.2f/%.2f ms\n" +
+                        "时钟漂移: %s\n" +
+                        "事件: %d%s  自动采集: %d  检测延迟: %d  耗时 平均/p99: %.0f/%d ns",
+                bleManager.getThroughputBytesPerSecond(),
+                s.lost, s.lossRate * 100, s.duplicates, s.reordered, s.restarts,
+                s.intervalP50Micros / 1000.0, s.intervalP99Micros / 1000.0, s.intervalMaxMicros / 1000.0,
+                s.jitterP50Micros / 1000.0, s.jitterP99Micros / 1000.0, s.jitterMaxMicros / 1000.0,
+                drift,
+                m.events, m.active ? "（进行中）" : "", dataParser.getAutoCaptureCount(),
+                m.lastDetectionLatency, m.meanCostNanos, m.p99CostNanos));
+    }
     @Override
     public void onDataReceived(String data) {
-        long currentTime = System.currentTimeMillis();
-
-        // 检查是否正在保存数据，且已超过2秒
-        if (isSavingData && (currentTime - saveStartTime >= 2000)) {
-            dataParser.setSavingData(false); // 停止正样本
-            dataParser.setSavingNoiseData(true); // 恢复噪声数据
-            isSavingData = false; // 重置标记
-
-            runOnUiThread(() -> {
-                tvStatus.setText("噪声数据继续采集");
-                Toast.makeText(this, "正样本数据已保存2秒", Toast.LENGTH_SHORT).show();
-            });
-            Log.d("SaveData", "正样本数据保存结束，恢复噪声数据");
-        }
-
-        // 正常处理数据
-        dataParser.processIncomingData(data);
+        byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        onDataReceived(bytes, 0, bytes.length);
+    }
 
-        runOnUiThread(()->{
-            updateDisplay(dataParser.data);
-        });
+    @Override
+    public void onDataReceived(byte[] buf, int off, int len) {
+        // GATT 回调线程只把数据包交给接收流水线，解析、保存和界面刷新都在后台线程完成
+        dataParser.enqueue(buf, off, len);
 //        addLogMessage("接收数据: " + data);
     }
+
     @Override
     public void onScanHasResult(String devicename) {
         runOnUiThread(() -> tvDeviceName.setText(devicename));
@@ -195,6 +277,7 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
     @Override
     public void onDeviceConnected(String deviceName) {
         isConnected = true;
+        dataParser.setDeviceName(deviceName);
         runOnUiThread(() -> {
             tvDeviceName.setText("已连接: " + deviceName);
             updateUI();
@@ -205,6 +288,7 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
     @Override
     public void onDeviceDisconnected() {
         isConnected = false;
+        dataParser.enqueueFlush(); // 解析断开前暂存的最后半行
         runOnUiThread(() -> {
             tvDeviceName.setText("未连接设备");
             updateUI();
@@ -220,6 +304,17 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
         });
     }
 
+    @Override
+    public void onConnectionReady(BLEManager.ConnectionInfo info) {
+        addLogMessage("连接参数: " + info);
+    }
+
+    @Override
+    public void onReconnected(long timeToFirstSampleMillis, int attempts) {
+        runOnUiThread(() -> addLogMessage("已重连: 第 " + attempts + " 次尝试，断开到首个样本 "
+                + timeToFirstSampleMillis + "ms"));
+    }
+
     @Override
     public void onError(String errorMessage) {
         runOnUiThread(() -> {
@@ -228,17 +323,29 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
         });
     }
 
-    // 添加日志信息
+    // 添加日志信息，追加到环形日志后只重新渲染末尾几行
     private void addLogMessage(String message) {
+        eventLog.add(message);
         runOnUiThread(() -> {
-            String currentTime = java.text.DateFormat.getTimeInstance().format(new java.util.Date());
-            String newData = "[" + currentTime + "] " + message;
+            logText.setLength(0);
+            logText.append("原始数据日志:\n");
+            eventLog.renderTail(logText, LOG_VISIBLE_LINES);
+            tvData.setText(logText);
+        });
+    }
 
-            String existingData = tvData.getText().toString();
-            if (existingData.startsWith("原始数据日志: 等待连接...") || existingData.startsWith("原始数据日志: 已清空")) {
-                tvData.setText("原始数据日志:\n" + newData);
-            } else {
-                tvData.setText(existingData + "\n" + newData);
+    // 在后台线程把完整的事件日志导出到Download目录
+    private void exportEventLog() {
+        File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+        File logFile = new File(downloadDir, "px_log_" + System.currentTimeMillis() + ".txt");
+        executorService.execute(() -> {
+            try {
+                int count = eventLog.exportTo(logFile);
+                runOnUiThread(() -> Toast.makeText(this,
+                        "已导出 " + count + " 条日志: " + logFile.getName(), Toast.LENGTH_SHORT).show());
+            } catch (IOException e) {
+                Log.e("EventLog", "导出日志失败", e);
+                runOnUiThread(() -> Toast.makeText(this, "导出日志失败", Toast.LENGTH_SHORT).show());
             }
         });
     }
@@ -246,7 +353,10 @@ public class MainActivity extends AppCompatActivity implements BLEManager.Blueto
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        renderScheduler.stop();
+        uiHandler.removeCallbacks(linkQualityRefresh);
         bleManager.disconnectDevice();
+        dataParser.shutdown();  // 写完剩余数据并关闭录制文件
         if (executorService != null) {
             executorService.shutdown();  // 关闭线程池
         }
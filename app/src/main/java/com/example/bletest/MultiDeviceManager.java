@@ -0,0 +1,396 @@
+package com.example.bletest;
+
+import android.bluetooth.BluetoothDevice;
+import android.content.Context;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多设备并发采集
+ * 每个设备一个 {@link BLEManager}（独立的 GATT 连接、连接参数和重连）和一个 {@link IngestPipeline}
+ * （独立的重组和解析状态），解析出的样本经 {@link TimestampMerger} 按时间合并成一个数据流。
+ * 每个设备单独统计吞吐量，丢失、重复和乱序的样本由该设备流水线的 {@link LinkQualityMonitor} 统计。
+ * 除回调外，所有方法都在主线程上调用。
+ */
+public class MultiDeviceManager {
+    private static final String TAG = "MultiDeviceManager";
+
+    // Android 同时保持的 BLE 连接数一般不超过 7 个
+    public static final int MAX_DEVICES = 7;
+
+    // 合并时等待较慢设备的最长时间
+    private static final long MERGE_DELAY_MS = 50;
+
+    /**
+     * 多设备事件回调
+     */
+    public interface Listener {
+        /**
+         * 按时间合并后的样本，在合并线程上调用；data 是复用对象，只在回调内有效
+         */
+        void onSample(Device device, SensorData data);
+
+        // 连接状态和错误在 GATT 回调线程上调用
+        void onDeviceConnected(Device device);
+
+        void onDeviceDisconnected(Device device);
+
+        /**
+         * @param device 扫描错误或达到设备数上限时为 null
+         */
+        void onError(Device device, String errorMessage);
+    }
+
+    /**
+     * 一个设备的连接和统计
+     */
+    public final class Device implements BLEManager.BluetoothCallback, FrameReassembler.FrameListener {
+        private final String address;
+        private final String name;
+        private final BLEManager bleManager;
+        private final IngestPipeline pipeline;
+        // 当前的合并源，只在分发线程上切换
+        private volatile int sourceId = -1;
+        private volatile boolean connected;
+
+        // ---- 以下统计只由该设备的分发线程写入 ----
+        private volatile long frameCount;
+        private volatile long parseErrors;
+
+        Device(Context context, BluetoothDevice device) {
+            this.address = device.getAddress();
+            this.name = device.getName();
+            this.bleManager = new BLEManager(context, this, device);
+            this.pipeline = new IngestPipeline(address, this);
+        }
+
+        // 不建立 BLE 连接的设备，见 addDevice(String, String)
+        Device(String address, String name) {
+            this.address = address;
+            this.name = name;
+            this.bleManager = null;
+            this.pipeline = new IngestPipeline(address, this);
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isConnected() {
+            return connected;
+        }
+
+        public BLEManager getBleManager() {
+            return bleManager;
+        }
+
+        /**
+         * 解析出的样本数
+         */
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        public long getParseErrors() {
+            return parseErrors;
+        }
+
+        public long getReceivedBytes() {
+            return bleManager.getReceivedBytes();
+        }
+
+        public long getBytesPerSecond() {
+            return bleManager.getThroughputBytesPerSecond();
+        }
+
+        /**
+         * 接收队列满被丢弃的通知包数
+         */
+        public long getDroppedPackets() {
+            return pipeline.getDroppedPackets();
+        }
+
+        /**
+         * 按序号统计的丢失、重复、乱序、设备重启和到达抖动
+         */
+        public LinkQualityMonitor getLinkQuality() {
+            return pipeline.getLinkQuality();
+        }
+
+        // ---- 解析结果，在该设备的分发线程上调用 ----
+
+        @Override
+        public void onFrame(SensorData data) {
+            frameCount++;
+            int source = sourceId;
+            if (source >= 0) {
+                merger.offer(source, data);
+            }
+        }
+
+        @Override
+        public void onNumberError(byte[] buf, int from, int to) {
+            parseErrors++;
+        }
+
+        @Override
+        public void onInvalidNumber(byte[] buf, int from, int to) {
+            parseErrors++;
+        }
+
+        // ---- 连接事件 ----
+
+        @Override
+        public void onDataReceived(String data) {
+            byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+            onDataReceived(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void onDataReceived(byte[] buf, int off, int len) {
+            pipeline.offer(buf, off, len);
+        }
+
+        // 合并源的切换通过流水线的结束标记在分发线程上进行，标记之前入队的数据仍进入原来的合并源
+
+        @Override
+        public void onDeviceConnected(String deviceName) {
+            connected = true;
+            int source = merger.addSource();
+            devicesBySource.put(source, this);
+            pipeline.flush(() -> sourceId = source);
+            listener.onDeviceConnected(this);
+        }
+
+        @Override
+        public void onDeviceDisconnected() {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            // 设备时钟可能在重连后重置，下次连接使用新的合并源重新对齐；
+            // 已入队的数据包解析并分发完后再关闭合并源
+            pipeline.flush(() -> {
+                int source = sourceId;
+                sourceId = -1;
+                if (source >= 0) {
+                    merger.closeSource(source);
+                }
+            });
+            listener.onDeviceDisconnected(this);
+        }
+
+        @Override
+        public void onServicesDiscovered(String serviceInfo) {
+        }
+
+        @Override
+        public void onError(String errorMessage) {
+            listener.onError(this, errorMessage);
+        }
+
+        @Override
+        public void onScanHasResult(String deviceName) {
+        }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final TimestampMerger merger;
+    private BLEManager scanner;
+
+    // 扫描到的设备和已连接的设备，只在主线程访问
+    private final Map<String, BluetoothDevice> discovered = new LinkedHashMap<>();
+    private final Map<String, Device> devices = new LinkedHashMap<>();
+    private final Map<Integer, Device> devicesBySource = new ConcurrentHashMap<>();
+
+    /**
+     * @param millisPerTick 设备时间戳的单位（毫秒），用于合并时对齐各设备的时钟
+     */
+    public MultiDeviceManager(Context context, double millisPerTick, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+        this.merger = new TimestampMerger("multi", millisPerTick, MERGE_DELAY_MS, new TimestampMerger.Listener() {
+            @Override
+            public void onSample(int source, SensorData data) {
+                Device device = devicesBySource.get(source);
+                if (device != null) {
+                    listener.onSample(device, data);
+                }
+            }
+
+            @Override
+            public void onSourceRemoved(int source) {
+                // 断开的设备已入队的样本都已输出，每次连接或重连都会注册新的源
+                devicesBySource.remove(source);
+            }
+        });
+    }
+
+    // 扫描用的 BLEManager 在第一次扫描时创建
+    private BLEManager scanner() {
+        if (scanner != null) {
+            return scanner;
+        }
+        scanner = new BLEManager(context, new BLEManager.BluetoothCallback() {
+            @Override
+            public void onDeviceFound(BluetoothDevice device) {
+                String address = device.getAddress();
+                if (!discovered.containsKey(address)) {
+                    discovered.put(address, device);
+                    Log.d(TAG, "发现设备: " + device.getName() + " " + address);
+                }
+            }
+
+            @Override
+            public void onDataReceived(String data) {
+            }
+
+            @Override
+            public void onDeviceConnected(String deviceName) {
+            }
+
+            @Override
+            public void onDeviceDisconnected() {
+            }
+
+            @Override
+            public void onServicesDiscovered(String serviceInfo) {
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                listener.onError(null, errorMessage);
+            }
+
+            @Override
+            public void onScanHasResult(String deviceName) {
+            }
+        });
+        scanner.setAutoSelectTarget(false);
+        return scanner;
+    }
+
+    public void startScanning() {
+        scanner().startScanning();
+    }
+
+    public void stopScanning() {
+        if (scanner != null) {
+            scanner.stopScanning();
+        }
+    }
+
+    public boolean isScanning() {
+        return scanner != null && scanner.isScanning();
+    }
+
+    /**
+     * 扫描到的目标设备
+     */
+    public List<BluetoothDevice> getDiscoveredDevices() {
+        return new ArrayList<>(discovered.values());
+    }
+
+    /**
+     * 连接一个设备，已连接或达到设备数上限时忽略
+     *
+     * @return 该设备的连接，达到上限时返回 null
+     */
+    public Device connect(BluetoothDevice bluetoothDevice) {
+        Device device = devices.get(bluetoothDevice.getAddress());
+        if (device == null) {
+            if (devices.size() >= MAX_DEVICES) {
+                listener.onError(null, "最多同时连接 " + MAX_DEVICES + " 个设备");
+                return null;
+            }
+            device = new Device(context, bluetoothDevice);
+            devices.put(device.getAddress(), device);
+        }
+        device.getBleManager().connectToDevice();
+        return device;
+    }
+
+    /**
+     * 加入一个不建立 BLE 连接的设备，连接事件和数据通过其回调方法注入，用于在 JVM 上测试解析和合并
+     */
+    Device addDevice(String address, String name) {
+        Device device = new Device(address, name);
+        devices.put(address, device);
+        return device;
+    }
+
+    /**
+     * 连接所有扫描到的设备
+     */
+    public void connectAll() {
+        stopScanning();
+        for (BluetoothDevice device : discovered.values()) {
+            if (connect(device) == null) {
+                break;
+            }
+        }
+    }
+
+    public void disconnect(String address) {
+        Device device = devices.get(address);
+        if (device != null && device.bleManager != null) {
+            device.bleManager.disconnectDevice();
+        }
+    }
+
+    public void disconnectAll() {
+        for (Device device : devices.values()) {
+            if (device.bleManager != null) {
+                device.bleManager.disconnectDevice();
+            }
+        }
+    }
+
+    public List<Device> getDevices() {
+        return new ArrayList<>(devices.values());
+    }
+
+    /**
+     * 仍在合并的源数（已连接的设备，加上断开后样本尚未输出完的设备）
+     */
+    public int getActiveSourceCount() {
+        return devicesBySource.size();
+    }
+
+    /**
+     * 合并后输出的样本数
+     */
+    public long getMergedCount() {
+        return merger.getMergedCount();
+    }
+
+    /**
+     * 到达太晚、没能按时间顺序输出的样本数
+     */
+    public long getOutOfOrderCount() {
+        return merger.getOutOfOrderCount();
+    }
+
+    /**
+     * 断开所有设备并停止所有线程（在 onDestroy 中调用）
+     */
+    public void shutdown() {
+        stopScanning();
+        disconnectAll();
+        for (Device device : devices.values()) {
+            device.pipeline.shutdown();
+        }
+        merger.shutdown();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.bletest;
+
+import java.util.Arrays;
+
+/**
+ * 多分辨率样本存储（用于长时间绘图）
+ * 第 0 层按原始采样率保存最近 capacity 个样本；第 k 层（k ≥ 1）的每一项汇总 factor^k 个连续样本的
+ * 最小值、最大值和均值，也保存最近 capacity 项。每个样本写入第 0 层后累加到第 1 层正在汇总的项，
+ * 一项满了再累加到上一层，每个样本的平均开销是常数。
+ * 查询时选择最细且项数不超过列数两倍的层，按列合并最小/最大值，耗时与列数（像素）成正比，与样本数无关。
+ * 数值以 float 保存。写入（分发线程）和查询（主线程）通过对象锁同步，临界区都很短。
+ */
+public final class MultiResolutionStore {
+
+    public static final int CHANNEL_X = 0;
+    public static final int CHANNEL_Y = 1;
+    public static final int CHANNEL_Z = 2;
+    public static final int CHANNEL_T = 3;
+    public static final int CHANNEL_COUNT = 4;
+
+    private final int factor;
+    private final int tierCount;
+    private final int mask;
+    private final long[] samplesPerEntry;
+
+    // mins[tier][channel][slot]；第 0 层的最小、最大和均值是同一个数组
+    private final float[][][] mins;
+    private final float[][][] maxs;
+    private final float[][][] means;
+    private final long[] entryCount;
+
+    // 第 k 层（k ≥ 1）正在汇总的项
+    private final float[][] accMin;
+    private final float[][] accMax;
+    private final double[][] accSum;
+    private final long[] accSamples;
+
+    /**
+     * @param factor    相邻两层的抽取倍数（如 10）
+     * @param tierCount 层数（含原始采样率的第 0 层）
+     * @param capacity  每层保留的项数，向上取整为 2 的幂
+     */
+    public MultiResolutionStore(int factor, int tierCount, int capacity) {
+        if (factor < 2 || tierCount < 1) {
+            throw new IllegalArgumentException("factor >= 2, tierCount >= 1: " + factor + ", " + tierCount);
+        }
+        this.factor = factor;
+        this.tierCount = tierCount;
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.samplesPerEntry = new long[tierCount];
+        this.mins = new float[tierCount][CHANNEL_COUNT][];
+        this.maxs = new float[tierCount][CHANNEL_COUNT][];
+        this.means = new float[tierCount][CHANNEL_COUNT][];
+        this.entryCount = new long[tierCount];
+        this.accMin = new float[tierCount][CHANNEL_COUNT];
+        this.accMax = new float[tierCount][CHANNEL_COUNT];
+        this.accSum = new double[tierCount][CHANNEL_COUNT];
+        this.accSamples = new long[tierCount];
+
+        long spe = 1;
+        for (int k = 0; k < tierCount; k++) {
+            samplesPerEntry[k] = spe;
+            spe *= factor;
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                if (k == 0) {
+                    float[] values = new float[size];
+                    mins[0][c] = values;
+                    maxs[0][c] = values;
+                    means[0][c] = values;
+                } else {
+                    mins[k][c] = new float[size];
+                    maxs[k][c] = new float[size];
+                    means[k][c] = new float[size];
+                }
+            }
+        }
+        clearAccumulators();
+    }
+
+    public int getFactor() {
+        return factor;
+    }
+
+    public int getTierCount() {
+        return tierCount;
+    }
+
+    /**
+     * 第 tier 层每一项汇总的样本数
+     */
+    public long getSamplesPerEntry(int tier) {
+        return samplesPerEntry[tier];
+    }
+
+    /**
+     * 最粗一层能覆盖的样本数
+     */
+    public long getMaxSpanSamples() {
+        return samplesPerEntry[tierCount - 1] * (mask + 1);
+    }
+
+    public synchronized long getSampleCount() {
+        return entryCount[0];
+    }
+
+    public void append(SensorData data) {
+        append(data.x, data.y, data.z, data.t);
+    }
+
+    /**
+     * 追加一个样本
+     */
+    public synchronized void append(double x, double y, double z, double t) {
+        int slot = (int) (entryCount[0] & mask);
+        float[][] tier0 = means[0];
+        tier0[CHANNEL_X][slot] = (float) x;
+        tier0[CHANNEL_Y][slot] = (float) y;
+        tier0[CHANNEL_Z][slot] = (float) z;
+        tier0[CHANNEL_T][slot] = (float) t;
+        entryCount[0]++;
+
+        // 逐层向上累加，某一层的项没满时停止
+        for (int k = 1; k < tierCount; k++) {
+            float[][] lower = means[k - 1];
+            float[][] lowerMin = mins[k - 1];
+            float[][] lowerMax = maxs[k - 1];
+            long lowerSamples = samplesPerEntry[k - 1];
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                accMin[k][c] = Math.min(accMin[k][c], lowerMin[c][slot]);
+                accMax[k][c] = Math.max(accMax[k][c], lowerMax[c][slot]);
+                accSum[k][c] += (double) lower[c][slot] * lowerSamples;
+            }
+            accSamples[k] += lowerSamples;
+            if (accSamples[k] < samplesPerEntry[k]) {
+                break;
+            }
+            slot = (int) (entryCount[k] & mask);
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                mins[k][c][slot] = accMin[k][c];
+                maxs[k][c][slot] = accMax[k][c];
+                means[k][c][slot] = (float) (accSum[k][c] / accSamples[k]);
+            }
+            entryCount[k]++;
+            resetAccumulator(k);
+        }
+    }
+
+    /**
+     * 选择显示最近 spanSamples 个样本、宽 columns 列时使用的层：最细且项数不超过 2 * columns 的层
+     */
+    public int chooseTier(long spanSamples, int columns) {
+        for (int k = 0; k < tierCount; k++) {
+            if (spanSamples / samplesPerEntry[k] <= 2L * columns) {
+                return k;
+            }
+        }
+        return tierCount - 1;
+    }
+
+    /**
+     * 读取最近 spanSamples 个样本在 columns 列上的最小/最大/均值，按时间从早到晚填入输出数组
+     * 项数少于列数时每项一列，返回的列数小于 columns；正在汇总、尚未满的最新一项也会包含在内
+     *
+     * @return 填入的列数
+     */
+    public synchronized int queryLatest(int channel, long spanSamples, int columns,
+                                        float[] outMin, float[] outMax, float[] outMean) {
+        int tier = chooseTier(spanSamples, columns);
+        long spe = samplesPerEntry[tier];
+        boolean partial = tier > 0 && accSamples[tier] > 0;
+        long complete = Math.min(entryCount[tier], mask + 1);
+        long available = complete + (partial ? 1 : 0);
+        long wanted = (spanSamples + spe - 1) / spe;
+        int entries = (int) Math.min(available, wanted);
+        if (entries == 0 || columns == 0) {
+            return 0;
+        }
+
+        int outColumns = Math.min(entries, columns);
+        // 第 e 项（0 为最早）：完整项从环形数组中读取，最后一项可能是正在汇总的项
+        long firstEntry = entryCount[tier] - (entries - (partial ? 1 : 0));
+        float[] min = mins[tier][channel];
+        float[] max = maxs[tier][channel];
+        float[] mean = means[tier][channel];
+        for (int col = 0; col < outColumns; col++) {
+            int from = (int) ((long) col * entries / outColumns);
+            int to = (int) ((long) (col + 1) * entries / outColumns);
+            float lo = Float.POSITIVE_INFINITY;
+            float hi = Float.NEGATIVE_INFINITY;
+            double sum = 0;
+            double weight = 0;
+            for (int e = from; e < to; e++) {
+                if (partial && e == entries - 1) {
+                    lo = Math.min(lo, accMin[tier][channel]);
+                    hi = Math.max(hi, accMax[tier][channel]);
+                    sum += accSum[tier][channel];
+                    weight += accSamples[tier];
+                } else {
+                    int slot = (int) ((firstEntry + e) & mask);
+                    lo = Math.min(lo, min[slot]);
+                    hi = Math.max(hi, max[slot]);
+                    sum += (double) mean[slot] * spe;
+                    weight += spe;
+                }
+            }
+            outMin[col] = lo;
+            outMax[col] = hi;
+            outMean[col] = (float) (sum / weight);
+        }
+        return outColumns;
+    }
+
+    /**
+     * 清空所有层
+     */
+    public synchronized void clear() {
+        Arrays.fill(entryCount, 0);
+        clearAccumulators();
+    }
+
+    private void clearAccumulators() {
+        for (int k = 1; k < tierCount; k++) {
+            resetAccumulator(k);
+        }
+    }
+
+    private void resetAccumulator(int k) {
+        Arrays.fill(accMin[k], Float.POSITIVE_INFINITY);
+        Arrays.fill(accMax[k], Float.NEGATIVE_INFINITY);
+        Arrays.fill(accSum[k], 0);
+        accSamples[k] = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bletest;
+
+import java.util.Random;
+
+/**
+ * 带随机抖动的指数退避
+ * 第 n 次重试的基准延迟为 initial * multiplier^(n-1)，不超过 max；
+ * 实际延迟在 [基准 * (1 - jitter), 基准] 之间均匀随机，避免多台手机或多个设备同时重连。
+ * 不是线程安全的，只在一个线程上使用。
+ */
+public final class ReconnectBackoff {
+
+    private final long initialMs;
+    private final long maxMs;
+    private final double multiplier;
+    private final double jitter;
+    private final Random random;
+
+    private int attempts;
+
+    /**
+     * @param initialMs  第一次重试的基准延迟
+     * @param maxMs      基准延迟上限
+     * @param multiplier 每次重试基准延迟的倍数，不小于 1
+     * @param jitter     随机抖动比例，0 到 1
+     */
+    public ReconnectBackoff(long initialMs, long maxMs, double multiplier, double jitter, Random random) {
+        if (initialMs <= 0 || maxMs < initialMs || multiplier < 1 || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("invalid backoff parameters");
+        }
+        this.initialMs = initialMs;
+        this.maxMs = maxMs;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.random = random;
+    }
+
+    /**
+     * 记录一次重试并返回本次重试前应等待的时间
+     */
+    public long nextDelayMs() {
+        double base = initialMs * Math.pow(multiplier, attempts);
+        attempts++;
+        base = Math.min(base, maxMs);
+        return Math.round(base * (1 - jitter * random.nextDouble()));
+    }
+
+    /**
+     * 已经重试的次数
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 连接成功后重置
+     */
+    public void reset() {
+        attempts = 0;
+    }
+}
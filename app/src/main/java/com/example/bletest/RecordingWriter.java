@@ -0,0 +1,474 @@
+package com.example.bletest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 异步批量录制写入器
+ * 调用方线程（GATT 回调线程）只把样本放入有界的基本类型队列，
+ * 由专用的后台线程批量取出、编码进复用的字节缓冲区，并按大小或时间间隔写入文件，
+ * 避免在通知回调线程上格式化字符串和逐条 flush。
+ *
+ * 打开/关闭文件的操作与样本按调用顺序生效：open 之前写入的样本写入旧文件，之后的写入新文件。
+ */
+public final class RecordingWriter {
+
+    // 队列满时的处理策略
+    public enum OverflowPolicy {
+        BLOCK,        // 阻塞调用方直到队列有空位（背压）
+        DROP_NEWEST,  // 丢弃新样本
+        DROP_OLDEST   // 丢弃队列中最旧的样本
+    }
+
+    // 写入错误回调，在写入线程上调用
+    public interface ErrorListener {
+        void onError(String message, IOException e);
+    }
+
+    // 默认参数
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    public static final int DEFAULT_FLUSH_BYTES = 32 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+
+    // 每次从队列取出的最大样本数
+    private static final int BATCH_SIZE = 256;
+
+    private final SampleEncoder defaultEncoder;
+    private final ErrorListener errorListener;
+    private final int flushBytes;
+    private final long flushIntervalNanos;
+    private volatile OverflowPolicy overflowPolicy;
+
+    // ---- 以下队列状态由 lock 保护 ----
+    private final Object lock = new Object();
+    private final int mask;
+    private final long[] wallTimes;
+    private final long[] timestamps;
+    private final int[] indices;
+    private final double[] xs, ys, zs, ts;
+    private long head;
+    private long tail;
+    private final ArrayDeque<FileCommand> commands = new ArrayDeque<>();
+    private boolean running = true;
+    private boolean writerWaiting;
+    private int producersWaiting;
+
+    // ---- 以下只在写入线程上访问 ----
+    private ByteBuffer buffer;
+    private SampleEncoder encoder;
+    private FileOutputStream output;
+    private long lastFlushNanos;
+    private final long[] batchWallTimes = new long[BATCH_SIZE];
+    private final long[] batchTimestamps = new long[BATCH_SIZE];
+    private final int[] batchIndices = new int[BATCH_SIZE];
+    private final double[] batchXs = new double[BATCH_SIZE];
+    private final double[] batchYs = new double[BATCH_SIZE];
+    private final double[] batchZs = new double[BATCH_SIZE];
+    private final double[] batchTs = new double[BATCH_SIZE];
+
+    // ---- 统计计数 ----
+    private volatile long droppedSamples;
+    private volatile long maxQueueDepth;
+    private volatile long samplesWritten;
+    private volatile long bytesWritten;
+    private volatile long flushCount;
+    private volatile long lastFlushLatencyNanos;
+    private volatile long maxFlushLatencyNanos;
+    private volatile long totalFlushLatencyNanos;
+
+    private final Thread thread;
+
+    public RecordingWriter(String name, SampleEncoder defaultEncoder, ErrorListener errorListener) {
+        this(name, defaultEncoder, errorListener, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_NEWEST,
+                DEFAULT_FLUSH_BYTES, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * @param name            写入线程名称后缀
+     * @param defaultEncoder  默认的样本编码器，用于 {@link #open(File)}
+     * @param errorListener   写入错误回调
+     * @param queueCapacity   队列容量（样本数），向上取整为 2 的幂
+     * @param overflowPolicy  队列满时的处理策略
+     * @param flushBytes      缓冲区累计达到该字节数时写入文件
+     * @param flushIntervalMs 缓冲区中的数据最多停留的时间
+     */
+    public RecordingWriter(String name, SampleEncoder defaultEncoder, ErrorListener errorListener,
+                           int queueCapacity, OverflowPolicy overflowPolicy,
+                           int flushBytes, long flushIntervalMs) {
+        this.defaultEncoder = defaultEncoder;
+        this.encoder = defaultEncoder;
+        this.errorListener = errorListener;
+        this.overflowPolicy = overflowPolicy;
+        this.flushBytes = flushBytes;
+        this.flushIntervalNanos = flushIntervalMs * 1_000_000L;
+
+        int capacity = Integer.highestOneBit(Math.max(queueCapacity, 2) - 1) << 1;
+        this.mask = capacity - 1;
+        this.wallTimes = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.indices = new int[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.zs = new double[capacity];
+        this.ts = new double[capacity];
+
+        this.buffer = ByteBuffer.allocate(flushBytes + defaultEncoder.maxRecordSize());
+
+        this.thread = new Thread(this::runLoop, "RecordingWriter-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * 使用默认编码器打开新文件，之后写入的样本保存到该文件，之前打开的文件会被关闭
+     */
+    public void open(File file) {
+        open(file, defaultEncoder);
+    }
+
+    /**
+     * 使用指定编码器打开新文件，之后写入的样本保存到该文件，之前打开的文件会被关闭
+     * 编码器支持追加时以追加模式打开，否则覆盖已有文件
+     *
+     * @param encoder 该文件专用的编码器，只在写入线程上使用
+     */
+    public void open(File file, SampleEncoder encoder) {
+        enqueueCommand(file, encoder);
+    }
+
+    /**
+     * 关闭当前文件，之前写入的样本全部落盘后关闭
+     */
+    public void close() {
+        enqueueCommand(null, null);
+    }
+
+    /**
+     * 写入一条样本
+     *
+     * @param wallTimeMillis 手机时间（UTC 毫秒）
+     * @return 样本进入队列返回 true，被丢弃返回 false
+     */
+    public boolean write(long wallTimeMillis, long timestamp, int index,
+                         double x, double y, double z, double t) {
+        synchronized (lock) {
+            if (!running) {
+                return false;
+            }
+            if (tail - head > mask) {
+                switch (overflowPolicy) {
+                    case DROP_NEWEST:
+                        droppedSamples++;
+                        return false;
+                    case DROP_OLDEST:
+                        head++;
+                        droppedSamples++;
+                        break;
+                    case BLOCK:
+                        if (!awaitSpace()) {
+                            droppedSamples++;
+                            return false;
+                        }
+                        break;
+                }
+            }
+
+            int slot = (int) (tail & mask);
+            wallTimes[slot] = wallTimeMillis;
+            timestamps[slot] = timestamp;
+            indices[slot] = index;
+            xs[slot] = x;
+            ys[slot] = y;
+            zs[slot] = z;
+            ts[slot] = t;
+            tail++;
+
+            long depth = tail - head;
+            if (depth > maxQueueDepth) {
+                maxQueueDepth = depth;
+            }
+            if (writerWaiting && depth >= BATCH_SIZE) {
+                lock.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写入一条样本，手机时间取当前时间
+     */
+    public boolean write(SensorData data) {
+        return write(System.currentTimeMillis(), data.timestamp, data.index, data.x, data.y, data.z, data.t);
+    }
+
+    /**
+     * 停止写入线程，队列中剩余的样本写完后关闭文件
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 等待写入线程结束
+     */
+    public void awaitTermination(long timeoutMillis) throws InterruptedException {
+        thread.join(timeoutMillis);
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return (int) (tail - head);
+        }
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    public long getSamplesWritten() {
+        return samplesWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getLastFlushLatencyNanos() {
+        return lastFlushLatencyNanos;
+    }
+
+    public long getMaxFlushLatencyNanos() {
+        return maxFlushLatencyNanos;
+    }
+
+    public long getAverageFlushLatencyNanos() {
+        long count = flushCount;
+        return count == 0 ? 0 : totalFlushLatencyNanos / count;
+    }
+
+    // 调用时已持有 lock
+    private boolean awaitSpace() {
+        producersWaiting++;
+        try {
+            while (tail - head > mask && running) {
+                lock.wait();
+            }
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            producersWaiting--;
+        }
+    }
+
+    private void enqueueCommand(File file, SampleEncoder encoder) {
+        synchronized (lock) {
+            commands.addLast(new FileCommand(tail, file, encoder));
+            lock.notifyAll();
+        }
+    }
+
+    // ---- 写入线程 ----
+
+    private void runLoop() {
+        lastFlushNanos = System.nanoTime();
+        while (true) {
+            FileCommand command = null;
+            int count = 0;
+            boolean exit = false;
+
+            synchronized (lock) {
+                while (true) {
+                    FileCommand next = commands.peekFirst();
+                    if (next != null && next.sequence <= head) {
+                        command = commands.pollFirst();
+                        break;
+                    }
+
+                    // 只取到下一个文件命令之前的样本
+                    long limit = next != null ? next.sequence : tail;
+                    count = (int) Math.min(limit - head, BATCH_SIZE);
+                    if (count > 0) {
+                        takeBatch(count);
+                        break;
+                    }
+                    if (!running) {
+                        exit = true;
+                        break;
+                    }
+
+                    // 队列为空：缓冲区有数据时最多等到定时刷新的时间点，
+                    // 否则等待一个刷新间隔，让少量样本也能按时间批量写入
+                    long waitMillis = Math.max(1, flushIntervalNanos / 1_000_000L);
+                    if (buffer.position() > 0) {
+                        long remaining = flushIntervalNanos - (System.nanoTime() - lastFlushNanos);
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        waitMillis = Math.max(1, remaining / 1_000_000L);
+                    }
+                    writerWaiting = true;
+                    try {
+                        lock.wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    } finally {
+                        writerWaiting = false;
+                    }
+                }
+            }
+
+            if (command != null) {
+                closeFile();
+                if (command.file != null) {
+                    openFile(command.file, command.encoder);
+                }
+                continue;
+            }
+            if (count > 0) {
+                encodeBatch(count);
+            }
+            if (exit) {
+                closeFile();
+                return;
+            }
+            if (buffer.position() >= flushBytes
+                    || (buffer.position() > 0 && System.nanoTime() - lastFlushNanos >= flushIntervalNanos)) {
+                flush();
+            }
+        }
+    }
+
+    // 调用时已持有 lock
+    private void takeBatch(int count) {
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((head + i) & mask);
+            batchWallTimes[i] = wallTimes[slot];
+            batchTimestamps[i] = timestamps[slot];
+            batchIndices[i] = indices[slot];
+            batchXs[i] = xs[slot];
+            batchYs[i] = ys[slot];
+            batchZs[i] = zs[slot];
+            batchTs[i] = ts[slot];
+        }
+        head += count;
+        if (producersWaiting > 0) {
+            lock.notifyAll();
+        }
+    }
+
+    private void encodeBatch(int count) {
+        if (output == null) {
+            // 文件未打开（或打开失败），样本无处可写
+            synchronized (lock) {
+                droppedSamples += count;
+            }
+            return;
+        }
+        int maxRecordSize = encoder.maxRecordSize();
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < maxRecordSize) {
+                flush();
+            }
+            encoder.encode(buffer, batchWallTimes[i], batchTimestamps[i], batchIndices[i],
+                    batchXs[i], batchYs[i], batchZs[i], batchTs[i]);
+        }
+        samplesWritten += count;
+    }
+
+    private void openFile(File file, SampleEncoder fileEncoder) {
+        encoder = fileEncoder;
+        int required = flushBytes + encoder.maxRecordSize();
+        if (buffer.capacity() < required) {
+            buffer = ByteBuffer.allocate(required);
+        }
+        try {
+            boolean append = encoder.isAppendable();
+            boolean emptyFile = !append || file.length() == 0;
+            output = new FileOutputStream(file, append);
+            encoder.writeHeader(buffer, emptyFile);
+        } catch (IOException e) {
+            output = null;
+            errorListener.onError("无法创建文件: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void closeFile() {
+        if (output == null) {
+            return;
+        }
+        int footerSize = encoder.maxFooterSize();
+        if (buffer.remaining() < footerSize) {
+            flush();
+            if (buffer.capacity() < footerSize) {
+                buffer = ByteBuffer.allocate(footerSize + encoder.maxRecordSize());
+            }
+        }
+        encoder.writeFooter(buffer);
+        flush();
+        try {
+            output.close();
+        } catch (IOException e) {
+            errorListener.onError("关闭文件时出错", e);
+        }
+        output = null;
+    }
+
+    private void flush() {
+        int length = buffer.position();
+        if (length == 0 || output == null) {
+            buffer.clear();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            output.write(buffer.array(), buffer.arrayOffset(), length);
+            bytesWritten += length;
+        } catch (IOException e) {
+            errorListener.onError("写入文件失败", e);
+        }
+        long end = System.nanoTime();
+        buffer.clear();
+
+        long latency = end - start;
+        lastFlushLatencyNanos = latency;
+        totalFlushLatencyNanos += latency;
+        if (latency > maxFlushLatencyNanos) {
+            maxFlushLatencyNanos = latency;
+        }
+        flushCount++;
+        lastFlushNanos = end;
+    }
+
+    // 文件命令，file 为 null 表示关闭；在序号为 sequence 的样本之前生效
+    private static final class FileCommand {
+        final long sequence;
+        final File file;
+        final SampleEncoder encoder;
+
+        FileCommand(long sequence, File file, SampleEncoder encoder) {
+            this.sequence = sequence;
+            this.file = file;
+            this.encoder = encoder;
+        }
+    }
+}
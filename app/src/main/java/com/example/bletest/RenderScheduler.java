@@ -0,0 +1,154 @@
+package com.example.bletest;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 界面刷新调度器
+ * 通过 {@link SampleRingBuffer} 的丢弃型游标读取样本：新样本到达时调用 {@link #requestFrame()}，
+ * 主线程通过 Choreographer 在下一个显示帧一次读完上一帧以来的样本，计算最小/最大/平均值并只显示最新样本，
+ * 刷新频率与通知频率无关。主线程卡顿时旧样本被环形缓冲区覆盖，不会阻塞生产者。
+ * 必须在主线程上创建。
+ */
+public final class RenderScheduler implements Choreographer.FrameCallback {
+
+    // 统计数组的通道下标
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int Z = 2;
+    public static final int T = 3;
+    private static final int CHANNELS = 4;
+
+    /**
+     * 在主线程上刷新界面
+     */
+    public interface Renderer {
+        /**
+         * @param latest 上一帧以来的最新样本
+         * @param stats  上一帧以来所有样本的统计；两个参数都是复用对象，只在回调内有效
+         */
+        void render(SensorData latest, FrameStats stats);
+    }
+
+    /**
+     * 一帧内样本的统计，按 X/Y/Z/T 下标访问
+     */
+    public static final class FrameStats {
+        public int sampleCount;
+        public final double[] min = new double[CHANNELS];
+        public final double[] max = new double[CHANNELS];
+        public final double[] mean = new double[CHANNELS];
+    }
+
+    private final Choreographer choreographer;
+    private final Renderer renderer;
+    private final SampleRingBuffer.Cursor cursor;
+
+    // 是否已经请求了下一帧，任意线程可写
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    // 统计，只由主线程写入
+    private volatile long consumedCount;
+    private volatile long frameCount;
+
+    // 只在主线程上使用
+    private final SensorData sample = new SensorData(0, 0, 0, 0, 0, 0);
+    private final SensorData latest = new SensorData(0, 0, 0, 0, 0, 0);
+    private final FrameStats stats = new FrameStats();
+    private final double[] sum = new double[CHANNELS];
+
+    /**
+     * @param ring     样本来源，调度器在其上注册一个丢弃型游标
+     * @param renderer 在主线程上刷新界面
+     */
+    public RenderScheduler(SampleRingBuffer ring, Renderer renderer) {
+        this.choreographer = Choreographer.getInstance();
+        this.renderer = renderer;
+        this.cursor = ring.newCursor(false);
+    }
+
+    /**
+     * 有新样本发布后调用，可以在任意线程调用；同一帧内多次调用只会请求一次刷新
+     */
+    public void requestFrame() {
+        if (!stopped && frameScheduled.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled.set(false);
+        if (stopped) {
+            return;
+        }
+        int count = 0;
+        while (cursor.poll(sample)) {
+            accumulate(count, X, sample.x);
+            accumulate(count, Y, sample.y);
+            accumulate(count, Z, sample.z);
+            accumulate(count, T, sample.t);
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        latest.timestamp = sample.timestamp;
+        latest.index = sample.index;
+        latest.x = sample.x;
+        latest.y = sample.y;
+        latest.z = sample.z;
+        latest.t = sample.t;
+        stats.sampleCount = count;
+        for (int i = 0; i < CHANNELS; i++) {
+            stats.mean[i] = sum[i] / count;
+        }
+        consumedCount += count;
+        frameCount++;
+        renderer.render(latest, stats);
+    }
+
+    /**
+     * 停止刷新并注销游标（在 onDestroy 中调用）
+     */
+    public void stop() {
+        stopped = true;
+        choreographer.removeFrameCallback(this);
+        cursor.close();
+    }
+
+    /**
+     * 读取到的样本总数（不含被覆盖丢弃的）
+     */
+    public long getConsumedCount() {
+        return consumedCount;
+    }
+
+    /**
+     * 被合并（没有单独显示）的样本数，包括主线程来不及读取而被覆盖的样本
+     */
+    public long getCoalescedCount() {
+        return consumedCount - frameCount + cursor.getLostCount();
+    }
+
+    /**
+     * 实际刷新界面的次数
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    private void accumulate(int count, int channel, double value) {
+        if (count == 0) {
+            stats.min[channel] = value;
+            stats.max[channel] = value;
+            sum[channel] = value;
+        } else {
+            stats.min[channel] = Math.min(stats.min[channel], value);
+            stats.max[channel] = Math.max(stats.max[channel], value);
+            sum[channel] += value;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bletest;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 录制文件的样本编码器
+ * 由 {@link RecordingWriter} 的后台线程调用，把样本编码进复用的字节缓冲区。
+ * 同一个编码器实例只在写入线程上使用，可以持有可变的临时状态。
+ */
+public interface SampleEncoder {
+
+    /**
+     * 单条记录编码后的最大字节数，写入线程保证调用 encode 前缓冲区至少有这么多剩余空间
+     */
+    int maxRecordSize();
+
+    /**
+     * 是否支持追加到已有文件；不支持时写入器会覆盖已有文件
+     */
+    boolean isAppendable();
+
+    /**
+     * 打开文件时调用，写入文件头
+     *
+     * @param out       输出缓冲区
+     * @param emptyFile 文件是否为空（追加到已有文件时为 false）
+     */
+    void writeHeader(ByteBuffer out, boolean emptyFile);
+
+    /**
+     * 编码一条样本
+     *
+     * @param out           输出缓冲区
+     * @param wallTimeMillis 样本入队时的手机时间（UTC 毫秒）
+     */
+    void encode(ByteBuffer out, long wallTimeMillis, long timestamp, int index,
+                double x, double y, double z, double t);
+
+    /**
+     * 关闭文件前调用，写入文件尾
+     *
+     * @param out 输出缓冲区，写入线程保证有足够的剩余空间，见 {@link #maxFooterSize()}
+     */
+    void writeFooter(ByteBuffer out);
+
+    /**
+     * 文件尾编码后的最大字节数
+     */
+    int maxFooterSize();
+}
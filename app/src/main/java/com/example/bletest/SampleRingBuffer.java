@@ -0,0 +1,234 @@
+package com.example.bletest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单生产者多消费者的无锁样本环形缓冲区（类似 Disruptor 的序号方式）
+ * 生产者（DataParser）把样本写入预先分配的基本类型槽位并发布序号，每个消费者持有自己的游标，按自己的节奏读取。
+ * 发布和读取都不加锁、不创建对象。
+ *
+ * 消费者分两种：
+ * <ul>
+ *   <li>阻塞型（gating）：生产者不会覆盖它还没读取的槽位，必要时等待，适合不能丢数据的消费者；</li>
+ *   <li>丢弃型：生产者需要覆盖它还没读取的槽位时，用 CAS 把它的游标向前推进并累计丢失数；
+ *       消费者读完槽位后用 CAS 提交游标，提交失败说明槽位可能已被覆盖，丢弃后重读，不会读到写了一半的数据。
+ *       适合界面等只关心最新数据的消费者。</li>
+ * </ul>
+ */
+public final class SampleRingBuffer {
+
+    // 生产者等待阻塞型消费者时每次 park 的时长
+    private static final long WAIT_NANOS = 50_000L;
+
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] indexes;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final double[] ts;
+
+    // 已发布的样本数，即下一个要写入的序号
+    private final AtomicLong published = new AtomicLong();
+
+    // 消费者列表，写时复制
+    private volatile Cursor[] cursors = new Cursor[0];
+
+    // 只在生产者线程使用：所有消费者中最小的读取位置的缓存
+    private long cachedMinNext;
+
+    /**
+     * 消费者游标，只能由一个线程读取
+     */
+    public final class Cursor {
+        private final boolean gating;
+        private final AtomicLong next;  // 下一个要读取的序号
+        private volatile long lostCount;
+
+        Cursor(boolean gating, long start) {
+            this.gating = gating;
+            this.next = new AtomicLong(start);
+        }
+
+        /**
+         * 读取下一个样本
+         *
+         * @return 没有新样本时返回 false 且不修改 into
+         */
+        public boolean poll(SensorData into) {
+            while (true) {
+                long n = next.get();
+                if (n >= published.get()) {
+                    return false;
+                }
+                int slot = (int) n & mask;
+                long timestamp = timestamps[slot];
+                int index = indexes[slot];
+                double x = xs[slot];
+                double y = ys[slot];
+                double z = zs[slot];
+                double t = ts[slot];
+                if (gating) {
+                    next.lazySet(n + 1);
+                } else if (!next.compareAndSet(n, n + 1)) {
+                    continue;  // 被生产者推进，槽位可能已被覆盖
+                }
+                into.timestamp = timestamp;
+                into.index = index;
+                into.x = x;
+                into.y = y;
+                into.z = z;
+                into.t = t;
+                return true;
+            }
+        }
+
+        /**
+         * 还没读取的样本数
+         */
+        public long available() {
+            return Math.max(0, published.get() - next.get());
+        }
+
+        /**
+         * 被生产者跳过的样本数（只有丢弃型消费者会丢失）
+         */
+        public long getLostCount() {
+            return lostCount;
+        }
+
+        public boolean isGating() {
+            return gating;
+        }
+
+        /**
+         * 注销游标，之后生产者不再等待或推进它
+         */
+        public void close() {
+            removeCursor(this);
+        }
+    }
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public SampleRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.timestamps = new long[this.capacity];
+        this.indexes = new int[this.capacity];
+        this.xs = new double[this.capacity];
+        this.ys = new double[this.capacity];
+        this.zs = new double[this.capacity];
+        this.ts = new double[this.capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 已发布的样本总数
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * 注册一个消费者，从下一个发布的样本开始读取
+     *
+     * @param gating 为 true 时生产者会等待该消费者，不会丢数据
+     */
+    public synchronized Cursor newCursor(boolean gating) {
+        Cursor cursor = new Cursor(gating, published.get());
+        Cursor[] current = cursors;
+        Cursor[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = cursor;
+        cursors = updated;
+        return cursor;
+    }
+
+    private synchronized void removeCursor(Cursor cursor) {
+        Cursor[] current = cursors;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == cursor) {
+                Cursor[] updated = new Cursor[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                cursors = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 发布一个样本（生产者线程）
+     */
+    public void publish(SensorData data) {
+        publish(data.timestamp, data.index, data.x, data.y, data.z, data.t);
+    }
+
+    /**
+     * 发布一个样本（生产者线程）
+     *
+     * @return 样本的序号
+     */
+    public long publish(long timestamp, int index, double x, double y, double z, double t) {
+        long sequence = published.get();
+        // 写入 sequence 会覆盖 sequence - capacity，要求所有消费者都已读到它之后
+        long required = sequence - capacity + 1;
+        if (required > cachedMinNext) {
+            cachedMinNext = claim(required, sequence);
+        }
+        int slot = (int) sequence & mask;
+        timestamps[slot] = timestamp;
+        indexes[slot] = index;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        ts[slot] = t;
+        published.lazySet(sequence + 1);
+        return sequence;
+    }
+
+    // 等待阻塞型消费者、推进丢弃型消费者，返回所有消费者中最小的读取位置
+    private long claim(long required, long sequence) {
+        long min = sequence;
+        for (Cursor cursor : cursors) {
+            while (true) {
+                long n = cursor.next.get();
+                if (n >= required) {
+                    min = Math.min(min, n);
+                    break;
+                }
+                if (cursor.gating) {
+                    LockSupport.parkNanos(this, WAIT_NANOS);
+                    if (!isRegistered(cursor)) {
+                        break;
+                    }
+                } else {
+                    // 一次多推进四分之一容量，避免慢消费者让之后每次发布都要 CAS
+                    long target = Math.min(sequence, required + capacity / 4);
+                    if (cursor.next.compareAndSet(n, target)) {
+                        cursor.lostCount += target - n;
+                        min = Math.min(min, target);
+                        break;
+                    }
+                }
+            }
+        }
+        return min;
+    }
+
+    private boolean isRegistered(Cursor cursor) {
+        for (Cursor c : cursors) {
+            if (c == cursor) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.bletest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描候选设备表
+ * 按地址记录每个设备的平滑 RSSI、最近一次出现的时间和出现次数，按 信号强度 和 新鲜度 综合排序：
+ * 分数 = 平滑 RSSI - 每秒衰减 × 距上次出现的秒数。长时间没有再出现的设备被移除。
+ * 不是线程安全的，只在扫描回调所在的线程上使用。
+ *
+ * @param <T> 设备对象（BluetoothDevice）
+ */
+public final class ScanCandidateTable<T> {
+
+    // RSSI 指数平滑系数
+    private static final double RSSI_SMOOTHING = 0.3;
+
+    /**
+     * 一个候选设备
+     */
+    public static final class Candidate<T> {
+        private final String address;
+        private T device;
+        private String name;
+        private double smoothedRssi;
+        private int lastRssi;
+        private long lastSeenNanos;
+        private int seenCount;
+        private double score;
+
+        Candidate(String address) {
+            this.address = address;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public T getDevice() {
+            return device;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getSmoothedRssi() {
+            return smoothedRssi;
+        }
+
+        public int getLastRssi() {
+            return lastRssi;
+        }
+
+        public long getLastSeenNanos() {
+            return lastSeenNanos;
+        }
+
+        public int getSeenCount() {
+            return seenCount;
+        }
+
+        /**
+         * 最近一次排序时计算的分数
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private final Map<String, Candidate<T>> candidates = new LinkedHashMap<>();
+    private final double stalePenaltyPerSecond;
+    private final long expiryNanos;
+
+    /**
+     * @param stalePenaltyPerSecond 每秒没有出现时扣除的分数（dB）
+     * @param expiryMs              超过该时间没有出现的设备被移除
+     */
+    public ScanCandidateTable(double stalePenaltyPerSecond, long expiryMs) {
+        this.stalePenaltyPerSecond = stalePenaltyPerSecond;
+        this.expiryNanos = expiryMs * 1_000_000L;
+    }
+
+    /**
+     * 记录一次扫描结果
+     *
+     * @param nowNanos 扫描结果的时间，所有调用使用同一个时钟
+     */
+    public Candidate<T> update(String address, String name, T device, int rssi, long nowNanos) {
+        Candidate<T> candidate = candidates.get(address);
+        if (candidate == null) {
+            candidate = new Candidate<>(address);
+            candidate.smoothedRssi = rssi;
+            candidates.put(address, candidate);
+        } else {
+            candidate.smoothedRssi += RSSI_SMOOTHING * (rssi - candidate.smoothedRssi);
+        }
+        candidate.device = device;
+        if (name != null) {
+            candidate.name = name;
+        }
+        candidate.lastRssi = rssi;
+        candidate.lastSeenNanos = Math.max(candidate.lastSeenNanos, nowNanos);
+        candidate.seenCount++;
+        return candidate;
+    }
+
+    /**
+     * 移除过期的设备，返回按分数从高到低排序的候选设备
+     */
+    public List<Candidate<T>> ranked(long nowNanos) {
+        List<Candidate<T>> result = new ArrayList<>(candidates.size());
+        Iterator<Candidate<T>> it = candidates.values().iterator();
+        while (it.hasNext()) {
+            Candidate<T> candidate = it.next();
+            long age = Math.max(0, nowNanos - candidate.lastSeenNanos);
+            if (age > expiryNanos) {
+                it.remove();
+                continue;
+            }
+            candidate.score = candidate.smoothedRssi - stalePenaltyPerSecond * age / 1e9;
+            result.add(candidate);
+        }
+        Collections.sort(result, (a, b) -> Double.compare(b.score, a.score));
+        return result;
+    }
+
+    /**
+     * 分数最高的候选设备，没有时返回 null
+     */
+    public Candidate<T> best(long nowNanos) {
+        List<Candidate<T>> ranked = ranked(nowNanos);
+        return ranked.isEmpty() ? null : ranked.get(0);
+    }
+
+    public int size() {
+        return candidates.size();
+    }
+
+    public void clear() {
+        candidates.clear();
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.bletest;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 按列存储的传感器数据（有界环形）
+ * 时间戳、索引和 x/y/z/t 各自保存在基本类型数组中，按固定大小分块，块在第一次写入时才分配，
+ * 每行约 44 字节，没有对象头和引用开销。最多保留最近 capacity 行，写满后新行覆盖最旧的行，
+ * 内存占用不随运行时间增长。行号 0 总是当前保留的最旧一行。
+ * 读取时通过复用的 {@link SensorData} 对象（享元）访问某一行，不为每行创建对象。
+ * 写入（分发线程）、清空（主线程）和读取通过对象锁同步。
+ */
+public final class SensorDataStore implements Iterable<SensorData> {
+
+    // 每块 4096 行
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int capacity;
+    private final int chunkMask;
+
+    private final long[][] timestamps;
+    private final int[][] indices;
+    private final double[][] xs;
+    private final double[][] ys;
+    private final double[][] zs;
+    private final double[][] ts;
+
+    // 已追加的总行数和已被覆盖的行数，保留的是序号 [first, end) 的行
+    private long first;
+    private long end;
+
+    // 时间戳是否按非递减顺序追加，是则按时间查询可以二分查找
+    private boolean sorted = true;
+    // 每次 clear() 加一，迭代器据此结束遍历
+    private int generation;
+
+    /**
+     * @param capacity 最多保留的行数，向上取整为块大小乘以 2 的幂
+     */
+    public SensorDataStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity >= 1: " + capacity);
+        }
+        int chunks = (capacity + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        chunks = Integer.highestOneBit(Math.max(chunks, 2) - 1) << 1;
+        this.capacity = chunks << CHUNK_SHIFT;
+        this.chunkMask = chunks - 1;
+        this.timestamps = new long[chunks][];
+        this.indices = new int[chunks][];
+        this.xs = new double[chunks][];
+        this.ys = new double[chunks][];
+        this.zs = new double[chunks][];
+        this.ts = new double[chunks][];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 追加一行数据，已满时覆盖最旧的一行
+     */
+    public synchronized void append(long timestamp, int index, double x, double y, double z, double t) {
+        if (end > first && timestamp < timestamps[chunk(end - 1)][offset(end - 1)]) {
+            sorted = false;
+        }
+        int chunk = chunk(end);
+        if (timestamps[chunk] == null) {
+            allocateChunk(chunk);
+        }
+        int offset = offset(end);
+        timestamps[chunk][offset] = timestamp;
+        indices[chunk][offset] = index;
+        xs[chunk][offset] = x;
+        ys[chunk][offset] = y;
+        zs[chunk][offset] = z;
+        ts[chunk][offset] = t;
+        end++;
+        if (end - first > capacity) {
+            first++;
+        }
+    }
+
+    /**
+     * 追加一行数据，只拷贝字段，不持有 data 对象
+     */
+    public void append(SensorData data) {
+        append(data.timestamp, data.index, data.x, data.y, data.z, data.t);
+    }
+
+    public synchronized int size() {
+        return (int) (end - first);
+    }
+
+    /**
+     * 因容量不足被覆盖的行数
+     */
+    public synchronized long getOverwrittenCount() {
+        return first;
+    }
+
+    /**
+     * 清空数据，已分配的块保留供后续复用
+     */
+    public synchronized void clear() {
+        first = 0;
+        end = 0;
+        sorted = true;
+        generation++;
+    }
+
+    /**
+     * 将第 row 行读入 into 对象
+     *
+     * @param row  行号
+     * @param into 复用的输出对象
+     * @return into
+     */
+    public synchronized SensorData get(int row, SensorData into) {
+        long seq = sequence(row);
+        int chunk = chunk(seq);
+        int offset = offset(seq);
+        into.timestamp = timestamps[chunk][offset];
+        into.index = indices[chunk][offset];
+        into.x = xs[chunk][offset];
+        into.y = ys[chunk][offset];
+        into.z = zs[chunk][offset];
+        into.t = ts[chunk][offset];
+        return into;
+    }
+
+    public synchronized long timestamp(int row) {
+        long seq = sequence(row);
+        return timestamps[chunk(seq)][offset(seq)];
+    }
+
+    public synchronized int index(int row) {
+        long seq = sequence(row);
+        return indices[chunk(seq)][offset(seq)];
+    }
+
+    public synchronized double x(int row) {
+        long seq = sequence(row);
+        return xs[chunk(seq)][offset(seq)];
+    }
+
+    public synchronized double y(int row) {
+        long seq = sequence(row);
+        return ys[chunk(seq)][offset(seq)];
+    }
+
+    public synchronized double z(int row) {
+        long seq = sequence(row);
+        return zs[chunk(seq)][offset(seq)];
+    }
+
+    public synchronized double t(int row) {
+        long seq = sequence(row);
+        return ts[chunk(seq)][offset(seq)];
+    }
+
+    /**
+     * 查找第一个时间戳 >= timestamp 的行
+     *
+     * @return 行号，不存在时返回 size()
+     */
+    public synchronized int lowerBound(long timestamp) {
+        int size = (int) (end - first);
+        if (!sorted) {
+            for (int row = 0; row < size; row++) {
+                if (rowTimestamp(row) >= timestamp) return row;
+            }
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rowTimestamp(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 查找最后一个时间戳 <= timestamp 的行之后的行号
+     *
+     * @return 行号，不存在时返回 0
+     */
+    public synchronized int upperBound(long timestamp) {
+        int size = (int) (end - first);
+        if (!sorted) {
+            for (int row = size - 1; row >= 0; row--) {
+                if (rowTimestamp(row) <= timestamp) return row + 1;
+            }
+            return 0;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rowTimestamp(mid) <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 遍历时间戳在 [from, to] 之间的行
+     * 时间戳乱序追加时在 [lowerBound(from), upperBound(to)) 的行号范围内逐行过滤，只返回范围内的行
+     * 迭代器每次返回同一个复用的 SensorData 对象，需要保留时请自行拷贝
+     */
+    public synchronized Iterator<SensorData> rangeByTime(long from, long to) {
+        return new RowIterator(lowerBound(from), upperBound(to), from, to, !sorted);
+    }
+
+    /**
+     * 遍历全部行，迭代器每次返回同一个复用的 SensorData 对象
+     */
+    @Override
+    public synchronized Iterator<SensorData> iterator() {
+        return new RowIterator(0, size(), 0, 0, false);
+    }
+
+    /**
+     * 遍历 [fromRow, toRow) 行，迭代器每次返回同一个复用的 SensorData 对象
+     */
+    public synchronized Iterator<SensorData> iterator(int fromRow, int toRow) {
+        return new RowIterator(fromRow, toRow, 0, 0, false);
+    }
+
+    private int chunk(long seq) {
+        return (int) (seq >>> CHUNK_SHIFT) & chunkMask;
+    }
+
+    private static int offset(long seq) {
+        return (int) seq & CHUNK_MASK;
+    }
+
+    private long rowTimestamp(int row) {
+        long seq = first + row;
+        return timestamps[chunk(seq)][offset(seq)];
+    }
+
+    private void allocateChunk(int chunk) {
+        timestamps[chunk] = new long[CHUNK_SIZE];
+        indices[chunk] = new int[CHUNK_SIZE];
+        xs[chunk] = new double[CHUNK_SIZE];
+        ys[chunk] = new double[CHUNK_SIZE];
+        zs[chunk] = new double[CHUNK_SIZE];
+        ts[chunk] = new double[CHUNK_SIZE];
+    }
+
+    private long sequence(int row) {
+        if (row < 0 || row >= end - first) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + (end - first));
+        }
+        return first + row;
+    }
+
+    // 享元迭代器：所有行共享一个 SensorData 对象
+    // 按追加序号遍历，遍历期间被覆盖的行会跳过，期间 clear() 后遍历结束
+    private final class RowIterator implements Iterator<SensorData> {
+        private final SensorData view = new SensorData(0, 0, 0, 0, 0, 0);
+        private final long endSeq;
+        private final long from;
+        private final long to;
+        private final boolean filter;
+        private final int createdGeneration = generation;
+        private long seq;
+
+        RowIterator(int fromRow, int toRow, long from, long to, boolean filter) {
+            this.seq = first + Math.max(fromRow, 0);
+            this.endSeq = first + Math.min(toRow, end - first);
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (SensorDataStore.this) {
+                if (generation != createdGeneration) {
+                    return false;
+                }
+                seq = Math.max(seq, first);
+                long last = Math.min(endSeq, end);
+                while (seq < last) {
+                    long timestamp = timestamps[chunk(seq)][offset(seq)];
+                    if (!filter || (timestamp >= from && timestamp <= to)) {
+                        return true;
+                    }
+                    seq++;
+                }
+                return false;
+            }
+        }
+
+        @Override
+        public SensorData next() {
+            synchronized (SensorDataStore.this) {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long current = seq++;
+                int chunk = chunk(current);
+                int offset = offset(current);
+                view.timestamp = timestamps[chunk][offset];
+                view.index = indices[chunk][offset];
+                view.x = xs[chunk][offset];
+                view.y = ys[chunk][offset];
+                view.z = zs[chunk][offset];
+                view.t = ts[chunk][offset];
+                return view;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.bletest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 录制文件读取器
+ * 通过 FileChannel.map 内存映射二进制录制文件（见 {@link BinaryRecordingFormat}），
+ * 记录不加载到堆上，按下标访问为 O(1)，按时间查询为 O(log n)。
+ * 时间查询要求设备时间戳按非递减顺序录制。
+ * 文本格式的录制文件需要先以二进制格式重新录制，本类只读取 .bin 文件。
+ */
+public final class SessionReader implements Closeable {
+
+    // 每个映射段的最大记录数，保证单段不超过 MappedByteBuffer 的 2GB 上限
+    private static final int SEGMENT_RECORDS = 1 << 24;
+
+    private final RandomAccessFile file;
+    private final BinaryRecordingFormat.Header header;
+    private final BinaryRecordingFormat.Footer footer;
+    private final MappedByteBuffer[] segments;
+    private final int recordSize;
+    private final double valueScale;
+    private final long count;
+
+    /**
+     * 打开并映射录制文件
+     *
+     * @param binaryFile 二进制录制文件
+     */
+    public SessionReader(File binaryFile) throws IOException {
+        file = new RandomAccessFile(binaryFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            header = BinaryRecordingFormat.readHeader(channel);
+            footer = BinaryRecordingFormat.readFooter(channel, header);
+            count = BinaryRecordingFormat.recordCount(channel, header, footer);
+            recordSize = header.recordSize;
+            valueScale = header.valueScale;
+
+            int segmentCount = (int) ((count + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i * SEGMENT_RECORDS;
+                long records = Math.min(SEGMENT_RECORDS, count - first);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        header.headerSize + first * recordSize, records * recordSize);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments[i] = segment;
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 样本总数
+     */
+    public long count() {
+        return count;
+    }
+
+    public String getDeviceName() {
+        return header.deviceName;
+    }
+
+    public long getStartTimeMillis() {
+        return header.startTimeMillis;
+    }
+
+    /**
+     * 文件是否正常关闭（带有稀疏索引）
+     */
+    public boolean hasIndex() {
+        return footer != null;
+    }
+
+    /**
+     * 读取第 index 个样本
+     *
+     * @param index 样本下标
+     * @param into  复用的输出对象
+     * @return into
+     */
+    public SensorData sampleAt(long index, SensorData into) {
+        checkIndex(index);
+        MappedByteBuffer segment = segments[(int) (index / SEGMENT_RECORDS)];
+        int offset = (int) (index % SEGMENT_RECORDS) * recordSize;
+        into.timestamp = segment.getLong(offset + 8);
+        into.index = segment.getInt(offset + 16);
+        into.x = segment.getInt(offset + 20) / valueScale;
+        into.y = segment.getInt(offset + 24) / valueScale;
+        into.z = segment.getInt(offset + 28) / valueScale;
+        into.t = segment.getInt(offset + 32) / valueScale;
+        return into;
+    }
+
+    /**
+     * 第 index 个样本的设备时间戳
+     */
+    public long timestampAt(long index) {
+        checkIndex(index);
+        return segments[(int) (index / SEGMENT_RECORDS)].getLong((int) (index % SEGMENT_RECORDS) * recordSize + 8);
+    }
+
+    /**
+     * 第 index 个样本录制时的手机时间（UTC 毫秒）
+     */
+    public long wallTimeAt(long index) {
+        checkIndex(index);
+        return segments[(int) (index / SEGMENT_RECORDS)].getLong((int) (index % SEGMENT_RECORDS) * recordSize);
+    }
+
+    /**
+     * 查找第一个时间戳 >= timestamp 的样本
+     *
+     * @return 样本下标，不存在时返回 count()
+     */
+    public long lowerBound(long timestamp) {
+        return search(timestamp, false);
+    }
+
+    /**
+     * 查找第一个时间戳 > timestamp 的样本
+     *
+     * @return 样本下标，不存在时返回 count()
+     */
+    public long upperBound(long timestamp) {
+        return search(timestamp, true);
+    }
+
+    /**
+     * 遍历时间戳在 [t0, t1] 之间的样本
+     * 迭代器每次返回同一个复用的 SensorData 对象，需要保留时请自行拷贝
+     */
+    public Iterator<SensorData> samplesBetween(long t0, long t1) {
+        return new SampleIterator(lowerBound(t0), upperBound(t1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * 二分查找；有稀疏索引时先在索引中定位到 INDEX_INTERVAL 条记录的范围，减少访问的页面
+     */
+    private long search(long timestamp, boolean upper) {
+        long low = 0;
+        long high = count;
+        if (footer != null && footer.indexTimestamps.length > 0) {
+            long[] keys = footer.indexTimestamps;
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (upper ? keys[mid] <= timestamp : keys[mid] < timestamp) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            // 结果位于第 lo-1 个索引项与第 lo 个索引项之间
+            long interval = footer.indexInterval;
+            low = lo == 0 ? 0 : (lo - 1) * interval;
+            high = Math.min(count, lo * interval);
+        }
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            long value = timestampAt(mid);
+            if (upper ? value <= timestamp : value < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + count);
+        }
+    }
+
+    // 享元迭代器：所有样本共享一个 SensorData 对象
+    private final class SampleIterator implements Iterator<SensorData> {
+        private final SensorData view = new SensorData(0, 0, 0, 0, 0, 0);
+        private final long end;
+        private long next;
+
+        SampleIterator(long from, long to) {
+            this.next = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public SensorData next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            return sampleAt(next++, view);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.bletest;
+
+/**
+ * 流式频谱分析
+ * 对 x/y/z 三个轴分别保留最近 fftSize 个样本，窗口填满后每 hop 个样本（hop 小于 fftSize 时窗口重叠）
+ * 做一次 Hann 窗 + FFT，输出每个轴在各频带内的能量和峰值频率。
+ * 频带能量按 Parseval 定理换算为该频带对信号均方值的贡献（与原始数值的平方同单位），
+ * 幅值为 A 的正弦信号在其所在频带的能量约为 A²/2。0 Hz（直流，如重力分量）只计入包含 0 Hz 的频带。
+ * 所有缓冲区在构造时分配，输出对象复用。不是线程安全的，只在一个线程（接收流水线的分发线程）上使用。
+ */
+public final class SpectralAnalyzer {
+
+    public static final int AXIS_X = 0;
+    public static final int AXIS_Y = 1;
+    public static final int AXIS_Z = 2;
+    public static final int AXIS_COUNT = 3;
+
+    /**
+     * 频谱输出回调
+     */
+    public interface Listener {
+        /**
+         * @param spectrum 复用对象，只在回调内有效
+         */
+        void onSpectrum(Spectrum spectrum);
+    }
+
+    /**
+     * 一个窗口的频谱摘要
+     */
+    public static final class Spectrum {
+        public long startTimestamp;
+        public long endTimestamp;
+        public int lastIndex;
+        // 按 轴 * bandCount + 频带 排列
+        public final double[] bandEnergies;
+        // 每个轴能量最大的频点（不含直流）对应的频率（Hz）
+        public final double[] peakFrequencies = new double[AXIS_COUNT];
+        private final int bandCount;
+
+        Spectrum(int bandCount) {
+            this.bandCount = bandCount;
+            this.bandEnergies = new double[AXIS_COUNT * bandCount];
+        }
+
+        public int getBandCount() {
+            return bandCount;
+        }
+
+        public double getBandEnergy(int axis, int band) {
+            return bandEnergies[axis * bandCount + band];
+        }
+    }
+
+    private final Fft fft;
+    private final int fftSize;
+    private final int hop;
+    private final double sampleRateHz;
+    private final Listener listener;
+    private final Spectrum spectrum;
+
+    // 每个频带包含的频点范围 [bandFirstBin, bandLastBin]
+    private final int[] bandFirstBin;
+    private final int[] bandLastBin;
+
+    private final double[] window;
+    // 单边功率谱换算为均方值的系数
+    private final double powerScale;
+
+    // 输入环形缓冲区，按样本序号 & (fftSize - 1) 存放
+    private final double[][] input = new double[AXIS_COUNT][];
+    private final long[] timestamps;
+    private final int[] indices;
+    private final double[] re;
+    private final double[] im;
+    private long count;
+    private long spectrumCount;
+
+    /**
+     * @param fftSize      FFT 点数（2 的幂），即窗口样本数
+     * @param hop          窗口填满后每隔多少个样本分析一次，fftSize / 2 为 50% 重叠
+     * @param sampleRateHz 采样率
+     * @param bandEdgesHz  频带边界，n+1 个递增的频率定义 n 个频带 [edge[i], edge[i+1])，最后一个频带包含上边界
+     */
+    public SpectralAnalyzer(int fftSize, int hop, double sampleRateHz, double[] bandEdgesHz, Listener listener) {
+        if (hop < 1 || sampleRateHz <= 0 || bandEdgesHz.length < 2) {
+            throw new IllegalArgumentException("hop >= 1, sampleRateHz > 0, 至少一个频带");
+        }
+        this.fft = new Fft(fftSize);
+        this.fftSize = fftSize;
+        this.hop = hop;
+        this.sampleRateHz = sampleRateHz;
+        this.listener = listener;
+
+        int bandCount = bandEdgesHz.length - 1;
+        this.spectrum = new Spectrum(bandCount);
+        this.bandFirstBin = new int[bandCount];
+        this.bandLastBin = new int[bandCount];
+        double binHz = sampleRateHz / fftSize;
+        int maxBin = fftSize / 2;
+        for (int b = 0; b < bandCount; b++) {
+            if (bandEdgesHz[b + 1] <= bandEdgesHz[b]) {
+                throw new IllegalArgumentException("频带边界必须递增: " + bandEdgesHz[b] + ", " + bandEdgesHz[b + 1]);
+            }
+            bandFirstBin[b] = (int) Math.min(maxBin + 1, Math.ceil(bandEdgesHz[b] / binHz));
+            int last = (int) Math.ceil(bandEdgesHz[b + 1] / binHz) - 1;
+            if (b == bandCount - 1 && bandEdgesHz[b + 1] / binHz == Math.floor(bandEdgesHz[b + 1] / binHz)) {
+                last++;
+            }
+            bandLastBin[b] = Math.min(maxBin, last);
+        }
+
+        this.window = new double[fftSize];
+        double windowPower = 0;
+        for (int i = 0; i < fftSize; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / fftSize);
+            windowPower += window[i] * window[i];
+        }
+        this.powerScale = 1.0 / (fftSize * windowPower);
+
+        for (int a = 0; a < AXIS_COUNT; a++) {
+            input[a] = new double[fftSize];
+        }
+        this.timestamps = new long[fftSize];
+        this.indices = new int[fftSize];
+        this.re = new double[fftSize];
+        this.im = new double[fftSize];
+    }
+
+    public int getFftSize() {
+        return fftSize;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    public double getSampleRateHz() {
+        return sampleRateHz;
+    }
+
+    /**
+     * 已输出的频谱数
+     */
+    public long getSpectrumCount() {
+        return spectrumCount;
+    }
+
+    public void add(SensorData data) {
+        add(data.timestamp, data.index, data.x, data.y, data.z);
+    }
+
+    /**
+     * 加入一个样本，窗口填满后每 hop 个样本分析一次
+     */
+    public void add(long timestamp, int index, double x, double y, double z) {
+        int slot = (int) (count & (fftSize - 1));
+        input[AXIS_X][slot] = x;
+        input[AXIS_Y][slot] = y;
+        input[AXIS_Z][slot] = z;
+        timestamps[slot] = timestamp;
+        indices[slot] = index;
+        count++;
+        if (count >= fftSize && (count - fftSize) % hop == 0) {
+            analyze();
+        }
+    }
+
+    /**
+     * 清空窗口（如数据流中断时）
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    private void analyze() {
+        int oldest = (int) (count & (fftSize - 1));
+        spectrum.startTimestamp = timestamps[oldest];
+        spectrum.endTimestamp = timestamps[(oldest - 1) & (fftSize - 1)];
+        spectrum.lastIndex = indices[(oldest - 1) & (fftSize - 1)];
+        int bandCount = spectrum.bandCount;
+        int half = fftSize / 2;
+
+        for (int a = 0; a < AXIS_COUNT; a++) {
+            double[] samples = input[a];
+            for (int i = 0; i < fftSize; i++) {
+                re[i] = samples[(oldest + i) & (fftSize - 1)] * window[i];
+                im[i] = 0;
+            }
+            fft.transform(re, im);
+
+            // 单边功率谱：除直流和奈奎斯特频点外乘 2，结果放回 re[0..N/2]
+            int peakBin = 1;
+            for (int k = 0; k <= half; k++) {
+                double power = (re[k] * re[k] + im[k] * im[k]) * powerScale;
+                if (k != 0 && k != half) {
+                    power *= 2;
+                }
+                re[k] = power;
+                if (k > 0 && power > re[peakBin]) {
+                    peakBin = k;
+                }
+            }
+            spectrum.peakFrequencies[a] = peakBin * sampleRateHz / fftSize;
+
+            int base = a * bandCount;
+            for (int b = 0; b < bandCount; b++) {
+                double energy = 0;
+                for (int k = bandFirstBin[b]; k <= bandLastBin[b]; k++) {
+                    energy += re[k];
+                }
+                spectrum.bandEnergies[base + b] = energy;
+            }
+        }
+        spectrumCount++;
+        listener.onSpectrum(spectrum);
+    }
+}
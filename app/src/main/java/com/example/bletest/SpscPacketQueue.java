@@ -0,0 +1,131 @@
+package com.example.bletest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者单消费者的无锁数据包队列
+ * 预先分配 capacity 个定长槽位，入队时把数据包拷贝进槽位，不创建对象。
+ * 生产者和消费者各自只写自己的序号（lazySet 发布），读取对方序号时先用本地缓存，减少 volatile 读。
+ * 长度为 {@link #FLUSH_MARKER} 的槽位是控制标记，不携带数据。
+ */
+public final class SpscPacketQueue {
+
+    public static final int FLUSH_MARKER = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final int slotSize;
+    private final byte[] data;
+    private final int[] lengths;
+    private final long[] enqueueNanos;
+
+    private final AtomicLong tail = new AtomicLong();  // 生产者写入
+    private final AtomicLong head = new AtomicLong();  // 消费者写入
+    private long cachedHead;  // 只在生产者线程使用
+    private long cachedTail;  // 只在消费者线程使用
+
+    /**
+     * @param capacity 槽位数，向上取整为 2 的幂
+     * @param slotSize 每个槽位的字节数，更长的数据包会拆分到多个槽位
+     */
+    public SpscPacketQueue(int capacity, int slotSize) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.slotSize = slotSize;
+        this.data = new byte[this.capacity * slotSize];
+        this.lengths = new int[this.capacity];
+        this.enqueueNanos = new long[this.capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int slotSize() {
+        return slotSize;
+    }
+
+    /**
+     * 入队一个数据包（生产者线程）
+     *
+     * @return 空间不足时返回 false，此时数据包整个没有入队
+     */
+    public boolean offer(byte[] buf, int off, int len, long nanos) {
+        int slots = Math.max(1, (len + slotSize - 1) / slotSize);
+        long t = tail.get();
+        if (t + slots - cachedHead > capacity) {
+            cachedHead = head.get();
+            if (t + slots - cachedHead > capacity) {
+                return false;
+            }
+        }
+        for (int i = 0; i < slots; i++) {
+            int slot = (int) (t + i) & mask;
+            int chunk = Math.min(slotSize, len - i * slotSize);
+            System.arraycopy(buf, off + i * slotSize, data, slot * slotSize, chunk);
+            lengths[slot] = chunk;
+            enqueueNanos[slot] = nanos;
+        }
+        tail.lazySet(t + slots);
+        return true;
+    }
+
+    /**
+     * 入队一个控制标记（生产者线程）
+     */
+    public boolean offerMarker(long nanos) {
+        long t = tail.get();
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                return false;
+            }
+        }
+        int slot = (int) t & mask;
+        lengths[slot] = FLUSH_MARKER;
+        enqueueNanos[slot] = nanos;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * 队首槽位的下标（消费者线程），队列为空时返回 -1
+     * 数据位于 {@link #data()} 的 slot * slotSize 处，处理完后调用 {@link #release()}
+     */
+    public int peek() {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return -1;
+            }
+        }
+        return (int) h & mask;
+    }
+
+    /**
+     * 释放队首槽位（消费者线程）
+     */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    public int length(int slot) {
+        return lengths[slot];
+    }
+
+    public long enqueueNanos(int slot) {
+        return enqueueNanos[slot];
+    }
+
+    /**
+     * 当前队列中的槽位数，可以在任意线程调用（近似值）
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bletest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者单消费者的无锁样本队列
+ * 样本按列存放在预先分配的基本类型数组中，入队和出队都不创建对象。
+ */
+public final class SpscSampleQueue {
+
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] indexes;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final double[] ts;
+    private final long[] receivedNanos;
+
+    private final AtomicLong tail = new AtomicLong();  // 生产者写入
+    private final AtomicLong head = new AtomicLong();  // 消费者写入
+    private long cachedHead;  // 只在生产者线程使用
+    private long cachedTail;  // 只在消费者线程使用
+    private long polledNanos; // 只在消费者线程使用
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public SpscSampleQueue(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.timestamps = new long[this.capacity];
+        this.indexes = new int[this.capacity];
+        this.xs = new double[this.capacity];
+        this.ys = new double[this.capacity];
+        this.zs = new double[this.capacity];
+        this.ts = new double[this.capacity];
+        this.receivedNanos = new long[this.capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 入队一个样本（生产者线程）
+     *
+     * @param nanos 样本所在数据包的接收时间，用于统计端到端延迟
+     * @return 队列已满时返回 false
+     */
+    public boolean offer(SensorData data, long nanos) {
+        long t = tail.get();
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                return false;
+            }
+        }
+        int slot = (int) t & mask;
+        timestamps[slot] = data.timestamp;
+        indexes[slot] = data.index;
+        xs[slot] = data.x;
+        ys[slot] = data.y;
+        zs[slot] = data.z;
+        ts[slot] = data.t;
+        receivedNanos[slot] = nanos;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * 出队一个样本到 into（消费者线程）
+     *
+     * @return 队列为空时返回 false 且不修改 into
+     */
+    public boolean poll(SensorData into) {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return false;
+            }
+        }
+        int slot = (int) h & mask;
+        into.timestamp = timestamps[slot];
+        into.index = indexes[slot];
+        into.x = xs[slot];
+        into.y = ys[slot];
+        into.z = zs[slot];
+        into.t = ts[slot];
+        polledNanos = receivedNanos[slot];
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * 上一次 {@link #poll(SensorData)} 取出的样本的接收时间（消费者线程）
+     */
+    public long polledNanos() {
+        return polledNanos;
+    }
+
+    /**
+     * 当前队列中的样本数，可以在任意线程调用（近似值）
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bletest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 文本格式的样本编码器，与原 px_*.txt 文件的格式相同：
+ * "世界时间, 时间戳, 索引, X, Y, Z, T"
+ * 时间和数值直接以 ASCII 写入缓冲区，每行不创建对象；数值与 %.3f 的结果相同（小数点固定为 '.'）。
+ */
+public final class TextSampleEncoder implements SampleEncoder {
+
+    private static final int DECIMALS = 3;
+    private static final byte[] SEPARATOR = {',', ' '};
+
+    private static final byte[] HEADER = "世界时间, 时间戳, 索引, X, Y, Z, T\n".getBytes(StandardCharsets.UTF_8);
+
+    // 19 字节时间 + 20 位时间戳 + 11 位索引 + 4 个数值（%.3f 最长 314 字节）及分隔符
+    private static final int MAX_RECORD_SIZE = 1536;
+
+    // 只在写入线程上使用
+    private final TimestampEncoder timestampEncoder;
+
+    public TextSampleEncoder() {
+        this(new TimestampEncoder());
+    }
+
+    /**
+     * @param timestampEncoder 世界时间编码器，可选择由设备时间戳推算世界时间
+     */
+    public TextSampleEncoder(TimestampEncoder timestampEncoder) {
+        this.timestampEncoder = timestampEncoder;
+    }
+
+    @Override
+    public int maxRecordSize() {
+        return MAX_RECORD_SIZE;
+    }
+
+    @Override
+    public boolean isAppendable() {
+        return true;
+    }
+
+    @Override
+    public void writeHeader(ByteBuffer out, boolean emptyFile) {
+        timestampEncoder.reset();
+        // 如果文件为空时，写入表头
+        if (emptyFile) {
+            out.put(HEADER);
+        }
+    }
+
+    @Override
+    public void encode(ByteBuffer out, long wallTimeMillis, long timestamp, int index,
+                       double x, double y, double z, double t) {
+        // 等同于 String.format("%s, %d, %d, %.3f, %.3f, %.3f, %.3f\n", ...)
+        timestampEncoder.write(out, wallTimeMillis, timestamp);
+        out.put(SEPARATOR);
+        DecimalWriter.writeLong(out, timestamp);
+        out.put(SEPARATOR);
+        DecimalWriter.writeLong(out, index);
+        out.put(SEPARATOR);
+        DecimalWriter.writeFixed(out, x, DECIMALS);
+        out.put(SEPARATOR);
+        DecimalWriter.writeFixed(out, y, DECIMALS);
+        out.put(SEPARATOR);
+        DecimalWriter.writeFixed(out, z, DECIMALS);
+        out.put(SEPARATOR);
+        DecimalWriter.writeFixed(out, t, DECIMALS);
+        out.put((byte) '\n');
+    }
+
+    @Override
+    public void writeFooter(ByteBuffer out) {
+        // 文本格式没有文件尾
+    }
+
+    @Override
+    public int maxFooterSize() {
+        return 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.bletest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 世界时间（UTC）编码器，输出 "yyyy-MM-dd HH:mm:ss"，与原来的 SimpleDateFormat 格式相同
+ * 同一秒内的样本共用缓存的 19 字节前缀，跨秒时用整数运算重新计算日期，不创建对象。
+ * 非线程安全，只在写入线程上使用。
+ *
+ * 可选的设备时钟模式：每个文件的第一条样本作为锚点，之后的世界时间由
+ * 锚点时间 + (设备时间戳 - 锚点时间戳) * 每个时间戳单位的毫秒数 推算，
+ * 不再受手机收到数据包时刻的抖动影响。设备时间戳回退（设备重启）时重新取锚点。
+ */
+public final class TimestampEncoder {
+
+    public static final int LENGTH = 19;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private final double millisPerTick;
+
+    private final byte[] cached = new byte[LENGTH];
+    private long cachedSecond = Long.MIN_VALUE;
+
+    private boolean anchored;
+    private long anchorWallTime;
+    private long anchorTimestamp;
+
+    // 年份超出 1583-9999 时回退到 SimpleDateFormat（1582 年之前它使用儒略历），按需创建
+    private SimpleDateFormat fallbackFormat;
+
+    /**
+     * 使用每条样本入队时的手机时间
+     */
+    public TimestampEncoder() {
+        this(0);
+    }
+
+    private TimestampEncoder(double millisPerTick) {
+        this.millisPerTick = millisPerTick;
+    }
+
+    /**
+     * 由设备时间戳推算世界时间
+     *
+     * @param millisPerTick 设备时间戳每个单位对应的毫秒数
+     */
+    public static TimestampEncoder derivedFromDeviceClock(double millisPerTick) {
+        if (!(millisPerTick > 0)) {
+            throw new IllegalArgumentException("millisPerTick: " + millisPerTick);
+        }
+        return new TimestampEncoder(millisPerTick);
+    }
+
+    public boolean isDerivedFromDeviceClock() {
+        return millisPerTick > 0;
+    }
+
+    /**
+     * 丢弃锚点，下一条样本重新作为锚点（打开新文件时调用）
+     */
+    public void reset() {
+        anchored = false;
+    }
+
+    /**
+     * 按当前模式计算样本的世界时间（UTC 毫秒）
+     */
+    public long wallTime(long wallTimeMillis, long timestamp) {
+        if (millisPerTick <= 0) {
+            return wallTimeMillis;
+        }
+        if (!anchored || timestamp < anchorTimestamp) {
+            anchored = true;
+            anchorWallTime = wallTimeMillis;
+            anchorTimestamp = timestamp;
+        }
+        return anchorWallTime + Math.round((timestamp - anchorTimestamp) * millisPerTick);
+    }
+
+    /**
+     * 写入样本的世界时间
+     */
+    public void write(ByteBuffer out, long wallTimeMillis, long timestamp) {
+        writeUtc(out, wallTime(wallTimeMillis, timestamp));
+    }
+
+    /**
+     * 写入 UTC 毫秒对应的 "yyyy-MM-dd HH:mm:ss"
+     */
+    public void writeUtc(ByteBuffer out, long millis) {
+        long second = Math.floorDiv(millis, MILLIS_PER_SECOND);
+        if (second != cachedSecond) {
+            if (!formatSecond(second)) {
+                writeFallback(out, millis);
+                return;
+            }
+            cachedSecond = second;
+        }
+        out.put(cached);
+    }
+
+    /**
+     * 把 epoch 秒转换为日期时间并写入缓存，算法见 Howard Hinnant 的 civil_from_days
+     *
+     * @return 年份超出 1583-9999 时返回 false
+     */
+    private boolean formatSecond(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 1583 || year > 9999) {
+            return false;
+        }
+
+        put(0, (int) year, 4);
+        cached[4] = '-';
+        put(5, month, 2);
+        cached[7] = '-';
+        put(8, day, 2);
+        cached[10] = ' ';
+        put(11, secondOfDay / 3600, 2);
+        cached[13] = ':';
+        put(14, secondOfDay / 60 % 60, 2);
+        cached[16] = ':';
+        put(17, secondOfDay % 60, 2);
+        return true;
+    }
+
+    private void put(int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            cached[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private void writeFallback(ByteBuffer out, long millis) {
+        if (fallbackFormat == null) {
+            fallbackFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            fallbackFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+        out.put(fallbackFormat.format(new Date(millis)).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.bletest;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 多设备样本按时间戳合并
+ * 每个设备（源）有自己的无锁样本队列，由该设备的分发线程写入；合并线程取出各源的队首样本，
+ * 每次输出时间最早的一个，得到按时间排序的单一数据流。
+ *
+ * 各设备的时钟互相独立，合并前先对齐到手机的单调时钟：源的第一个样本到达时记录
+ * 偏移 = 到达时间 - 设备时间戳，之后的样本按 设备时间戳 + 偏移 排序。
+ * 某个源暂时没有样本时，其他源的样本最多等待 maxDelayMs 后输出，避免一个设备掉线拖住整个数据流；
+ * 晚于该延迟到达的样本仍然输出，但会计入乱序数。
+ */
+public final class TimestampMerger {
+
+    private static final int SOURCE_CAPACITY = 4096;
+    private static final long PARK_NANOS = 1_000_000L;
+
+    /**
+     * 合并后的样本回调，在合并线程上调用；data 是复用对象，只在回调内有效
+     */
+    public interface Listener {
+        void onSample(int source, SensorData data);
+
+        /**
+         * 已关闭的源输出完所有样本并被移除，之后不会再有该源的 onSample，在合并线程上调用
+         */
+        default void onSourceRemoved(int source) {
+        }
+    }
+
+    private static final class Source {
+        final int id;
+        final SpscSampleQueue queue = new SpscSampleQueue(SOURCE_CAPACITY);
+        volatile boolean closed;
+        volatile long droppedCount;
+
+        // ---- 以下只在合并线程使用 ----
+        final SensorData head = new SensorData(0, 0, 0, 0, 0, 0);
+        boolean hasHead;
+        long headKey;
+        long headArrivalNanos;
+        boolean offsetSet;
+        long offsetNanos;
+
+        Source(int id) {
+            this.id = id;
+        }
+    }
+
+    private final Listener listener;
+    private final double nanosPerTick;
+    private final long maxDelayNanos;
+    private final Thread thread;
+
+    private volatile Source[] sources = new Source[0];
+    private int nextSourceId;
+    private volatile boolean running = true;
+
+    // 统计，只由合并线程写入
+    private volatile long mergedCount;
+    private volatile long outOfOrderCount;
+    private long lastKey = Long.MIN_VALUE;
+
+    /**
+     * @param name          线程名后缀
+     * @param millisPerTick 设备时间戳的单位（毫秒）
+     * @param maxDelayMs    等待其他设备样本的最长时间
+     */
+    public TimestampMerger(String name, double millisPerTick, long maxDelayMs, Listener listener) {
+        this.listener = listener;
+        this.nanosPerTick = millisPerTick * 1_000_000.0;
+        this.maxDelayNanos = maxDelayMs * 1_000_000L;
+        this.thread = new Thread(this::mergeLoop, "TimestampMerger-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 注册一个源
+     *
+     * @return 源编号，用于 {@link #offer} 和 {@link Listener#onSample}
+     */
+    public synchronized int addSource() {
+        Source source = new Source(nextSourceId++);
+        Source[] current = sources;
+        Source[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = source;
+        sources = updated;
+        return source.id;
+    }
+
+    /**
+     * 关闭一个源（设备断开），已入队的样本输出完后移除并回调 {@link Listener#onSourceRemoved}，之后不再等待它
+     */
+    public void closeSource(int id) {
+        Source source = find(id);
+        if (source != null) {
+            source.closed = true;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 加入一个样本，只能由该源的一个线程调用
+     *
+     * @return 该源的队列已满时返回 false（样本被丢弃）
+     */
+    public boolean offer(int id, SensorData data) {
+        return offer(id, data, System.nanoTime());
+    }
+
+    /**
+     * 加入一个样本，只能由该源的一个线程调用
+     *
+     * @param arrivalNanos 样本到达手机的时间（System.nanoTime），用于对齐设备时钟
+     * @return 该源的队列已满时返回 false（样本被丢弃）
+     */
+    public boolean offer(int id, SensorData data, long arrivalNanos) {
+        Source source = find(id);
+        if (source == null || source.closed) {
+            return false;
+        }
+        if (!source.queue.offer(data, arrivalNanos)) {
+            source.droppedCount++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 停止合并，已入队的样本输出完后线程退出
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        thread.join(Math.max(1, timeoutMs));
+        return !thread.isAlive();
+    }
+
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * 输出时早于上一个已输出样本的样本数（到达太晚的样本）
+     */
+    public long getOutOfOrderCount() {
+        return outOfOrderCount;
+    }
+
+    /**
+     * 该源因队列已满被丢弃的样本数
+     */
+    public long getDroppedCount(int id) {
+        Source source = find(id);
+        return source != null ? source.droppedCount : 0;
+    }
+
+    private Source find(int id) {
+        for (Source source : sources) {
+            if (source.id == id) {
+                return source;
+            }
+        }
+        return null;
+    }
+
+    private void mergeLoop() {
+        while (true) {
+            Source[] current = sources;
+            long now = System.nanoTime();
+            Source earliest = null;
+            boolean allReady = true;
+            boolean anyClosedEmpty = false;
+            for (Source source : current) {
+                if (!source.hasHead && source.queue.poll(source.head)) {
+                    loadHead(source);
+                }
+                if (source.hasHead) {
+                    if (earliest == null || source.headKey < earliest.headKey) {
+                        earliest = source;
+                    }
+                } else if (source.closed) {
+                    anyClosedEmpty = true;
+                } else {
+                    allReady = false;
+                }
+            }
+            if (anyClosedEmpty) {
+                removeDrained();
+            }
+            if (earliest == null) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(this, PARK_NANOS);
+                continue;
+            }
+            // 所有源都有样本、等待超时或正在停止时输出最早的样本
+            if (allReady || !running || now - earliest.headArrivalNanos >= maxDelayNanos) {
+                emit(earliest);
+            } else {
+                LockSupport.parkNanos(this, Math.min(PARK_NANOS, maxDelayNanos - (now - earliest.headArrivalNanos)));
+            }
+        }
+    }
+
+    private void loadHead(Source source) {
+        source.hasHead = true;
+        source.headArrivalNanos = source.queue.polledNanos();
+        long deviceNanos = (long) (source.head.timestamp * nanosPerTick);
+        if (!source.offsetSet) {
+            source.offsetSet = true;
+            source.offsetNanos = source.headArrivalNanos - deviceNanos;
+        }
+        source.headKey = deviceNanos + source.offsetNanos;
+    }
+
+    private void emit(Source source) {
+        if (source.headKey < lastKey) {
+            outOfOrderCount++;
+        } else {
+            lastKey = source.headKey;
+        }
+        source.hasHead = false;
+        mergedCount++;
+        listener.onSample(source.id, source.head);
+    }
+
+    private void removeDrained() {
+        // 只在有源断开时执行，分配数组不影响正常的合并
+        int[] removed;
+        int removedCount = 0;
+        synchronized (this) {
+            Source[] current = sources;
+            int kept = 0;
+            Source[] updated = new Source[current.length];
+            removed = new int[current.length];
+            for (Source source : current) {
+                if (source.closed && !source.hasHead && source.queue.size() == 0) {
+                    removed[removedCount++] = source.id;
+                } else {
+                    updated[kept++] = source;
+                }
+            }
+            sources = Arrays.copyOf(updated, kept);
+        }
+        for (int i = 0; i < removedCount; i++) {
+            listener.onSourceRemoved(removed[i]);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.bletest;
+
+/**
+ * 触发式采集缓冲区（示波器式的预触发/后触发）
+ * 始终在基本类型环形数组中保留最近 capacity 条样本；触发后以触发时最新样本的设备时间戳为基准，
+ * 等到收到时间戳超过 触发时间 + 后触发时长 的样本，再把时间戳落在
+ * [触发时间 - 预触发时长, 触发时间 + 后触发时长] 内的样本依次交给 {@link Sink}。
+ * 窗口按设备时间戳划分，不受手机时间和通知到达时机的影响，也包含按下按钮之前的数据。
+ *
+ * {@link #append} 和 {@link #flush} 在同一个线程（接收流水线的分发线程）上调用，
+ * {@link #trigger()} 可以在任意线程调用；Sink 的回调都在 append/flush 所在的线程上执行。
+ */
+public final class TriggeredCapture {
+
+    /**
+     * 采集结果的接收者
+     */
+    public interface Sink {
+        /**
+         * 开始输出一次采集
+         *
+         * @param triggerTimestamp 触发时刻对应的设备时间戳
+         */
+        void onCaptureStart(long triggerTimestamp);
+
+        void onCaptureSample(long wallTimeMillis, long timestamp, int index,
+                             double x, double y, double z, double t);
+
+        /**
+         * @param sampleCount 本次输出的样本数
+         * @param truncated   预触发部分是否因缓冲区容量不足而不完整，或数据流在后触发窗口结束前中断
+         */
+        void onCaptureEnd(int sampleCount, boolean truncated);
+    }
+
+    private final Sink sink;
+    private final int mask;
+
+    private final long[] wallTimes;
+    private final long[] timestamps;
+    private final int[] indices;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final double[] ts;
+    private long written;
+
+    // 窗口长度（设备时间戳单位），在下一次触发时生效
+    private volatile long preTicks;
+    private volatile long postTicks;
+
+    private volatile boolean triggerRequested;
+    private volatile boolean capturing;
+
+    // ---- 以下只在 append 线程访问 ----
+    private boolean hasLatest;
+    private long latestTimestamp;
+    private long triggerTimestamp;
+    private long windowStart;
+    private long windowEnd;
+
+    private volatile long captureCount;
+    private volatile long ignoredTriggers;
+
+    /**
+     * @param capacity  保留的样本数，向上取整为 2 的幂；需要大于 预触发 + 后触发 时长内的样本数
+     * @param preTicks  预触发时长（设备时间戳单位）
+     * @param postTicks 后触发时长（设备时间戳单位）
+     */
+    public TriggeredCapture(int capacity, long preTicks, long postTicks, Sink sink) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.wallTimes = new long[size];
+        this.timestamps = new long[size];
+        this.indices = new int[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.zs = new double[size];
+        this.ts = new double[size];
+        this.sink = sink;
+        setWindow(preTicks, postTicks);
+    }
+
+    /**
+     * 设置预触发和后触发时长（设备时间戳单位），正在进行的采集不受影响
+     */
+    public void setWindow(long preTicks, long postTicks) {
+        if (preTicks < 0 || postTicks < 0) {
+            throw new IllegalArgumentException("窗口长度不能为负: " + preTicks + ", " + postTicks);
+        }
+        this.preTicks = preTicks;
+        this.postTicks = postTicks;
+    }
+
+    /**
+     * 请求一次采集，以下一条样本到达前的最新样本为触发时刻
+     *
+     * @return 上一次采集尚未完成时忽略本次触发，返回 false
+     */
+    public boolean trigger() {
+        if (capturing || triggerRequested) {
+            ignoredTriggers++;
+            return false;
+        }
+        triggerRequested = true;
+        return true;
+    }
+
+    public boolean isCapturing() {
+        return capturing || triggerRequested;
+    }
+
+    /**
+     * 加入一条样本
+     */
+    public void append(long wallTimeMillis, SensorData data) {
+        append(wallTimeMillis, data.timestamp, data.index, data.x, data.y, data.z, data.t);
+    }
+
+    /**
+     * 加入一条样本
+     */
+    public void append(long wallTimeMillis, long timestamp, int index,
+                       double x, double y, double z, double t) {
+        if (triggerRequested) {
+            triggerRequested = false;
+            startCapture(hasLatest ? latestTimestamp : timestamp);
+        }
+
+        int slot = (int) (written & mask);
+        if (capturing && written > mask && timestamps[slot] >= windowStart) {
+            // 后触发窗口还没结束，缓冲区就要覆盖窗口内的样本了：先输出已有的部分
+            emit(true);
+        }
+        wallTimes[slot] = wallTimeMillis;
+        timestamps[slot] = timestamp;
+        indices[slot] = index;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        ts[slot] = t;
+        written++;
+        hasLatest = true;
+        latestTimestamp = timestamp;
+
+        if (capturing && timestamp > windowEnd) {
+            emit(false);
+        } else if (capturing && timestamp < windowStart) {
+            // 时间戳回到窗口之前：设备重启或重连后时钟重置，后触发部分不会再到达
+            emit(true);
+        }
+    }
+
+    /**
+     * 数据流结束时调用：输出正在进行的采集中已收到的部分
+     * 与 append 在同一个线程上调用，或在 append 所在的线程结束之后调用
+     */
+    public void flush() {
+        triggerRequested = false;
+        if (capturing) {
+            emit(true);
+        }
+    }
+
+    /**
+     * 完成的采集次数
+     */
+    public long getCaptureCount() {
+        return captureCount;
+    }
+
+    /**
+     * 因上一次采集未完成而被忽略的触发次数
+     */
+    public long getIgnoredTriggers() {
+        return ignoredTriggers;
+    }
+
+    private void startCapture(long trigger) {
+        triggerTimestamp = trigger;
+        windowStart = trigger - preTicks;
+        windowEnd = trigger + postTicks;
+        capturing = true;
+    }
+
+    private void emit(boolean streamTruncated) {
+        long oldest = Math.max(0, written - mask - 1);
+        // 环形数组已经写满，且保留的最早样本晚于窗口开始：更早的预触发样本已被覆盖
+        boolean truncated = streamTruncated
+                || (oldest > 0 && timestamps[(int) (oldest & mask)] > windowStart);
+
+        sink.onCaptureStart(triggerTimestamp);
+        int count = 0;
+        for (long i = oldest; i < written; i++) {
+            int slot = (int) (i & mask);
+            long timestamp = timestamps[slot];
+            if (timestamp >= windowStart && timestamp <= windowEnd) {
+                sink.onCaptureSample(wallTimes[slot], timestamp, indices[slot],
+                        xs[slot], ys[slot], zs[slot], ts[slot]);
+                count++;
+            }
+        }
+        capturing = false;
+        captureCount++;
+        sink.onCaptureEnd(count, truncated);
+    }
+}
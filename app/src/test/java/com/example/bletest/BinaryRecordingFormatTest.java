@@ -0,0 +1,74 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * 二进制录制格式的写入、索引和文本转换测试
+ */
+public class BinaryRecordingFormatTest {
+
+    private static final int SAMPLE_COUNT = 5000;
+
+    @Test
+    public void convertedTextMatchesTextRecording() throws Exception {
+        File binaryFile = File.createTempFile("px_n_", ".bin");
+        File textFile = File.createTempFile("px_n_", ".txt");
+        File convertedFile = File.createTempFile("px_n_", ".converted.txt");
+        textFile.delete();
+        try {
+            record(binaryFile, new BinarySampleEncoder("nRF UART"));
+            record(textFile, new TextSampleEncoder());
+
+            assertEquals(SAMPLE_COUNT, BinaryRecordingFormat.convertToText(binaryFile, convertedFile));
+            assertArrayEquals(Files.readAllBytes(textFile.toPath()), Files.readAllBytes(convertedFile.toPath()));
+            assertTrue(binaryFile.length() < textFile.length());
+        } finally {
+            binaryFile.delete();
+            textFile.delete();
+            convertedFile.delete();
+        }
+    }
+
+    @Test
+    public void footerIndexPointsAtRecords() throws Exception {
+        File binaryFile = File.createTempFile("px_c_a_", ".bin");
+        try {
+            record(binaryFile, new BinarySampleEncoder("nRF UART"));
+
+            try (RandomAccessFile file = new RandomAccessFile(binaryFile, "r")) {
+                BinaryRecordingFormat.Header header = BinaryRecordingFormat.readHeader(file.getChannel());
+                BinaryRecordingFormat.Footer footer = BinaryRecordingFormat.readFooter(file.getChannel(), header);
+
+                assertEquals("nRF UART", header.deviceName);
+                assertNotNull(footer);
+                assertEquals(SAMPLE_COUNT, footer.recordCount);
+                assertEquals((SAMPLE_COUNT + BinaryRecordingFormat.INDEX_INTERVAL - 1) / BinaryRecordingFormat.INDEX_INTERVAL,
+                        footer.indexOffsets.length);
+                for (int i = 0; i < footer.indexOffsets.length; i++) {
+                    file.seek(footer.indexOffsets[i] + 8);
+                    assertEquals(footer.indexTimestamps[i], Long.reverseBytes(file.readLong()));
+                }
+            }
+        } finally {
+            binaryFile.delete();
+        }
+    }
+
+    private static void record(File file, SampleEncoder encoder) throws Exception {
+        RecordingWriter writer = new RecordingWriter("test", encoder, (message, e) -> fail(message));
+        writer.setOverflowPolicy(RecordingWriter.OverflowPolicy.BLOCK);
+        writer.open(file, encoder);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            writer.write(1700000000000L + i * 5L, 1000L + i * 5L, i,
+                    i * 0.125, -i / 1000.0, 1.5 + (i % 7) * 0.001, 36.6);
+        }
+        writer.shutdown();
+        writer.awaitTermination(10000);
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.bletest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 纯 JVM 的 nRF UART 设备模拟器，不需要蓝牙硬件
+ * 模拟 {@link BLEManager} 一侧：生成设备发送的文本帧，按 MTU 和拆包方式切分成通知，
+ * 按设定的采样率（或回放录制文件时按原始时间间隔）调用 {@link BLEManager.BluetoothCallback}。
+ * 可以注入抖动和损坏的帧，用于在 CI 上对解析器、写入器和接收流水线做压力和回归测试。
+ */
+public final class BleDeviceSimulator {
+
+    public static final String DEVICE_NAME = "nRF UART Simulator";
+
+    // ATT 通知头占 3 字节
+    private static final int ATT_HEADER_SIZE = 3;
+
+    /**
+     * 通知的切分方式
+     */
+    public enum SplitPattern {
+        LINE_PER_NOTIFICATION, // 每行单独一个通知，超过 MTU 时拆分
+        PACK_TO_MTU,           // 字节流按 MTU 填满每个通知，与 nRF UART 固件的行为相同
+        RANDOM                 // 每个通知随机 1..MTU 字节，覆盖各种跨包位置
+    }
+
+    /**
+     * 模拟参数
+     */
+    public static final class Config {
+        double sampleRateHz = 200;     // 0 表示不限速，尽快发送
+        int mtu = 247;
+        double jitterMillis = 0;       // 每个通知额外随机延迟 [0, jitter)
+        SplitPattern splitPattern = SplitPattern.PACK_TO_MTU;
+        double errorRate = 0;          // 每帧被损坏的概率
+        long seed = 1;
+        double millisPerTick = 1;      // 设备时间戳单位（回放时用于计算时间间隔）
+
+        public Config sampleRateHz(double value) {
+            sampleRateHz = value;
+            return this;
+        }
+
+        public Config mtu(int value) {
+            if (value <= ATT_HEADER_SIZE) {
+                throw new IllegalArgumentException("mtu: " + value);
+            }
+            mtu = value;
+            return this;
+        }
+
+        public Config jitterMillis(double value) {
+            jitterMillis = value;
+            return this;
+        }
+
+        public Config splitPattern(SplitPattern value) {
+            splitPattern = value;
+            return this;
+        }
+
+        public Config errorRate(double value) {
+            errorRate = value;
+            return this;
+        }
+
+        public Config seed(long value) {
+            seed = value;
+            return this;
+        }
+
+        public Config millisPerTick(double value) {
+            millisPerTick = value;
+            return this;
+        }
+    }
+
+    private final Config config;
+    private final BLEManager.BluetoothCallback callback;
+    private final Random random;
+    private final int payloadSize;
+
+    // 待发送的字节流和复用的通知缓冲区
+    private byte[] pending = new byte[1024];
+    private int pendingLength;
+    private final byte[] notification;
+
+    // 发送节奏：下一条通知不早于 sendAtNanos
+    private long startNanos;
+    private long sendAtNanos;
+
+    // 统计
+    private long framesSent;
+    private long framesCorrupted;
+    private long notificationsSent;
+    private long bytesSent;
+
+    public BleDeviceSimulator(Config config, BLEManager.BluetoothCallback callback) {
+        this.config = config;
+        this.callback = callback;
+        this.random = new Random(config.seed);
+        this.payloadSize = config.mtu - ATT_HEADER_SIZE;
+        this.notification = new byte[payloadSize];
+    }
+
+    /**
+     * 模拟一次连接：连接、发送 sampleCount 个随机样本、断开
+     */
+    public void run(int sampleCount) {
+        connect();
+        long timestamp = 1_000_000L;
+        double intervalTicks = config.sampleRateHz > 0 ? 1000.0 / config.sampleRateHz / config.millisPerTick : 5;
+        for (int i = 0; i < sampleCount; i++) {
+            long deviceTimestamp = timestamp + Math.round(i * intervalTicks);
+            double x = Math.sin(i * 0.05) * 2;
+            double y = Math.cos(i * 0.05) * 2;
+            double z = 9.81 + random.nextGaussian() * 0.05;
+            double t = 36.6 + random.nextGaussian() * 0.1;
+            sendSample(sampleNanos(i), deviceTimestamp, i, x, y, z, t);
+        }
+        disconnect();
+    }
+
+    /**
+     * 回放 DataParser 录制的文本文件（px_*.txt），按设备时间戳的间隔发送
+     *
+     * @param speed 回放倍速，例如 100 表示 100 倍速；0 表示不限速
+     * @return 回放的样本数
+     */
+    public long replay(File recording, double speed) throws IOException {
+        connect();
+        long count = 0;
+        long firstTimestamp = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(recording), StandardCharsets.UTF_8))) {
+            String row;
+            while ((row = reader.readLine()) != null) {
+                // 世界时间, 时间戳, 索引, X, Y, Z, T
+                String[] fields = row.split(",\\s*");
+                if (fields.length != 7 || !Character.isDigit(fields[1].charAt(0))) {
+                    continue;  // 表头或不完整的行
+                }
+                long timestamp = Long.parseLong(fields[1]);
+                if (count == 0) {
+                    firstTimestamp = timestamp;
+                }
+                long offsetNanos = speed > 0
+                        ? (long) ((timestamp - firstTimestamp) * config.millisPerTick * 1_000_000L / speed) : 0;
+                sendSample(offsetNanos, timestamp, Integer.parseInt(fields[2]),
+                        Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                        Double.parseDouble(fields[5]), Double.parseDouble(fields[6]));
+                count++;
+            }
+        }
+        disconnect();
+        return count;
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    /**
+     * 被注入错误的帧数
+     */
+    public long getFramesCorrupted() {
+        return framesCorrupted;
+    }
+
+    public long getNotificationsSent() {
+        return notificationsSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    private void connect() {
+        startNanos = System.nanoTime();
+        sendAtNanos = startNanos;
+        pendingLength = 0;
+        callback.onDeviceConnected(DEVICE_NAME);
+        callback.onServicesDiscovered("Service: 6e400001-b5a3-f393-e0a9-e50e24dcca9e (simulated)");
+    }
+
+    private void disconnect() {
+        if (pendingLength > 0) {
+            emit(pending, 0, pendingLength);
+            pendingLength = 0;
+        }
+        callback.onDeviceDisconnected();
+    }
+
+    private long sampleNanos(int i) {
+        return config.sampleRateHz > 0 ? (long) (i * 1e9 / config.sampleRateHz) : 0;
+    }
+
+    // 生成一帧文本，按拆包方式切分成通知；offsetNanos 为该样本相对连接开始的发送时间
+    private void sendSample(long offsetNanos, long timestamp, int index, double x, double y, double z, double t) {
+        String line = String.format(Locale.ROOT, "[%d]%dx %.3fy %.3fz %.3ft %.3f\r\n",
+                timestamp, index, x, y, z, t);
+        if (config.errorRate > 0 && random.nextDouble() < config.errorRate) {
+            line = corrupt(line);
+            framesCorrupted++;
+        }
+        framesSent++;
+        append(line.getBytes(StandardCharsets.US_ASCII));
+        sendAtNanos = Math.max(sendAtNanos, startNanos + offsetNanos);
+
+        switch (config.splitPattern) {
+            case LINE_PER_NOTIFICATION:
+                drain(payloadSize, true);
+                break;
+            case PACK_TO_MTU:
+                drain(payloadSize, false);
+                break;
+            case RANDOM:
+                while (pendingLength > 0) {
+                    int size = 1 + random.nextInt(payloadSize);
+                    if (size > pendingLength) {
+                        break;  // 剩余部分与下一帧一起发送
+                    }
+                    emitPending(size);
+                }
+                break;
+            default:
+                throw new AssertionError(config.splitPattern);
+        }
+    }
+
+    // 发送所有满 MTU 的通知；all 为 true 时把不满 MTU 的剩余部分也发出去
+    private void drain(int size, boolean all) {
+        while (pendingLength >= size || (all && pendingLength > 0)) {
+            emitPending(Math.min(size, pendingLength));
+        }
+    }
+
+    private void emitPending(int size) {
+        System.arraycopy(pending, 0, notification, 0, size);
+        System.arraycopy(pending, size, pending, 0, pendingLength - size);
+        pendingLength -= size;
+        emit(notification, 0, size);
+    }
+
+    private void emit(byte[] buf, int off, int len) {
+        long due = sendAtNanos;
+        if (config.jitterMillis > 0) {
+            due += (long) (random.nextDouble() * config.jitterMillis * 1_000_000L);
+        }
+        long delay = due - System.nanoTime();
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+        callback.onDataReceived(buf, off, len);
+        notificationsSent++;
+        bytesSent += len;
+    }
+
+    private void append(byte[] bytes) {
+        if (pendingLength + bytes.length > pending.length) {
+            byte[] grown = new byte[Math.max(pending.length * 2, pendingLength + bytes.length)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(bytes, 0, pending, pendingLength, bytes.length);
+        pendingLength += bytes.length;
+    }
+
+    // 损坏一帧，保留行尾换行符，不影响相邻的帧
+    private String corrupt(String line) {
+        String body = line.substring(0, line.length() - 2);
+        switch (random.nextInt(4)) {
+            case 0:
+                return "#" + body.substring(1) + "\r\n";                        // 帧头丢失
+            case 1:
+                return body.substring(0, body.length() / 2) + "\r\n";         // 截断
+            case 2:
+                return "[99999999999999999999]" + body.substring(body.indexOf(']') + 1) + "\r\n";  // 时间戳溢出
+            default:
+                return body.replaceFirst("y [-0-9.]+", "y 1.2.3") + "\r\n";   // 非法数值（解析为 0）
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用模拟设备对接收流水线、重组解析和录制做压力和回放测试
+ */
+public class BleDeviceSimulatorTest {
+
+    // 模拟 MainActivity：通知交给接收流水线，断开时插入结束标记
+    private static final class PipelineCallback implements BLEManager.BluetoothCallback {
+        final IngestPipeline pipeline;
+        int connects;
+        int disconnects;
+
+        PipelineCallback(IngestPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public void onDataReceived(String data) {
+        }
+
+        @Override
+        public void onDataReceived(byte[] data, int offset, int length) {
+            while (!pipeline.offer(data, offset, length)) {
+                Thread.yield();  // 测试中等待而不是丢弃
+            }
+        }
+
+        @Override
+        public void onDeviceConnected(String deviceName) {
+            connects++;
+        }
+
+        @Override
+        public void onDeviceDisconnected() {
+            disconnects++;
+            pipeline.flush();
+        }
+
+        @Override
+        public void onServicesDiscovered(String services) {
+        }
+
+        @Override
+        public void onError(String error) {
+        }
+
+        @Override
+        public void onScanHasResult(String result) {
+        }
+    }
+
+    // 按顺序收集解析出的样本
+    private static class Collector implements FrameReassembler.FrameListener {
+        final List<SensorData> frames = new ArrayList<>();
+        int numberErrors;
+        int invalidNumbers;
+
+        @Override
+        public void onFrame(SensorData data) {
+            frames.add(new SensorData(data.timestamp, data.index, data.x, data.y, data.z, data.t));
+        }
+
+        @Override
+        public void onNumberError(byte[] buf, int from, int to) {
+            numberErrors++;
+        }
+
+        @Override
+        public void onInvalidNumber(byte[] buf, int from, int to) {
+            invalidNumbers++;
+        }
+    }
+
+    @Test
+    public void stressAllSplitPatterns() throws Exception {
+        for (BleDeviceSimulator.SplitPattern pattern : BleDeviceSimulator.SplitPattern.values()) {
+            Collector collector = new Collector();
+            IngestPipeline pipeline = new IngestPipeline("sim", collector, 64, 256);
+            PipelineCallback callback = new PipelineCallback(pipeline);
+            BleDeviceSimulator simulator = new BleDeviceSimulator(new BleDeviceSimulator.Config()
+                    .sampleRateHz(0).mtu(23).splitPattern(pattern).seed(pattern.ordinal()), callback);
+
+            simulator.run(50000);
+            pipeline.shutdown();
+            assertTrue(pipeline.awaitTermination(10000));
+
+            assertEquals(1, callback.connects);
+            assertEquals(1, callback.disconnects);
+            assertEquals(pattern.name(), 50000, collector.frames.size());
+            for (int i = 0; i < collector.frames.size(); i++) {
+                assertEquals(i, collector.frames.get(i).index);
+            }
+            assertEquals(0, collector.numberErrors + collector.invalidNumbers);
+            assertTrue(simulator.getNotificationsSent() >= simulator.getBytesSent() / 20);
+        }
+    }
+
+    @Test
+    public void corruptedFramesAreDroppedWithoutLosingNeighbours() throws Exception {
+        Collector collector = new Collector();
+        IngestPipeline pipeline = new IngestPipeline("sim", collector);
+        BleDeviceSimulator simulator = new BleDeviceSimulator(new BleDeviceSimulator.Config()
+                .sampleRateHz(0).mtu(185).splitPattern(BleDeviceSimulator.SplitPattern.RANDOM)
+                .errorRate(0.05).seed(7), new PipelineCallback(pipeline));
+
+        simulator.run(20000);
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(10000));
+
+        long corrupted = simulator.getFramesCorrupted();
+        assertTrue(corrupted > 500);
+        // 帧头丢失、截断、溢出的帧被丢弃，非法数值的帧仍然送出
+        assertTrue(collector.frames.size() >= 20000 - corrupted);
+        assertTrue(collector.frames.size() < 20000);
+        assertTrue(collector.invalidNumbers > 0);
+        assertTrue(collector.numberErrors > 0);
+        int previous = -1;
+        for (SensorData data : collector.frames) {
+            assertTrue(data.index > previous);
+            previous = data.index;
+        }
+    }
+
+    @Test
+    public void pacedRunFollowsSampleRate() {
+        Collector collector = new Collector();
+        FrameReassembler reassembler = new FrameReassembler(collector);
+        BleDeviceSimulator simulator = new BleDeviceSimulator(new BleDeviceSimulator.Config()
+                .sampleRateHz(1000).jitterMillis(2), new DirectCallback(reassembler));
+
+        long start = System.nanoTime();
+        simulator.run(200);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertEquals(200, collector.frames.size());
+        assertTrue("elapsed " + elapsedMs, elapsedMs >= 190);
+    }
+
+    @Test
+    public void recordThenReplayAtHundredTimesRealTime() throws Exception {
+        // 录制：模拟设备 → 流水线 → RecordingWriter（文本格式）
+        File recording = File.createTempFile("px_simulated", ".txt");
+        try {
+            recordAndReplay(recording);
+        } finally {
+            recording.delete();
+        }
+    }
+
+    private static void recordAndReplay(File recording) throws Exception {
+        RecordingWriter writer = new RecordingWriter("sim", new TextSampleEncoder(), (message, e) -> fail(message));
+        writer.setOverflowPolicy(RecordingWriter.OverflowPolicy.BLOCK);
+        writer.open(recording);
+        Collector recorded = new Collector() {
+            @Override
+            public void onFrame(SensorData data) {
+                super.onFrame(data);
+                writer.write(System.currentTimeMillis(), data.timestamp, data.index, data.x, data.y, data.z, data.t);
+            }
+        };
+        IngestPipeline pipeline = new IngestPipeline("record", recorded);
+        new BleDeviceSimulator(new BleDeviceSimulator.Config().sampleRateHz(0), new PipelineCallback(pipeline))
+                .run(2000);  // 设备时间 10 秒（200Hz）
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(10000));
+        writer.close();
+        writer.shutdown();
+        writer.awaitTermination(5000);
+        assertEquals(2000, writer.getSamplesWritten());
+
+        // 回放：按时间戳间隔 100 倍速发送
+        Collector replayed = new Collector();
+        BleDeviceSimulator replayer = new BleDeviceSimulator(new BleDeviceSimulator.Config()
+                .mtu(64).splitPattern(BleDeviceSimulator.SplitPattern.RANDOM),
+                new DirectCallback(new FrameReassembler(replayed)));
+        long start = System.nanoTime();
+        assertEquals(2000, replayer.replay(recording, 100));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertTrue("elapsed " + elapsedMs, elapsedMs >= 95);
+        assertEquals(2000, replayed.frames.size());
+        for (int i = 0; i < 2000; i++) {
+            SensorData a = recorded.frames.get(i);
+            SensorData b = replayed.frames.get(i);
+            assertEquals(a.timestamp, b.timestamp);
+            assertEquals(a.index, b.index);
+            assertEquals(a.x, b.x, 0);
+            assertEquals(a.y, b.y, 0);
+            assertEquals(a.z, b.z, 0);
+            assertEquals(a.t, b.t, 0);
+        }
+    }
+
+    // 在模拟设备的线程上直接重组解析，不经过流水线
+    private static final class DirectCallback implements BLEManager.BluetoothCallback {
+        private final FrameReassembler reassembler;
+
+        DirectCallback(FrameReassembler reassembler) {
+            this.reassembler = reassembler;
+        }
+
+        @Override
+        public void onDataReceived(String data) {
+        }
+
+        @Override
+        public void onDataReceived(byte[] data, int offset, int length) {
+            reassembler.feed(data, offset, length);
+        }
+
+        @Override
+        public void onDeviceConnected(String deviceName) {
+        }
+
+        @Override
+        public void onDeviceDisconnected() {
+            reassembler.flush();
+        }
+
+        @Override
+        public void onServicesDiscovered(String services) {
+        }
+
+        @Override
+        public void onError(String error) {
+        }
+
+        @Override
+        public void onScanHasResult(String result) {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 事件检测的迟滞状态机、检测延迟统计和能量比打分测试
+ */
+public class EventDetectorTest {
+
+    // 直接把 x 当作分数
+    private static final EventDetector.Scorer X_SCORER = new EventDetector.Scorer() {
+        @Override
+        public double score(SensorData data) {
+            return data.x;
+        }
+
+        @Override
+        public void reset() {
+        }
+    };
+
+    private static final class Recorder implements EventDetector.Listener {
+        final List<long[]> events = new ArrayList<>();
+        int starts;
+
+        @Override
+        public void onEventStart(long onsetTimestamp, long confirmTimestamp, double score) {
+            starts++;
+        }
+
+        @Override
+        public void onEventEnd(long startTimestamp, long endTimestamp, double peakScore) {
+            events.add(new long[]{startTimestamp, endTimestamp, (long) peakScore});
+        }
+    }
+
+    @Test
+    public void hysteresisSuppressesChatter() {
+        Recorder recorder = new Recorder();
+        EventDetector detector = new EventDetector(X_SCORER, 5, 2, 2, 3, recorder);
+        // 单个尖峰不触发；连续两个样本越过 5 触发；在 2 和 5 之间波动不结束；连续 3 个低于 2 结束
+        double[] scores = {0, 9, 0, 0, 6, 7, 4, 8, 3, 2.5, 1, 4, 1, 1, 1, 0, 6, 0};
+        SensorData data = new SensorData(0, 0, 0, 0, 0, 0);
+        List<Integer> startedAt = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            data.timestamp = i * 10L;
+            data.index = i;
+            data.x = scores[i];
+            if (detector.process(data)) {
+                startedAt.add(i);
+            }
+        }
+        assertEquals(1, startedAt.size());
+        assertEquals(5, (int) startedAt.get(0));
+        assertEquals(1, recorder.starts);
+        assertEquals(1, recorder.events.size());
+        long[] event = recorder.events.get(0);
+        assertEquals(40, event[0]);
+        assertEquals(140, event[1]);
+        assertEquals(8, event[2]);
+        assertFalse(detector.isActive());
+
+        EventDetector.Metrics metrics = detector.getMetrics(new EventDetector.Metrics());
+        assertEquals(scores.length, metrics.samples);
+        assertEquals(1, metrics.events);
+        assertEquals(10, metrics.lastDetectionLatency);
+        assertTrue(metrics.maxCostNanos > 0);
+    }
+
+    @Test
+    public void energyRatioDetectsBurst() {
+        Recorder recorder = new Recorder();
+        EventDetector detector = new EventDetector(new EventDetector.EnergyRatioScorer(0.2, 0.005, 1e-6),
+                6, 2, 3, 20, recorder);
+        Random random = new Random(4);
+        SensorData data = new SensorData(0, 0, 0, 0, 0, 0);
+        int detectedAt = -1;
+        for (int i = 0; i < 3000; i++) {
+            double shake = i >= 2000 && i < 2100 ? 3 * Math.sin(i * 0.9) : 0;
+            data.timestamp = i * 5L;
+            data.index = i;
+            data.x = random.nextGaussian() * 0.05 + shake;
+            data.y = random.nextGaussian() * 0.05;
+            data.z = 9.8 + random.nextGaussian() * 0.05;
+            if (detector.process(data) && detectedAt < 0) {
+                detectedAt = i;
+            }
+        }
+        assertEquals(1, recorder.starts);
+        assertTrue(detectedAt >= 2000 && detectedAt < 2010);
+        assertEquals(1, recorder.events.size());
+        assertTrue(recorder.events.get(0)[1] >= 2100 * 5L);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 环形事件日志的覆盖、末尾渲染和导出测试
+ */
+public class EventLogTest {
+
+    @Test
+    public void keepsOnlyNewestEntries() {
+        EventLog log = new EventLog(3);
+        for (int i = 1; i <= 5; i++) {
+            log.add(0, "event " + i);
+        }
+        assertEquals(3, log.size());
+        assertEquals(5, log.getTotalCount());
+
+        String tail = log.renderTail(new StringBuilder(), 2).toString();
+        String[] lines = tail.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith("] event 4"));
+        assertTrue(lines[1].endsWith("] event 5"));
+
+        log.clear();
+        assertEquals(0, log.size());
+        assertEquals("", log.renderTail(new StringBuilder(), 10).toString());
+    }
+
+    @Test
+    public void exportWritesAllEntriesInOrder() throws Exception {
+        EventLog log = new EventLog(100);
+        for (int i = 0; i < 250; i++) {
+            log.add(1700000000000L + i, "设备事件 " + i);
+        }
+        File file = File.createTempFile("px_log_", ".txt");
+        try {
+            assertEquals(100, log.exportTo(file));
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            assertEquals(100, lines.size());
+            assertTrue(lines.get(0).endsWith("] 设备事件 150"));
+            assertTrue(lines.get(99).endsWith("] 设备事件 249"));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 滑动窗口特征与逐窗口直接计算的结果对比，以及特征文件格式测试
+ */
+public class FeatureExtractorTest {
+
+    private static double[][] randomSamples(int n, long seed) {
+        Random random = new Random(seed);
+        double[][] samples = new double[n][4];
+        for (int i = 0; i < n; i++) {
+            samples[i][0] = Math.sin(i * 0.3) + random.nextGaussian() * 0.2;
+            samples[i][1] = random.nextGaussian() + 9.8;
+            samples[i][2] = random.nextGaussian() * 3;
+            samples[i][3] = 25 + random.nextDouble();
+        }
+        return samples;
+    }
+
+    private static void assertMatchesDirect(int windowSize, int hop) {
+        double[][] samples = randomSamples(1000, windowSize);
+        List<double[]> emitted = new ArrayList<>();
+        List<Integer> lastIndices = new ArrayList<>();
+        FeatureExtractor extractor = new FeatureExtractor(windowSize, hop, features -> {
+            emitted.add(features.values.clone());
+            lastIndices.add(features.lastIndex);
+            assertEquals(features.lastIndex - windowSize + 1, features.firstIndex);
+            assertEquals(features.firstIndex * 10L, features.startTimestamp);
+        });
+        for (int i = 0; i < samples.length; i++) {
+            double[] s = samples[i];
+            extractor.add(i * 10L, i, s[0], s[1], s[2], s[3]);
+        }
+        assertEquals((samples.length - windowSize) / hop + 1, emitted.size());
+        assertEquals(emitted.size(), extractor.getWindowCount());
+
+        for (int w = 0; w < emitted.size(); w++) {
+            int last = lastIndices.get(w);
+            double[] features = emitted.get(w);
+            for (int c = 0; c < FeatureExtractor.CHANNEL_COUNT; c++) {
+                double sum = 0, sumSq = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+                int crossings = 0;
+                double previous = 0;
+                for (int i = last - windowSize + 1; i <= last; i++) {
+                    double[] s = samples[i];
+                    double v = c == FeatureExtractor.CHANNEL_MAGNITUDE
+                            ? Math.sqrt(s[0] * s[0] + s[1] * s[1] + s[2] * s[2]) : s[c];
+                    sum += v;
+                    sumSq += v * v;
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                    if (i > last - windowSize + 1 && (v < 0) != (previous < 0)) {
+                        crossings++;
+                    }
+                    previous = v;
+                }
+                double mean = sum / windowSize;
+                double variance = sumSq / windowSize - mean * mean;
+                int base = c * FeatureExtractor.FEATURES_PER_CHANNEL;
+                assertEquals(mean, features[base + FeatureExtractor.FEATURE_MEAN], 1e-9);
+                assertEquals(Math.sqrt(Math.max(0, variance)), features[base + FeatureExtractor.FEATURE_STD], 1e-6);
+                assertEquals(Math.sqrt(sumSq / windowSize), features[base + FeatureExtractor.FEATURE_RMS], 1e-9);
+                assertEquals(min, features[base + FeatureExtractor.FEATURE_MIN], 0);
+                assertEquals(max, features[base + FeatureExtractor.FEATURE_MAX], 0);
+                assertEquals(crossings, features[base + FeatureExtractor.FEATURE_ZERO_CROSSINGS], 0);
+            }
+        }
+    }
+
+    @Test
+    public void slidingFeaturesMatchDirectComputation() {
+        assertMatchesDirect(50, 7);
+        assertMatchesDirect(64, 64);  // 窗口大小正好是 2 的幂，环形数组没有空余
+        assertMatchesDirect(2, 1);
+    }
+
+    @Test
+    public void writesFixedSizeFeatureRecords() throws Exception {
+        File file = File.createTempFile("features", FeatureFileWriter.FILE_EXTENSION);
+        try {
+            FeatureFileWriter writer = new FeatureFileWriter(file, 20, 10, (message, e) -> fail(message));
+            FeatureExtractor extractor = new FeatureExtractor(20, 10, writer::write);
+            double[][] samples = randomSamples(100, 3);
+            for (int i = 0; i < samples.length; i++) {
+                extractor.add(i * 10L, i, samples[i][0], samples[i][1], samples[i][2], samples[i][3]);
+            }
+            writer.close();
+            writer.awaitTermination(2000);
+            assertEquals(9, writer.getRecordsWritten());
+
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(FeatureFileWriter.HEADER_SIZE + 9 * FeatureFileWriter.RECORD_SIZE, buffer.remaining());
+            assertEquals(FeatureFileWriter.MAGIC, buffer.getInt());
+            assertEquals(FeatureFileWriter.SCHEMA_VERSION, buffer.getShort());
+            assertEquals(FeatureFileWriter.HEADER_SIZE, buffer.getShort());
+            assertEquals(FeatureFileWriter.RECORD_SIZE, buffer.getShort());
+            assertEquals(FeatureExtractor.CHANNEL_COUNT, buffer.getShort());
+            assertEquals(FeatureExtractor.FEATURES_PER_CHANNEL, buffer.getShort());
+            buffer.getShort();
+            assertEquals(20, buffer.getInt());
+            assertEquals(10, buffer.getInt());
+
+            buffer.position(FeatureFileWriter.HEADER_SIZE + FeatureFileWriter.RECORD_SIZE);
+            assertEquals(100, buffer.getLong());
+            assertEquals(290, buffer.getLong());
+            assertEquals(10, buffer.getInt());
+            assertEquals(29, buffer.getInt());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * FrameParser 与原正则解析逻辑的一致性测试
+ */
+public class FrameParserTest {
+
+    // 原 DataParser 中使用的正则
+    private static final Pattern DATA_PATTERN = Pattern.compile(
+            "\\[(\\d+)\\](\\d+)x ([-\\d.]+)y ([-\\d.]+)z ([-\\d.]+)t ([-\\d.]+)"
+    );
+
+    // 采集到的典型数据行及各种边界情况
+    private static final String[] CORPUS = {
+            "[123456]1x 0.123y -4.560z 7.890t 25.3",
+            "[123456]1x 0.123y -4.560z 7.890t 25.3\r",
+            "  [0]0x  1y\t2z 3t   4  ",
+            "[98765]42x -0.000y 0.5z .5t 5.",
+            "noise[1]2x 3y 4z 5t 6 tail",
+            "[1]2x 3y 4z 5t 6[7]8x 9y 10z 11t 12",
+            "[x][1]2x 3y 4z 5t 6",
+            "[1] 2x 3y 4z 5t 6",
+            "[1]2 x 3y 4z 5t 6",
+            "[1]2x3y 4z 5t 6",
+            "[1]2x 3 y 4z 5t 6",
+            "[1]2x 3y 4z 5t ",
+            "[1]2x 1.2.3y --4z 5-t -",
+            "[1]2x 1.0000000000000000000000001y 123456789012345678901z 0.1t 9007199254740993",
+            "[99999999999999999999]1x 1y 2z 3t 4",
+            "[1]99999999999x 1y 2z 3t 4",
+            "[9223372036854775807]2147483647x 1y 2z 3t 4",
+            "[0001]0002x -0y 0z -0.0t 1e5",
+            "",
+            "garbage without frame",
+            "[12]3x 1y 2z 3t 4\u000b",
+            "[12]3x\u000b1y 2z 3t 4",
+            "[12]3x\u00001y 2z 3t 4",
+    };
+
+    @Test
+    public void corpusMatchesRegex() {
+        FrameParser parser = new FrameParser();
+        for (String line : CORPUS) {
+            assertSameAsRegex(parser, line);
+        }
+    }
+
+    @Test
+    public void randomLinesMatchRegex() {
+        FrameParser parser = new FrameParser();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String line = String.format("[%d]%dx %sy %sz %st %s",
+                    random.nextInt(Integer.MAX_VALUE), random.nextInt(100000),
+                    randomNumber(random), randomNumber(random), randomNumber(random), randomNumber(random));
+            assertSameAsRegex(parser, line);
+        }
+    }
+
+    @Test
+    public void parsesFromOffset() {
+        FrameParser parser = new FrameParser();
+        byte[] buf = "xxxx[5]6x 1.5y 2z 3t 4\nyyyy".getBytes(StandardCharsets.US_ASCII);
+        SensorData out = new SensorData(0, 0, 0, 0, 0, 0);
+
+        assertEquals(FrameParser.RESULT_MATCH, parser.parse(buf, 4, 22, out));
+        assertEquals(5, out.timestamp);
+        assertEquals(6, out.index);
+        assertEquals(1.5, out.x, 0);
+        assertEquals(4.0, out.t, 0);
+        assertEquals(FrameParser.RESULT_NO_MATCH, parser.parse(buf, 4, 21, out));
+    }
+
+    private static String randomNumber(Random random) {
+        double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8));
+        switch (random.nextInt(3)) {
+            case 0:
+                return String.format("%.3f", value);
+            case 1:
+                return Double.toString(value).replace("E", "");
+            default:
+                return Long.toString((long) value);
+        }
+    }
+
+    private static void assertSameAsRegex(FrameParser parser, String line) {
+        SensorData expected = parseWithRegex(line);
+        boolean numberError = expected == null && hasNumberError(line);
+
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        SensorData actual = new SensorData(0, 0, 0, 0, 0, 0);
+        int result = parser.parse(bytes, 0, bytes.length, actual);
+
+        if (expected == null) {
+            int expectedResult = numberError ? FrameParser.RESULT_NUMBER_ERROR : FrameParser.RESULT_NO_MATCH;
+            assertEquals(line, expectedResult, result);
+            return;
+        }
+        assertEquals(line, FrameParser.RESULT_MATCH, result);
+        assertEquals(line, expected.timestamp, actual.timestamp);
+        assertEquals(line, expected.index, actual.index);
+        assertEquals(line, Double.doubleToLongBits(expected.x), Double.doubleToLongBits(actual.x));
+        assertEquals(line, Double.doubleToLongBits(expected.y), Double.doubleToLongBits(actual.y));
+        assertEquals(line, Double.doubleToLongBits(expected.z), Double.doubleToLongBits(actual.z));
+        assertEquals(line, Double.doubleToLongBits(expected.t), Double.doubleToLongBits(actual.t));
+    }
+
+    // 原 processIncomingData + parseData 的逻辑
+    private static SensorData parseWithRegex(String line) {
+        String cleanLine = line.trim().replaceAll("\\s+", " ").trim();
+        Matcher matcher = DATA_PATTERN.matcher(cleanLine);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return new SensorData(
+                    Long.parseLong(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2)),
+                    parseDoubleSafely(matcher.group(3)),
+                    parseDoubleSafely(matcher.group(4)),
+                    parseDoubleSafely(matcher.group(5)),
+                    parseDoubleSafely(matcher.group(6)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean hasNumberError(String line) {
+        String cleanLine = line.trim().replaceAll("\\s+", " ").trim();
+        return DATA_PATTERN.matcher(cleanLine).find();
+    }
+
+    private static double parseDoubleSafely(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * FrameReassembler 跨包重组测试
+ */
+public class FrameReassemblerTest {
+
+    private static final int FRAME_COUNT = 200;
+
+    @Test
+    public void frameSplitAtEveryPositionIsRecovered() {
+        byte[] line = "[1000]7x 1.250y -2.500z 3.750t 25.125\r\n".getBytes(StandardCharsets.US_ASCII);
+        for (int split = 1; split < line.length; split++) {
+            List<Long> timestamps = new ArrayList<>();
+            FrameReassembler reassembler = new FrameReassembler(new Collector(timestamps));
+
+            reassembler.feed(line, 0, split);
+            reassembler.feed(line, split, line.length - split);
+
+            assertEquals("split " + split, 1, timestamps.size());
+            assertEquals(1000L, (long) timestamps.get(0));
+            assertEquals(1, reassembler.getRecoveredFrames());
+            assertEquals(line.length - 1, reassembler.getCarriedOverBytes());
+        }
+    }
+
+    @Test
+    public void randomPacketSizesDeliverEveryFrame() {
+        byte[] stream = buildStream();
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<Long> timestamps = new ArrayList<>();
+            FrameReassembler reassembler = new FrameReassembler(new Collector(timestamps));
+
+            int pos = 0;
+            while (pos < stream.length) {
+                int len = Math.min(stream.length - pos, 1 + random.nextInt(244));
+                reassembler.feed(stream, pos, len);
+                pos += len;
+            }
+
+            assertEquals(FRAME_COUNT, timestamps.size());
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                assertEquals((long) i, (long) timestamps.get(i));
+            }
+            assertEquals(FRAME_COUNT, reassembler.getDeliveredFrames());
+        }
+    }
+
+    @Test
+    public void flushParsesTrailingLine() {
+        List<Long> timestamps = new ArrayList<>();
+        FrameReassembler reassembler = new FrameReassembler(new Collector(timestamps));
+        byte[] line = "[5]1x 1y 2z 3t 4".getBytes(StandardCharsets.US_ASCII);
+
+        reassembler.feed(line, 0, line.length);
+        assertEquals(0, timestamps.size());
+
+        reassembler.flush();
+        assertEquals(1, timestamps.size());
+    }
+
+    @Test
+    public void oversizedGarbageIsDropped() {
+        List<Long> timestamps = new ArrayList<>();
+        FrameReassembler reassembler = new FrameReassembler(new Collector(timestamps));
+        byte[] garbage = new byte[1000];
+        for (int i = 0; i < 100; i++) {
+            reassembler.feed(garbage, 0, garbage.length);
+        }
+        byte[] line = "\n[5]1x 1y 2z 3t 4\n".getBytes(StandardCharsets.US_ASCII);
+        reassembler.feed(line, 0, line.length);
+
+        assertTrue(reassembler.getDroppedBytes() > 0);
+        assertEquals(1, timestamps.size());
+    }
+
+    private static byte[] buildStream() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            builder.append('[').append(i).append(']').append(i % 100)
+                    .append("x ").append(i * 0.5).append("y -1.5z 0.001t 36.6\r\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Collector implements FrameReassembler.FrameListener {
+        private final List<Long> timestamps;
+
+        Collector(List<Long> timestamps) {
+            this.timestamps = timestamps;
+        }
+
+        @Override
+        public void onFrame(SensorData data) {
+            timestamps.add(data.timestamp);
+        }
+
+        @Override
+        public void onNumberError(byte[] buf, int from, int to) {
+            fail("unexpected number error");
+        }
+
+        @Override
+        public void onInvalidNumber(byte[] buf, int from, int to) {
+            fail("unexpected invalid number");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * GATT 操作队列的串行执行、超时重试、迟到和过期回调，以及发起操作时清空队列的测试
+ * 用手动推进的定时器代替 Handler
+ */
+public class GattOperationQueueTest {
+
+    private static final int GATT_SUCCESS = 0;
+    private static final int GATT_FAILURE = 257;
+
+    // 手动推进时间的定时器，任务按到期时间顺序执行
+    private static final class ManualScheduler implements GattOperationQueue.Scheduler {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> dueTimes = new ArrayList<>();
+        private long now;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            tasks.add(task);
+            dueTimes.add(now + delayMs);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i) == task) {
+                    tasks.remove(i);
+                    dueTimes.remove(i);
+                }
+            }
+        }
+
+        void advance(long ms) {
+            long target = now + ms;
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (dueTimes.get(i) <= target && (next < 0 || dueTimes.get(i) < dueTimes.get(next))) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                now = dueTimes.remove(next);
+                tasks.remove(next).run();
+            }
+            now = target;
+        }
+    }
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final GattOperationQueue queue = new GattOperationQueue(scheduler);
+    private final List<String> log = new ArrayList<>();
+
+    private void enqueue(GattOperationQueue.Type type, long timeoutMs, int maxRetries) {
+        queue.enqueue(type, timeoutMs, maxRetries, () -> {
+            log.add("start " + type);
+            return true;
+        }, (success, status) -> log.add((success ? "ok " : "fail ") + type + " " + status));
+    }
+
+    @Test
+    public void runsOperationsOneAtATime() {
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, 1000, 0);
+        enqueue(GattOperationQueue.Type.SET_PHY, 1000, 0);
+        assertEquals("[start REQUEST_MTU]", log.toString());
+        assertEquals(2, queue.size());
+
+        // 类型不匹配的回调被忽略
+        queue.complete(GattOperationQueue.Type.SET_PHY, GATT_SUCCESS);
+        assertEquals(1, log.size());
+
+        queue.complete(GattOperationQueue.Type.REQUEST_MTU, GATT_SUCCESS);
+        assertEquals("[start REQUEST_MTU, ok REQUEST_MTU 0, start SET_PHY]", log.toString());
+        queue.complete(GattOperationQueue.Type.SET_PHY, GATT_SUCCESS);
+        assertFalse(queue.isBusy());
+        assertEquals(1, queue.getStats(GattOperationQueue.Type.SET_PHY).getCount());
+
+        // 已经结束的操作再次回调不影响后面的操作
+        enqueue(GattOperationQueue.Type.READ, 1000, 0);
+        queue.complete(GattOperationQueue.Type.SET_PHY, GATT_SUCCESS);
+        assertTrue(queue.isBusy());
+    }
+
+    @Test
+    public void retriesAfterTimeoutAndFailsWhenExhausted() {
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, 1000, 1);
+        enqueue(GattOperationQueue.Type.SET_PHY, 1000, 0);
+
+        scheduler.advance(1000);
+        assertEquals(1, queue.getStats(GattOperationQueue.Type.REQUEST_MTU).getTimeouts());
+        scheduler.advance(100);
+        assertEquals("[start REQUEST_MTU, start REQUEST_MTU]", log.toString());
+
+        // 重试后再次超时，重试用尽，以失败结束并继续下一个操作
+        scheduler.advance(1000);
+        assertEquals("[start REQUEST_MTU, start REQUEST_MTU, fail REQUEST_MTU -1, start SET_PHY]",
+                log.toString());
+        GattOperationQueue.OpStats stats = queue.getStats(GattOperationQueue.Type.REQUEST_MTU);
+        assertEquals(2, stats.getTimeouts());
+        assertEquals(1, stats.getRetries());
+        assertEquals(1, stats.getFailures());
+    }
+
+    @Test
+    public void lateCallbackDuringRetryDelayDoesNotStartTwoOperations() {
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, 1000, 1);
+        enqueue(GattOperationQueue.Type.SET_PHY, 1000, 0);
+
+        scheduler.advance(1000);  // MTU 超时，等待 100ms 后重试
+        // 等待期间迟到的失败回调被忽略，不会再安排一次重试
+        queue.complete(GattOperationQueue.Type.REQUEST_MTU, GATT_FAILURE);
+        assertEquals(1, queue.getStats(GattOperationQueue.Type.REQUEST_MTU).getRetries());
+        // 迟到的成功回调结束 MTU 并取消重试
+        queue.complete(GattOperationQueue.Type.REQUEST_MTU, GATT_SUCCESS);
+        assertEquals("[start REQUEST_MTU, ok REQUEST_MTU 0, start SET_PHY]", log.toString());
+
+        // 原来的重试时间到了也不会再发起任何操作
+        scheduler.advance(100);
+        assertEquals(3, log.size());
+        queue.complete(GattOperationQueue.Type.SET_PHY, GATT_SUCCESS);
+        assertEquals("ok SET_PHY 0", log.get(3));
+        assertFalse(queue.isBusy());
+
+        // SET_PHY 的超时已取消
+        scheduler.advance(5000);
+        assertEquals(4, log.size());
+    }
+
+    @Test
+    public void retriesRejectedStartAndFailedCallback() {
+        int[] starts = {0};
+        queue.enqueue(GattOperationQueue.Type.WRITE, 1000, 2, () -> ++starts[0] > 1,
+                (success, status) -> log.add((success ? "ok " : "fail ") + status));
+
+        // 第一次发起被拒绝，100ms 后重试
+        assertEquals(1, starts[0]);
+        scheduler.advance(100);
+        assertEquals(2, starts[0]);
+
+        // 回调失败，再重试一次后成功
+        queue.complete(GattOperationQueue.Type.WRITE, GATT_FAILURE);
+        scheduler.advance(100);
+        assertEquals(3, starts[0]);
+        queue.complete(GattOperationQueue.Type.WRITE, GATT_SUCCESS);
+        assertEquals("[ok 0]", log.toString());
+        assertEquals(2, queue.getStats(GattOperationQueue.Type.WRITE).getRetries());
+    }
+
+    @Test
+    public void clearDuringStartDropsEverything() {
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, 1000, 0);
+        queue.enqueue(GattOperationQueue.Type.DISCOVER_SERVICES, 1000, 3, () -> {
+            log.add("start DISCOVER_SERVICES");
+            queue.clear();  // 如发起操作时连接断开
+            return false;
+        }, (success, status) -> log.add("completed"));
+        enqueue(GattOperationQueue.Type.WRITE_DESCRIPTOR, 1000, 0);
+        assertEquals(3, queue.size());
+
+        queue.complete(GattOperationQueue.Type.REQUEST_MTU, GATT_SUCCESS);
+        assertFalse(queue.isBusy());
+        assertEquals(0, queue.size());
+        scheduler.advance(10_000);
+        queue.complete(GattOperationQueue.Type.DISCOVER_SERVICES, GATT_SUCCESS);
+        assertEquals("[start REQUEST_MTU, ok REQUEST_MTU 0, start DISCOVER_SERVICES]", log.toString());
+    }
+
+    @Test
+    public void operationWithoutCallbackCompletesOnStart() {
+        enqueue(GattOperationQueue.Type.CONNECTION_PRIORITY, 0, 0);
+        enqueue(GattOperationQueue.Type.DISCOVER_SERVICES, 1000, 0);
+        assertEquals("[start CONNECTION_PRIORITY, ok CONNECTION_PRIORITY 0, start DISCOVER_SERVICES]",
+                log.toString());
+    }
+}
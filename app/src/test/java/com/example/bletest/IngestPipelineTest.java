@@ -0,0 +1,70 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 接收流水线的顺序、完整性和结束标记测试
+ */
+public class IngestPipelineTest {
+
+    private static final int FRAME_COUNT = 50000;
+
+    @Test
+    public void deliversAllFramesInOrder() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            text.append('[').append(1000 + i).append(']').append(i).append("x ").append(i * 0.5)
+                    .append("y -1.25z 3t 36.6\r\n");
+        }
+        // 最后一行没有换行符，只有结束标记之后才会被解析
+        text.append('[').append(1000 + FRAME_COUNT).append(']').append(FRAME_COUNT).append("x 1y 2z 3t 4");
+        byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+        final long[] next = {0};
+        final int[] errors = {0};
+        IngestPipeline pipeline = new IngestPipeline("test", new FrameReassembler.FrameListener() {
+            @Override
+            public void onFrame(SensorData data) {
+                if (data.timestamp != 1000 + next[0]) {
+                    errors[0]++;
+                }
+                next[0]++;
+            }
+
+            @Override
+            public void onNumberError(byte[] buf, int from, int to) {
+                errors[0]++;
+            }
+
+            @Override
+            public void onInvalidNumber(byte[] buf, int from, int to) {
+                errors[0]++;
+            }
+        }, 64, 256);  // 小队列，覆盖队列满时的等待路径
+
+        Random random = new Random(3);
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(bytes.length - offset, 1 + random.nextInt(700));
+            while (!pipeline.offer(bytes, offset, length)) {
+                Thread.sleep(1);  // 测试中等待而不是丢弃
+            }
+            offset += length;
+        }
+        pipeline.flush();
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(10000));
+
+        assertEquals(0, errors[0]);
+        assertEquals(FRAME_COUNT + 1, next[0]);
+        assertEquals(FRAME_COUNT + 1, pipeline.getDeliveredFrameCount());
+        assertEquals(FRAME_COUNT + 1, pipeline.getDispatchStats().getCount());
+        assertTrue(pipeline.getMaxPacketQueueDepth() <= 64);
+        assertFalse(pipeline.offer(bytes, 0, 1));
+    }
+}
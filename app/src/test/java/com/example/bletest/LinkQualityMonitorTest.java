@@ -0,0 +1,115 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 链路质量监测的序号统计、直方图精度和时钟漂移测试
+ */
+public class LinkQualityMonitorTest {
+
+    @Test
+    public void countsGapsDuplicatesAndReorders() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor();
+        int[] indexes = {0, 1, 2, 5, 3, 3, 6, 9, 10};
+        long arrival = 0;
+        for (int index : indexes) {
+            monitor.record(index, index * 5L, arrival += 5_000_000L);
+        }
+        LinkQualityMonitor.Snapshot snapshot = monitor.snapshot(new LinkQualityMonitor.Snapshot());
+        assertEquals(indexes.length, snapshot.received);
+        assertEquals(3, snapshot.lost);        // 4、7、8
+        assertEquals(1, snapshot.reordered);   // 3 晚到
+        assertEquals(1, snapshot.duplicates);  // 第二个 3
+        assertEquals(0, snapshot.restarts);
+        assertEquals(3.0 / 11, snapshot.lossRate, 1e-12);
+
+        // 设备重启，序号从 0 重新开始
+        monitor.record(0, 0, arrival + 5_000_000L);
+        monitor.record(1, 5, arrival + 10_000_000L);
+        monitor.snapshot(snapshot);
+        // 10 之后回退到 0 不超过窗口，按重复计
+        assertEquals(0, snapshot.restarts);
+        for (int i = 2000; i < 2003; i++) {
+            monitor.record(i, i * 5L, arrival += 5_000_000L);
+        }
+        monitor.record(0, 0, arrival + 5_000_000L);
+        monitor.snapshot(snapshot);
+        assertEquals(1, snapshot.restarts);
+    }
+
+    @Test
+    public void lateSamplesBeforeFirstIndexAreNotSubtractedFromLoss() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor();
+        long arrival = 0;
+        // 统计从序号 10 开始，之前的 5、7 晚到：从未计入丢失，不能扣成负数
+        int[] indexes = {10, 11, 5, 7, 12};
+        for (int index : indexes) {
+            monitor.record(index, index * 5L, arrival += 5_000_000L);
+        }
+        LinkQualityMonitor.Snapshot snapshot = monitor.snapshot(new LinkQualityMonitor.Snapshot());
+        assertEquals(0, snapshot.lost);
+        assertEquals(2, snapshot.reordered);
+        assertEquals(0, snapshot.lossRate, 0);
+
+        // 设备重启后从 100 重新开始，之前的 50 晚到同样不扣除；100 之后的跳号仍然按丢失计并在晚到时扣除
+        monitor.record(3000, 15_000, arrival += 5_000_000L);
+        assertEquals(2987, monitor.snapshot(snapshot).lost);
+        int[] afterRestart = {100, 50, 103, 101};
+        for (int index : afterRestart) {
+            monitor.record(index, index * 5L, arrival += 5_000_000L);
+        }
+        monitor.snapshot(snapshot);
+        assertEquals(1, snapshot.restarts);
+        assertEquals(2987 + 2 - 1, snapshot.lost);  // 101、102 丢失，101 晚到
+        assertTrue(snapshot.lossRate >= 0);
+    }
+
+    @Test
+    public void histogramPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000_000L);
+        for (int v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(100_000, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / 32.0);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / 32.0);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            long v = (long) (Math.exp(random.nextDouble() * 17));
+            int index = LatencyHistogram.indexOf(v);
+            long high = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(v <= high);
+            assertTrue(high - v <= Math.max(0, v / 32));
+            assertTrue(index == 0 || LatencyHistogram.highestEquivalentValue(index - 1) < v);
+        }
+    }
+
+    @Test
+    public void estimatesClockDriftAndJitter() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor();
+        monitor.setMillisPerTick(0.001);  // 设备时间戳单位为微秒
+        Random random = new Random(9);
+        long start = 1_000_000_000L;
+        for (int i = 0; i < 4000; i++) {
+            // 设备每 5ms 一个样本，时钟快 100ppm；到达时间有 0~2ms 的随机延迟
+            long timestamp = Math.round(i * 5000 * (1 + 100e-6));
+            long arrival = start + i * 5_000_000L + random.nextInt(2_000_000);
+            monitor.record(i, timestamp, arrival);
+        }
+        LinkQualityMonitor.Snapshot snapshot = monitor.snapshot(new LinkQualityMonitor.Snapshot());
+        assertTrue(snapshot.driftValid);
+        assertEquals(100, snapshot.clockDriftPpm, 5);
+        assertEquals(0, snapshot.lost);
+        assertTrue(snapshot.jitterP99Micros <= 2100);
+        assertTrue(snapshot.jitterP50Micros > 100);
+        assertEquals(5000, snapshot.intervalMeanMicros, 10);
+    }
+}
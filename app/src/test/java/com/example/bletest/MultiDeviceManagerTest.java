@@ -0,0 +1,128 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多设备的解析、按时间合并、重连后切换合并源、断开时排空已入队的数据和断开后移除合并源的测试
+ * 设备不建立 BLE 连接，连接事件和通知数据直接注入
+ */
+public class MultiDeviceManagerTest {
+
+    private final int[] samplesA = {0};
+    private final int[] samplesB = {0};
+    private final int[] disconnects = {0};
+
+    private final MultiDeviceManager manager = new MultiDeviceManager(null, 1.0, new MultiDeviceManager.Listener() {
+        @Override
+        public void onSample(MultiDeviceManager.Device device, SensorData data) {
+            synchronized (samplesA) {
+                if (device.getAddress().equals("A")) {
+                    samplesA[0]++;
+                } else {
+                    samplesB[0]++;
+                }
+            }
+        }
+
+        @Override
+        public void onDeviceConnected(MultiDeviceManager.Device device) {
+        }
+
+        @Override
+        public void onDeviceDisconnected(MultiDeviceManager.Device device) {
+            disconnects[0]++;
+        }
+
+        @Override
+        public void onError(MultiDeviceManager.Device device, String errorMessage) {
+        }
+    });
+
+    private static void send(MultiDeviceManager.Device device, long firstTimestamp, int firstIndex, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append('[').append(firstTimestamp + i).append(']').append(firstIndex + i)
+                    .append("x 1y 2z 3t 4\r\n");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+        device.onDataReceived(bytes, 0, bytes.length);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(2);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private int samples(int[] counter) {
+        synchronized (samplesA) {
+            return counter[0];
+        }
+    }
+
+    @Test
+    public void mergesDevicesAndSwitchesSourceOnReconnect() throws Exception {
+        MultiDeviceManager.Device a = manager.addDevice("A", "a");
+        MultiDeviceManager.Device b = manager.addDevice("B", "b");
+        a.onDeviceConnected("a");
+        b.onDeviceConnected("b");
+        assertTrue(a.isConnected());
+        assertEquals(2, manager.getActiveSourceCount());
+
+        send(a, 1000, 0, 100);
+        send(b, 5_000_000, 0, 100);
+        waitFor(() -> samples(samplesA) == 100 && samples(samplesB) == 100);
+        assertEquals(100, a.getFrameCount());
+        assertEquals(0, a.getLinkQuality().snapshot(new LinkQualityMonitor.Snapshot()).lost);
+
+        // 断开后，已入队的样本输出完时移除合并源
+        a.onDeviceDisconnected();
+        assertFalse(a.isConnected());
+        waitFor(() -> manager.getActiveSourceCount() == 1);
+        // 重复的断开事件不再报告
+        a.onDeviceDisconnected();
+        assertEquals(1, disconnects[0]);
+
+        // 断开期间的数据不进入合并流
+        send(a, 2000, 200, 10);
+        waitFor(() -> a.getFrameCount() == 110);
+
+        // 重连后设备时钟重置，使用新的合并源重新对齐
+        a.onDeviceConnected("a");
+        assertEquals(2, manager.getActiveSourceCount());
+        send(a, 0, 0, 50);
+        waitFor(() -> samples(samplesA) == 150);
+
+        a.onDeviceDisconnected();
+        b.onDeviceDisconnected();
+        waitFor(() -> manager.getActiveSourceCount() == 0);
+        assertEquals(250, manager.getMergedCount());
+        assertEquals(100, samples(samplesB));
+        manager.shutdown();
+    }
+
+    @Test
+    public void disconnectWithQueuedPacketsStillMergesThem() throws Exception {
+        MultiDeviceManager.Device a = manager.addDevice("A", "a");
+        a.onDeviceConnected("a");
+        // 断开时数据包仍在流水线中排队，最后一行没有换行，由结束标记解析
+        for (int i = 0; i < 50; i++) {
+            send(a, 1000 + i * 10L, i * 10, 10);
+        }
+        byte[] tail = "[1500]500x 1y 2z 3t 4".getBytes(StandardCharsets.US_ASCII);
+        a.onDataReceived(tail, 0, tail.length);
+        a.onDeviceDisconnected();
+
+        waitFor(() -> manager.getActiveSourceCount() == 0);
+        assertEquals(501, samples(samplesA));
+        assertEquals(501, manager.getMergedCount());
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多分辨率存储的逐层汇总、层选择、按列合并和容量回绕测试
+ */
+public class MultiResolutionStoreTest {
+
+    private static MultiResolutionStore ramp(int capacity, int samples) {
+        MultiResolutionStore store = new MultiResolutionStore(10, 3, capacity);
+        for (int i = 0; i < samples; i++) {
+            store.append(i, -i, 1, 25);
+        }
+        return store;
+    }
+
+    @Test
+    public void decimatesIntoMinMaxMeanTiers() {
+        MultiResolutionStore store = ramp(4096, 10_000);
+        float[] min = new float[200];
+        float[] max = new float[200];
+        float[] mean = new float[200];
+
+        // 100 个样本画在 50 列：原始层，每列 2 个样本
+        assertEquals(0, store.chooseTier(100, 50));
+        assertEquals(50, store.queryLatest(MultiResolutionStore.CHANNEL_X, 100, 50, min, max, mean));
+        assertEquals(9900, min[0], 0);
+        assertEquals(9901, max[0], 0);
+        assertEquals(9999, max[49], 0);
+
+        // 全部 10000 个样本画在 100 列：100x 层，每列一项
+        assertEquals(2, store.chooseTier(10_000, 100));
+        assertEquals(100, store.queryLatest(MultiResolutionStore.CHANNEL_X, 10_000, 100, min, max, mean));
+        assertEquals(0, min[0], 0);
+        assertEquals(99, max[0], 0);
+        assertEquals(49.5, mean[0], 1e-3);
+        assertEquals(9999, max[99], 0);
+
+        // 负斜率通道的最小/最大值互换
+        store.queryLatest(MultiResolutionStore.CHANNEL_Y, 10_000, 100, min, max, mean);
+        assertEquals(-99, min[0], 0);
+        assertEquals(0, max[0], 0);
+
+        // 请求的范围超过已有数据时只返回已有的项
+        assertEquals(100, store.queryLatest(MultiResolutionStore.CHANNEL_X, 1_000_000, 150, min, max, mean));
+    }
+
+    @Test
+    public void includesPartialEntryAndMergesColumns() {
+        MultiResolutionStore store = ramp(4096, 10_005);
+        float[] min = new float[100];
+        float[] max = new float[100];
+        float[] mean = new float[100];
+
+        // 10x 层：最近 99 个完整项加上正在汇总的 5 个样本
+        assertEquals(1, store.chooseTier(1000, 100));
+        assertEquals(100, store.queryLatest(MultiResolutionStore.CHANNEL_X, 1000, 100, min, max, mean));
+        assertEquals(9010, min[0], 0);
+        assertEquals(10_000, min[99], 0);
+        assertEquals(10_004, max[99], 0);
+        assertEquals(10_002, mean[99], 1e-3);
+
+        // 10x 层 100 项合并到 60 列，每列的最小/最大值覆盖合并的所有项
+        int columns = store.queryLatest(MultiResolutionStore.CHANNEL_X, 1000, 60, min, max, mean);
+        assertEquals(60, columns);
+        assertEquals(9010, min[0], 0);
+        assertEquals(9019, max[0], 0);
+        assertEquals(9020, min[1], 0);
+        assertEquals(9039, max[1], 0);
+        assertEquals(9029.5, mean[1], 1e-3);
+        assertEquals(10_004, max[59], 0);
+    }
+
+    @Test
+    public void keepsOnlyCapacityEntriesPerTier() {
+        MultiResolutionStore store = ramp(16, 1000);
+        float[] min = new float[32];
+        float[] max = new float[32];
+        float[] mean = new float[32];
+        assertEquals(16, store.queryLatest(MultiResolutionStore.CHANNEL_X, 16, 32, min, max, mean));
+        assertEquals(984, min[0], 0);
+        // 100x 层只有 10 项
+        assertEquals(10, store.queryLatest(MultiResolutionStore.CHANNEL_X, 100_000, 10, min, max, mean));
+        assertEquals(0, min[0], 0);
+
+        store.clear();
+        assertEquals(0, store.getSampleCount());
+        assertEquals(0, store.queryLatest(MultiResolutionStore.CHANNEL_X, 100, 10, min, max, mean));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 指数退避的增长、上限、抖动范围和重置测试
+ */
+public class ReconnectBackoffTest {
+
+    @Test
+    public void growsExponentiallyUpToMax() {
+        ReconnectBackoff backoff = new ReconnectBackoff(50, 2000, 2, 0, new Random(1));
+        long[] expected = {50, 100, 200, 400, 800, 1600, 2000, 2000};
+        for (long delay : expected) {
+            assertEquals(delay, backoff.nextDelayMs());
+        }
+        assertEquals(expected.length, backoff.getAttempts());
+    }
+
+    @Test
+    public void jitterStaysWithinBounds() {
+        ReconnectBackoff backoff = new ReconnectBackoff(40, 5000, 2, 0.5, new Random(7));
+        long base = 40;
+        boolean sawJitter = false;
+        for (int i = 0; i < 12; i++) {
+            long delay = backoff.nextDelayMs();
+            assertTrue(delay <= base);
+            assertTrue(delay >= base / 2);
+            sawJitter |= delay != base;
+            base = Math.min(base * 2, 5000);
+        }
+        assertTrue(sawJitter);
+    }
+
+    @Test
+    public void resetStartsOver() {
+        ReconnectBackoff backoff = new ReconnectBackoff(20, 1000, 3, 0, new Random(1));
+        backoff.nextDelayMs();
+        backoff.nextDelayMs();
+        backoff.reset();
+        assertEquals(0, backoff.getAttempts());
+        assertEquals(20, backoff.nextDelayMs());
+    }
+}
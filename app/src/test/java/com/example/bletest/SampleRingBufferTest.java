@@ -0,0 +1,84 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多消费者环形缓冲区的并发测试：阻塞型消费者不丢数据，丢弃型消费者不会读到写了一半的样本
+ */
+public class SampleRingBufferTest {
+
+    private static final int SAMPLE_COUNT = 2_000_000;
+
+    @Test
+    public void gatingAndLossyConsumersReadConcurrently() throws Exception {
+        SampleRingBuffer ring = new SampleRingBuffer(64);
+        SampleRingBuffer.Cursor gating = ring.newCursor(true);
+        SampleRingBuffer.Cursor lossy = ring.newCursor(false);
+
+        final long[] gatingResult = new long[2];  // 读取数, 错误数
+        final long[] lossyResult = new long[2];
+        Thread gatingThread = new Thread(() -> consume(gating, gatingResult, true));
+        Thread lossyThread = new Thread(() -> consume(lossy, lossyResult, false));
+        gatingThread.start();
+        lossyThread.start();
+
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            ring.publish(i, i, i * 2.0, -i, i + 0.5, 1.0);
+        }
+        // 结束标记
+        ring.publish(-1, -1, 0, 0, 0, 0);
+        gatingThread.join(30000);
+        lossyThread.join(30000);
+
+        assertEquals(0, gatingResult[1]);
+        assertEquals(SAMPLE_COUNT, gatingResult[0]);
+        assertEquals(0, gating.getLostCount());
+
+        assertEquals(0, lossyResult[1]);
+        assertEquals(SAMPLE_COUNT, lossyResult[0] + lossy.getLostCount());
+    }
+
+    @Test
+    public void closedGatingCursorDoesNotBlockProducer() {
+        SampleRingBuffer ring = new SampleRingBuffer(8);
+        SampleRingBuffer.Cursor cursor = ring.newCursor(true);
+        cursor.close();
+        for (int i = 0; i < 100; i++) {
+            ring.publish(i, i, 0, 0, 0, 0);
+        }
+        assertEquals(100, ring.getPublishedCount());
+
+        SampleRingBuffer.Cursor late = ring.newCursor(false);
+        SensorData data = new SensorData(0, 0, 0, 0, 0, 0);
+        assertFalse(late.poll(data));
+        ring.publish(100, 100, 0, 0, 0, 0);
+        assertTrue(late.poll(data));
+        assertEquals(100, data.timestamp);
+    }
+
+    private static void consume(SampleRingBuffer.Cursor cursor, long[] result, boolean expectAll) {
+        SensorData data = new SensorData(0, 0, 0, 0, 0, 0);
+        long expected = 0;
+        while (true) {
+            if (!cursor.poll(data)) {
+                Thread.yield();
+                continue;
+            }
+            if (data.timestamp == -1) {
+                return;
+            }
+            // 同一个样本的各个字段必须来自同一次发布
+            if (data.index != data.timestamp || data.x != data.timestamp * 2.0 || data.y != -data.timestamp
+                    || data.z != data.timestamp + 0.5) {
+                result[1]++;
+            }
+            if (expectAll ? data.timestamp != expected : data.timestamp < expected) {
+                result[1]++;
+            }
+            expected = data.timestamp + 1;
+            result[0]++;
+        }
+    }
+}
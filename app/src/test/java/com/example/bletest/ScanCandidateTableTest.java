@@ -0,0 +1,62 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 扫描候选表的 RSSI 平滑、新鲜度排序和过期测试
+ */
+public class ScanCandidateTableTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void ranksByRssiThenFreshness() {
+        ScanCandidateTable<String> table = new ScanCandidateTable<>(5, 10_000);
+        table.update("A", "nRF A", "a", -70, 0);
+        table.update("B", "nRF B", "b", -55, 0);
+        table.update("C", "UART C", "c", -60, 0);
+
+        List<ScanCandidateTable.Candidate<String>> ranked = table.ranked(0);
+        assertEquals("B", ranked.get(0).getAddress());
+        assertEquals("C", ranked.get(1).getAddress());
+        assertEquals("A", ranked.get(2).getAddress());
+
+        // B 4 秒没有出现，扣 20 分后排到 C 之后
+        table.update("C", null, "c", -60, 4 * SECOND);
+        table.update("A", null, "a", -70, 4 * SECOND);
+        ranked = table.ranked(4 * SECOND);
+        assertEquals("C", ranked.get(0).getAddress());
+        assertEquals("UART C", ranked.get(0).getName());
+        assertEquals(2, ranked.get(0).getSeenCount());
+        assertEquals("B", ranked.get(2).getAddress());
+    }
+
+    @Test
+    public void smoothsRssiSpikes() {
+        ScanCandidateTable<String> table = new ScanCandidateTable<>(0, 10_000);
+        for (int i = 0; i < 20; i++) {
+            table.update("A", "nRF", "a", -80, i);
+            table.update("B", "nRF", "b", -65, i);
+        }
+        // A 单次出现很强的信号不会立即排到第一
+        table.update("A", "nRF", "a", -40, 20);
+        ScanCandidateTable.Candidate<String> best = table.best(20);
+        assertEquals("B", best.getAddress());
+        assertEquals(-40, table.ranked(20).get(1).getLastRssi());
+    }
+
+    @Test
+    public void expiresStaleDevices() {
+        ScanCandidateTable<String> table = new ScanCandidateTable<>(1, 2_000);
+        table.update("A", "nRF", "a", -50, 0);
+        table.update("B", "nRF", "b", -90, 2 * SECOND);
+        assertEquals(2, table.ranked(2 * SECOND).size());
+        assertEquals("B", table.best(3 * SECOND).getAddress());
+        assertEquals(1, table.size());
+        assertNull(table.best(10 * SECOND));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按列存储的分块增长、容量回绕、按时间查找和乱序时间戳下的范围遍历测试
+ */
+public class SensorDataStoreTest {
+
+    private static void appendRow(SensorDataStore store, long timestamp, int index) {
+        store.append(timestamp, index, index, -index, index * 0.5, 25);
+    }
+
+    @Test
+    public void growsAcrossChunksAndWrapsAtCapacity() {
+        SensorDataStore store = new SensorDataStore(10_000);
+        // 向上取整为 4 块 * 4096 行
+        assertEquals(16_384, store.getCapacity());
+
+        for (int i = 0; i < 5000; i++) {
+            appendRow(store, i * 10L, i);
+        }
+        assertEquals(5000, store.size());
+        SensorData row = store.get(4097, new SensorData(0, 0, 0, 0, 0, 0));
+        assertEquals(40_970, row.timestamp);
+        assertEquals(4097, row.index);
+        assertEquals(-4097, row.y, 0);
+        assertEquals(2048.5, store.z(4097), 0);
+
+        // 写满后覆盖最旧的行，行号 0 总是保留的最旧一行
+        for (int i = 5000; i < 20_000; i++) {
+            appendRow(store, i * 10L, i);
+        }
+        assertEquals(16_384, store.size());
+        assertEquals(20_000 - 16_384, store.getOverwrittenCount());
+        assertEquals(20_000 - 16_384, store.index(0));
+        assertEquals(19_999, store.index(store.size() - 1));
+        try {
+            store.timestamp(store.size());
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        // 按时间查找在回绕后仍然二分
+        assertEquals(0, store.lowerBound(0));
+        assertEquals(10_000 - 3616, store.lowerBound(100_000));
+        assertEquals(10_000 - 3616, store.lowerBound(99_995));
+        assertEquals(10_000 - 3616 + 1, store.upperBound(100_000));
+        assertEquals(store.size(), store.lowerBound(Long.MAX_VALUE));
+        assertEquals(0, store.upperBound(0));
+
+        int count = 0;
+        long expected = 100_000;
+        for (Iterator<SensorData> it = store.rangeByTime(100_000, 100_090); it.hasNext(); ) {
+            assertEquals(expected, it.next().timestamp);
+            expected += 10;
+            count++;
+        }
+        assertEquals(10, count);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertFalse(store.iterator().hasNext());
+        appendRow(store, 5, 1);
+        assertEquals(1, store.size());
+        assertEquals(5, store.timestamp(0));
+    }
+
+    @Test
+    public void unsortedRangeOnlyReturnsRowsInRange() {
+        SensorDataStore store = new SensorDataStore(100);
+        long[] timestamps = {10, 20, 30, 5, 40, 15, 50};
+        for (int i = 0; i < timestamps.length; i++) {
+            appendRow(store, timestamps[i], i);
+        }
+
+        // 乱序时线性查找：第一个 >= 的行和最后一个 <= 的行之后
+        assertEquals(1, store.lowerBound(16));
+        assertEquals(6, store.upperBound(16));
+        assertEquals(7, store.upperBound(50));
+        assertEquals(0, store.upperBound(4));
+
+        // 行号范围 [1, 6) 中的 30、5 和 40 不在 [16, 20] 内，应被跳过
+        StringBuilder seen = new StringBuilder();
+        for (Iterator<SensorData> it = store.rangeByTime(16, 20); it.hasNext(); ) {
+            seen.append(it.next().timestamp).append(' ');
+        }
+        assertEquals("20 ", seen.toString());
+
+        seen.setLength(0);
+        for (Iterator<SensorData> it = store.rangeByTime(10, 30); it.hasNext(); ) {
+            seen.append(it.next().timestamp).append(' ');
+        }
+        assertEquals("10 20 30 15 ", seen.toString());
+    }
+
+    @Test
+    public void iteratorStopsAfterClear() {
+        SensorDataStore store = new SensorDataStore(100);
+        for (int i = 0; i < 10; i++) {
+            appendRow(store, i, i);
+        }
+        Iterator<SensorData> it = store.iterator();
+        assertEquals(0, it.next().index);
+        store.clear();
+        for (int i = 0; i < 10; i++) {
+            appendRow(store, i, 100 + i);
+        }
+        assertFalse(it.hasNext());
+    }
+}
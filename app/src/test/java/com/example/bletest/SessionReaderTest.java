@@ -0,0 +1,112 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+/**
+ * 录制文件读取器的按下标访问和时间区间查询测试
+ */
+public class SessionReaderTest {
+
+    private static final int SAMPLE_COUNT = 5000;
+
+    @Test
+    public void sampleAtReadsRecords() throws Exception {
+        File file = record();
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(SAMPLE_COUNT, reader.count());
+            assertTrue(reader.hasIndex());
+            assertEquals("nRF UART", reader.getDeviceName());
+
+            SensorData data = new SensorData(0, 0, 0, 0, 0, 0);
+            for (int i = 0; i < SAMPLE_COUNT; i += 37) {
+                reader.sampleAt(i, data);
+                assertEquals(timestamp(i), data.timestamp);
+                assertEquals(i, data.index);
+                assertEquals(i * 0.125, data.x, 0);
+                assertEquals(36.6, data.t, 1e-9);
+                assertEquals(1700000000000L + i, reader.wallTimeAt(i));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void samplesBetweenMatchesLinearScan() throws Exception {
+        File file = record();
+        try (SessionReader reader = new SessionReader(file)) {
+            assertRangesMatch(reader);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readsFileWithoutFooter() throws Exception {
+        File file = record();
+        try {
+            // 模拟录制中断：截掉文件尾和最后半条记录
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long footerSize = ((SAMPLE_COUNT + BinaryRecordingFormat.INDEX_INTERVAL - 1)
+                        / BinaryRecordingFormat.INDEX_INTERVAL) * BinaryRecordingFormat.INDEX_ENTRY_SIZE
+                        + BinaryRecordingFormat.TRAILER_SIZE;
+                raf.setLength(raf.length() - footerSize - BinaryRecordingFormat.RECORD_SIZE / 2);
+            }
+            try (SessionReader reader = new SessionReader(file)) {
+                assertFalse(reader.hasIndex());
+                assertEquals(SAMPLE_COUNT - 1, reader.count());
+                assertRangesMatch(reader);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertRangesMatch(SessionReader reader) {
+        long last = reader.timestampAt(reader.count() - 1);
+        for (long t0 = timestamp(0) - 7; t0 <= last + 7; t0 += 233) {
+            long t1 = t0 + 1234;
+            long expected = 0;
+            for (long i = 0; i < reader.count(); i++) {
+                long ts = reader.timestampAt(i);
+                if (ts >= t0 && ts <= t1) {
+                    expected++;
+                }
+            }
+            long actual = 0;
+            Iterator<SensorData> it = reader.samplesBetween(t0, t1);
+            while (it.hasNext()) {
+                SensorData data = it.next();
+                assertTrue(data.timestamp >= t0 && data.timestamp <= t1);
+                actual++;
+            }
+            assertEquals(expected, actual);
+            assertEquals(expected, reader.upperBound(t1) - reader.lowerBound(t0));
+        }
+    }
+
+    // 每个时间戳出现两次，检查重复值的边界
+    private static long timestamp(int i) {
+        return 1000L + (i / 2) * 5L;
+    }
+
+    private static File record() throws Exception {
+        File file = File.createTempFile("px_session_", ".bin");
+        BinarySampleEncoder encoder = new BinarySampleEncoder("nRF UART");
+        RecordingWriter writer = new RecordingWriter("test", encoder, (message, e) -> fail(message));
+        writer.setOverflowPolicy(RecordingWriter.OverflowPolicy.BLOCK);
+        writer.open(file, encoder);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            writer.write(1700000000000L + i, timestamp(i), i, i * 0.125, -i / 1000.0, 1.5, 36.6);
+        }
+        writer.shutdown();
+        writer.awaitTermination(10000);
+        return file;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * FFT 与直接 DFT 的对比、频带能量和重叠窗口测试
+ */
+public class SpectralAnalyzerTest {
+
+    @Test
+    public void fftMatchesDirectDft() {
+        int n = 64;
+        Random random = new Random(2);
+        double[] re = new double[n];
+        double[] im = new double[n];
+        double[] inputRe = new double[n];
+        double[] inputIm = new double[n];
+        for (int i = 0; i < n; i++) {
+            inputRe[i] = re[i] = random.nextGaussian();
+            inputIm[i] = im[i] = random.nextGaussian();
+        }
+        new Fft(n).transform(re, im);
+        for (int k = 0; k < n; k++) {
+            double sumRe = 0, sumIm = 0;
+            for (int i = 0; i < n; i++) {
+                double angle = -2 * Math.PI * k * i / n;
+                sumRe += inputRe[i] * Math.cos(angle) - inputIm[i] * Math.sin(angle);
+                sumIm += inputRe[i] * Math.sin(angle) + inputIm[i] * Math.cos(angle);
+            }
+            assertEquals(sumRe, re[k], 1e-9);
+            assertEquals(sumIm, im[k], 1e-9);
+        }
+    }
+
+    @Test
+    public void bandEnergiesLocateSines() {
+        double rate = 200;
+        double[] bands = {0, 5, 10, 20, 50, 100};
+        double[][] last = new double[1][];
+        double[] peaks = new double[3];
+        SpectralAnalyzer analyzer = new SpectralAnalyzer(256, 128, rate, bands, spectrum -> {
+            last[0] = spectrum.bandEnergies.clone();
+            System.arraycopy(spectrum.peakFrequencies, 0, peaks, 0, 3);
+        });
+        for (int i = 0; i < 1024; i++) {
+            double t = i / rate;
+            // x：幅值 2、15 Hz；y：直流 9.8；z：幅值 1、40 Hz 加幅值 0.5、7 Hz
+            analyzer.add(i, i, 2 * Math.sin(2 * Math.PI * 15 * t), 9.8,
+                    Math.sin(2 * Math.PI * 40 * t) + 0.5 * Math.sin(2 * Math.PI * 7 * t));
+        }
+        // 50% 重叠：(1024 - 256) / 128 + 1
+        assertEquals(7, analyzer.getSpectrumCount());
+
+        double[] energies = last[0];
+        int bandCount = bands.length - 1;
+        assertEquals(2.0, energies[SpectralAnalyzer.AXIS_X * bandCount + 2], 0.05);
+        assertEquals(0, energies[SpectralAnalyzer.AXIS_X * bandCount + 0], 0.01);
+        assertEquals(15, peaks[SpectralAnalyzer.AXIS_X], rate / 256);
+
+        // 直流只出现在包含 0 Hz 的频带
+        assertEquals(9.8 * 9.8, energies[SpectralAnalyzer.AXIS_Y * bandCount + 0], 1);
+        assertEquals(0, energies[SpectralAnalyzer.AXIS_Y * bandCount + 3], 1e-9);
+
+        assertEquals(0.5, energies[SpectralAnalyzer.AXIS_Z * bandCount + 3], 0.02);
+        assertEquals(0.125, energies[SpectralAnalyzer.AXIS_Z * bandCount + 1], 0.01);
+        assertEquals(40, peaks[SpectralAnalyzer.AXIS_Z], rate / 256);
+    }
+}
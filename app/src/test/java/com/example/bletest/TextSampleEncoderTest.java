@@ -0,0 +1,121 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * 无分配的文本编码与原来 SimpleDateFormat + String.format 的输出对比
+ */
+public class TextSampleEncoderTest {
+
+    private static final double[] CORNER_VALUES = {
+            0.0, -0.0, 1.0005, 0.0625, -0.0625, 2.0005, 0.0005, 0.00049999, -0.0001, 0.9995, 9.9995,
+            1e-20, 123456.7895, 999999999.9999, 1e9, -1e12, 1e300, Double.MAX_VALUE, Double.MIN_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    @Test
+    public void fixedMatchesStringFormat() {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        for (double value : CORNER_VALUES) {
+            assertFixed(out, value);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double value;
+            switch (i % 4) {
+                case 0:
+                    value = (random.nextInt(2000001) - 1000000) / 10000.0;  // 4 位小数，包含大量恰好在分界点的值
+                    break;
+                case 1:
+                    value = (random.nextDouble() - 0.5) * 200;
+                    break;
+                case 2:
+                    value = Double.parseDouble((random.nextInt(20000) - 10000) + "." + random.nextInt(10000));
+                    break;
+                default:
+                    value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+                    break;
+            }
+            assertFixed(out, value);
+        }
+    }
+
+    @Test
+    public void longMatchesToString() {
+        ByteBuffer out = ByteBuffer.allocate(64);
+        long[] values = {0, 1, -1, 9, 10, 99, 100, Long.MAX_VALUE, Long.MIN_VALUE, 1000000000000000000L,
+                Integer.MIN_VALUE, Integer.MAX_VALUE};
+        for (long value : values) {
+            out.clear();
+            DecimalWriter.writeLong(out, value);
+            assertEquals(Long.toString(value), new String(out.array(), 0, out.position(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void timestampMatchesSimpleDateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        TimestampEncoder encoder = new TimestampEncoder();
+        ByteBuffer out = ByteBuffer.allocate(64);
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            long millis = i < 10000
+                    ? 1700000000000L + i * 377L
+                    : (long) (random.nextDouble() * 253402300799999L);  // 1970 到 9999 年
+            out.clear();
+            encoder.writeUtc(out, millis);
+            assertEquals(format.format(new Date(millis)),
+                    new String(out.array(), 0, out.position(), StandardCharsets.US_ASCII));
+        }
+        long[] corners = {0, -1, 951782400000L, 4107542400000L, -62135596800000L, -62135596800001L};
+        for (long millis : corners) {
+            out.clear();
+            encoder.writeUtc(out, millis);
+            assertEquals(format.format(new Date(millis)),
+                    new String(out.array(), 0, out.position(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void derivedWallClockFollowsDeviceTimestamp() {
+        TimestampEncoder encoder = TimestampEncoder.derivedFromDeviceClock(2.0);
+        assertEquals(1000000L, encoder.wallTime(1000000L, 500));
+        // 手机时间抖动不影响推算结果
+        assertEquals(1000200L, encoder.wallTime(1000999L, 600));
+        // 设备时间戳回退时重新取锚点
+        assertEquals(2000000L, encoder.wallTime(2000000L, 10));
+        encoder.reset();
+        assertEquals(3000000L, encoder.wallTime(3000000L, 20));
+    }
+
+    @Test
+    public void encodedLineMatchesStringFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        TextSampleEncoder encoder = new TextSampleEncoder();
+        ByteBuffer out = ByteBuffer.allocate(encoder.maxRecordSize());
+        long wallTime = 1700000000123L;
+        encoder.encode(out, wallTime, 123456789L, -3, 1.0005, -0.0001, 36.6, 1e300);
+        String expected = String.format(Locale.ROOT, "%s, %d, %d, %.3f, %.3f, %.3f, %.3f\n",
+                format.format(new Date(wallTime)), 123456789L, -3, 1.0005, -0.0001, 36.6, 1e300);
+        assertEquals(expected, new String(out.array(), 0, out.position(), StandardCharsets.UTF_8));
+    }
+
+    private static void assertFixed(ByteBuffer out, double value) {
+        out.clear();
+        DecimalWriter.writeFixed(out, value, 3);
+        assertEquals("value " + value, String.format(Locale.ROOT, "%.3f", value),
+                new String(out.array(), 0, out.position(), StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多设备样本合并的排序、时钟对齐和掉线源测试
+ */
+public class TimestampMergerTest {
+
+    private static final class Merged {
+        final int source;
+        final long timestamp;
+
+        Merged(int source, long timestamp) {
+            this.source = source;
+            this.timestamp = timestamp;
+        }
+    }
+
+    @Test
+    public void mergesIndependentClocksInArrivalOrder() throws Exception {
+        List<Merged> out = new ArrayList<>();
+        TimestampMerger merger = new TimestampMerger("test", 1.0, 5000,
+                (source, data) -> out.add(new Merged(source, data.timestamp)));
+        int a = merger.addSource();
+        int b = merger.addSource();
+
+        // 两个设备的时钟相差一百万个 tick，每 1ms 交替到达一个样本
+        long base = System.nanoTime();
+        SensorData sample = new SensorData(0, 0, 0, 0, 0, 0);
+        for (int i = 0; i < 2000; i++) {
+            sample.timestamp = 2L * i;
+            assertTrue(merger.offer(a, sample, base + 2L * i * 1_000_000L));
+            sample.timestamp = 1_000_000L + 2L * i + 1;
+            assertTrue(merger.offer(b, sample, base + (2L * i + 1) * 1_000_000L));
+        }
+        merger.closeSource(a);
+        merger.closeSource(b);
+        merger.shutdown();
+        assertTrue(merger.awaitTermination(5000));
+
+        assertEquals(4000, out.size());
+        for (int i = 0; i < out.size(); i++) {
+            assertEquals(i % 2 == 0 ? a : b, out.get(i).source);
+        }
+        assertEquals(0, merger.getOutOfOrderCount());
+        assertEquals(4000, merger.getMergedCount());
+    }
+
+    @Test
+    public void silentSourceDoesNotStallOthers() throws Exception {
+        List<Merged> out = new ArrayList<>();
+        TimestampMerger merger = new TimestampMerger("test", 1.0, 20,
+                (source, data) -> {
+                    synchronized (out) {
+                        out.add(new Merged(source, data.timestamp));
+                    }
+                });
+        int a = merger.addSource();
+        merger.addSource();  // 已连接但一直没有数据
+
+        SensorData sample = new SensorData(0, 0, 0, 0, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            sample.timestamp = i;
+            assertTrue(merger.offer(a, sample));
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        while (merger.getMergedCount() < 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(100, merger.getMergedCount());
+        synchronized (out) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, out.get(i).timestamp);
+            }
+        }
+        merger.shutdown();
+        assertTrue(merger.awaitTermination(1000));
+    }
+}
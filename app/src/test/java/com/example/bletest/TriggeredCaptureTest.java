@@ -0,0 +1,106 @@
+package com.example.bletest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 触发式采集的预触发/后触发窗口、忽略重复触发和容量不足测试
+ */
+public class TriggeredCaptureTest {
+
+    private static final class Collector implements TriggeredCapture.Sink {
+        final List<Long> timestamps = new ArrayList<>();
+        long triggerTimestamp = -1;
+        int captures;
+        int lastCount;
+        boolean lastTruncated;
+
+        @Override
+        public void onCaptureStart(long triggerTimestamp) {
+            this.triggerTimestamp = triggerTimestamp;
+            timestamps.clear();
+        }
+
+        @Override
+        public void onCaptureSample(long wallTimeMillis, long timestamp, int index,
+                                    double x, double y, double z, double t) {
+            assertEquals(timestamp, index * 5L);
+            timestamps.add(timestamp);
+        }
+
+        @Override
+        public void onCaptureEnd(int sampleCount, boolean truncated) {
+            captures++;
+            lastCount = sampleCount;
+            lastTruncated = truncated;
+        }
+    }
+
+    private static void append(TriggeredCapture capture, int index) {
+        capture.append(1000L + index, index * 5L, index, index, 0, 0, 0);
+    }
+
+    @Test
+    public void capturesExactlyPreAndPostWindow() {
+        Collector collector = new Collector();
+        // 每 5ms 一个样本，截取触发前 100ms 和触发后 200ms
+        TriggeredCapture capture = new TriggeredCapture(1024, 100, 200, collector);
+        for (int i = 0; i <= 400; i++) {
+            append(capture, i);
+        }
+        assertTrue(capture.trigger());
+        assertFalse(capture.trigger());
+        assertEquals(1, capture.getIgnoredTriggers());
+
+        int i = 401;
+        while (collector.captures == 0) {
+            append(capture, i++);
+        }
+        // 触发时刻为触发前最后一个样本（2000），窗口 [1900, 2200]
+        assertEquals(2000, collector.triggerTimestamp);
+        assertEquals(61, collector.lastCount);
+        assertEquals(1900, (long) collector.timestamps.get(0));
+        assertEquals(2200, (long) collector.timestamps.get(60));
+        assertFalse(collector.lastTruncated);
+        assertEquals(442, i);  // 收到第一个超出窗口的样本（2205）时立即输出
+        assertFalse(capture.isCapturing());
+        assertTrue(capture.trigger());
+    }
+
+    @Test
+    public void reportsTruncationWhenCapacityIsTooSmall() {
+        Collector collector = new Collector();
+        TriggeredCapture capture = new TriggeredCapture(16, 100, 200, collector);
+        for (int i = 0; i < 100; i++) {
+            append(capture, i);
+        }
+        capture.trigger();
+        for (int i = 100; collector.captures == 0; i++) {
+            append(capture, i);
+        }
+        assertTrue(collector.lastTruncated);
+        assertEquals(16, collector.lastCount);
+    }
+
+    @Test
+    public void flushesPartialCaptureWhenStreamEnds() {
+        Collector collector = new Collector();
+        TriggeredCapture capture = new TriggeredCapture(1024, 100, 200, collector);
+        for (int i = 0; i < 50; i++) {
+            append(capture, i);
+        }
+        capture.trigger();
+        for (int i = 50; i < 60; i++) {
+            append(capture, i);
+        }
+        capture.flush();
+        assertEquals(1, collector.captures);
+        assertTrue(collector.lastTruncated);
+        // 窗口 [145, 445]，收到 145..295
+        assertEquals(31, collector.lastCount);
+    }
+}
@@ -0,0 +1,56 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// 直接编译 app 模块中不依赖 Android 的接收和录制代码，基准测试与 App 使用同一份源码
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/bletest/BinaryRecordingFormat.java",
+                "com/example/bletest/BinarySampleEncoder.java",
+                "com/example/bletest/ByteRingBuffer.java",
+                "com/example/bletest/DecimalWriter.java",
+                "com/example/bletest/FrameParser.java",
+                "com/example/bletest/Fft.java",
+                "com/example/bletest/FrameReassembler.java",
+                "com/example/bletest/IngestPipeline.java",
+                "com/example/bletest/LatencyHistogram.java",
+                "com/example/bletest/LinkQualityMonitor.java",
+                "com/example/bletest/RecordingWriter.java",
+                "com/example/bletest/SampleEncoder.java",
+                "com/example/bletest/SampleRingBuffer.java",
+                "com/example/bletest/SensorData.java",
+                "com/example/bletest/SensorDataStore.java",
+                "com/example/bletest/SpectralAnalyzer.java",
+                "com/example/bletest/SpscPacketQueue.java",
+                "com/example/bletest/SpscSampleQueue.java",
+                "com/example/bletest/TextSampleEncoder.java",
+                "com/example/bletest/TimestampEncoder.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+}
+
+// ./gradlew :benchmark:jmh
+// 结果中的 ops/s 为每秒处理的样本数，gc.alloc.rate.norm 为每个样本分配的字节数
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
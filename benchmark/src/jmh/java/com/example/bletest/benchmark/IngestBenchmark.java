@@ -0,0 +1,62 @@
+package com.example.bletest.benchmark;
+
+import com.example.bletest.FrameReassembler;
+import com.example.bletest.IngestPipeline;
+import com.example.bletest.SensorData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GATT 回调线程上的开销：把一组通知交给接收流水线（只入队，解析在后台线程）
+ * 队列满时数据包被丢弃，因此这里测的是回调线程的成本而不是端到端吞吐量。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(Payloads.SAMPLES_PER_BATCH)
+public class IngestBenchmark {
+
+    private Payloads payloads;
+    private IngestPipeline pipeline;
+
+    @Setup
+    public void setUp() {
+        payloads = Payloads.create(Payloads.Kind.MULTI_LINE);
+        pipeline = new IngestPipeline("bench", new FrameReassembler.FrameListener() {
+            @Override
+            public void onFrame(SensorData data) {
+            }
+
+            @Override
+            public void onNumberError(byte[] buf, int from, int to) {
+            }
+
+            @Override
+            public void onInvalidNumber(byte[] buf, int from, int to) {
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pipeline.shutdown();
+        pipeline.awaitTermination(10_000);
+    }
+
+    @Benchmark
+    public void offerFromGattCallback() {
+        for (byte[] packet : payloads.packets) {
+            pipeline.offer(packet, 0, packet.length);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bletest.benchmark;
+
+import com.example.bletest.SensorData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 改造前 DataParser 的解析和保存逻辑（正则解析 + 每行 SimpleDateFormat/String.format），作为基准测试的对照组
+ * 去掉了 Android 依赖，其余与原实现相同。
+ */
+public final class LegacyDataParser {
+
+    private static final Pattern DATA_PATTERN = Pattern.compile(
+            "\\[(\\d+)\\](\\d+)x ([-\\d.]+)y ([-\\d.]+)z ([-\\d.]+)t ([-\\d.]+)"
+    );
+
+    private final Consumer<SensorData> callback;
+    private final BufferedWriter writer;
+
+    public LegacyDataParser(Consumer<SensorData> callback, OutputStream output) {
+        this.callback = callback;
+        this.writer = new BufferedWriter(new OutputStreamWriter(output));
+    }
+
+    public void processIncomingData(String rawData) {
+        String[] lines = rawData.split("\\n");
+        for (String line : lines) {
+            String cleanLine = line.trim().replaceAll("\\s+", " ").trim();
+            SensorData data = parseData(cleanLine);
+            callback.accept(data);
+        }
+    }
+
+    public SensorData parseData(String cleanLine) {
+        Matcher matcher = DATA_PATTERN.matcher(cleanLine);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return new SensorData(
+                    Long.parseLong(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2)),
+                    parseDoubleSafely(matcher.group(3)),
+                    parseDoubleSafely(matcher.group(4)),
+                    parseDoubleSafely(matcher.group(5)),
+                    parseDoubleSafely(matcher.group(6))
+            );
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private double parseDoubleSafely(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private String getWorldTime() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date now = new Date();
+        return sdf.format(now);
+    }
+
+    public void saveDataToCSVFile(SensorData data) throws IOException {
+        String worldTime = getWorldTime();
+        String dataString = String.format(
+                "%s, %d, %d, %.3f, %.3f, %.3f, %.3f\n",
+                worldTime, data.timestamp, data.index, data.x, data.y, data.z, data.t
+        );
+        writer.write(dataString);
+        writer.flush();
+    }
+}
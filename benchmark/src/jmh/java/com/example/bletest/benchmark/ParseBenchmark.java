@@ -0,0 +1,112 @@
+package com.example.bletest.benchmark;
+
+import com.example.bletest.FrameParser;
+import com.example.bletest.FrameReassembler;
+import com.example.bletest.SensorData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析路径的吞吐量和分配：原正则实现与字节级解析器/跨包重组器对比
+ * 每次调用处理一组 {@link Payloads#SAMPLES_PER_BATCH} 行的通知数据，结果按样本归一化。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(Payloads.SAMPLES_PER_BATCH)
+public class ParseBenchmark {
+
+    @Param({"SINGLE_LINE", "MULTI_LINE", "SPLIT_FRAME", "MALFORMED"})
+    public Payloads.Kind kind;
+
+    private Payloads payloads;
+    private LegacyDataParser legacyParser;
+    private FrameReassembler reassembler;
+    private final FrameParser frameParser = new FrameParser();
+    private final SensorData parsed = new SensorData(0, 0, 0, 0, 0, 0);
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        payloads = Payloads.create(kind);
+        legacyParser = new LegacyDataParser(blackhole::consume, java.io.OutputStream.nullOutputStream());
+        reassembler = new FrameReassembler(new FrameReassembler.FrameListener() {
+            @Override
+            public void onFrame(SensorData data) {
+                blackhole.consume(data);
+            }
+
+            @Override
+            public void onNumberError(byte[] buf, int from, int to) {
+                blackhole.consume(from);
+            }
+
+            @Override
+            public void onInvalidNumber(byte[] buf, int from, int to) {
+                blackhole.consume(from);
+            }
+        });
+    }
+
+    /**
+     * 原 DataParser.processIncomingData：split + replaceAll + 正则，每行创建 SensorData（不处理跨包的行）
+     */
+    @Benchmark
+    public void legacyProcessIncomingData() {
+        for (String packet : payloads.strings) {
+            legacyParser.processIncomingData(packet);
+        }
+    }
+
+    /**
+     * 原 DataParser.parseData：只对单行做正则匹配
+     */
+    @Benchmark
+    public void legacyParseData(Blackhole blackhole) {
+        for (String packet : payloads.strings) {
+            blackhole.consume(legacyParser.parseData(packet.trim()));
+        }
+    }
+
+    /**
+     * 当前 DataParser.feed 的路径：GATT 字节直接交给跨包重组器
+     */
+    @Benchmark
+    public void reassemblerFeed() {
+        for (byte[] packet : payloads.packets) {
+            reassembler.feed(packet, 0, packet.length);
+        }
+    }
+
+    /**
+     * 当前 DataParser.processIncomingData(String) 的兼容路径：先转换为字节
+     */
+    @Benchmark
+    public void reassemblerFeedString() {
+        for (String packet : payloads.strings) {
+            byte[] bytes = packet.getBytes(StandardCharsets.US_ASCII);
+            reassembler.feed(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 字节级解析器单独解析每个通知（对应 parseData）
+     */
+    @Benchmark
+    public void frameParserParse(Blackhole blackhole) {
+        for (byte[] packet : payloads.packets) {
+            blackhole.consume(frameParser.parse(packet, 0, packet.length, parsed));
+        }
+    }
+}
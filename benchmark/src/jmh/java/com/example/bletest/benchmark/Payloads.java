@@ -0,0 +1,114 @@
+package com.example.bletest.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试使用的通知数据，格式与 nRF UART 设备实际发送的数据相同：
+ * "[时间戳]索引x 值y 值z 值t 值\r\n"
+ * 每组数据包含 {@link #SAMPLES_PER_BATCH} 行，结果按样本数归一化。
+ */
+public final class Payloads {
+
+    public static final int SAMPLES_PER_BATCH = 64;
+
+    // 默认 ATT MTU 23 时每个通知最多 20 字节，协商到 247 时最多 244 字节
+    private static final int SMALL_NOTIFICATION = 20;
+    private static final int LARGE_NOTIFICATION = 244;
+
+    public enum Kind {
+        SINGLE_LINE,  // 每个通知正好一行
+        MULTI_LINE,   // 大 MTU，每个通知包含多行，在行边界截断
+        SPLIT_FRAME,  // 小 MTU，每行跨多个通知
+        MALFORMED     // 每 4 行有 1 行损坏（乱码、非法数值、时间戳溢出、截断）
+    }
+
+    public final String[] strings;
+    public final byte[][] packets;
+
+    private Payloads(List<byte[]> packets) {
+        this.packets = packets.toArray(new byte[0][]);
+        this.strings = new String[this.packets.length];
+        for (int i = 0; i < this.packets.length; i++) {
+            strings[i] = new String(this.packets[i], StandardCharsets.US_ASCII);
+        }
+    }
+
+    public static Payloads create(Kind kind) {
+        Random random = new Random(20240601L);
+        List<String> lines = new ArrayList<>();
+        long timestamp = 1_718_000_000L;
+        for (int i = 0; i < SAMPLES_PER_BATCH; i++) {
+            timestamp += 5;
+            String line = line(random, timestamp, i);
+            if (kind == Kind.MALFORMED && i % 4 == 3) {
+                line = corrupt(line, i / 4);
+            }
+            lines.add(line);
+        }
+
+        List<byte[]> packets = new ArrayList<>();
+        switch (kind) {
+            case SINGLE_LINE:
+            case MALFORMED:
+                for (String line : lines) {
+                    packets.add(line.getBytes(StandardCharsets.US_ASCII));
+                }
+                break;
+            case MULTI_LINE: {
+                ByteArrayOutputStream packet = new ByteArrayOutputStream();
+                for (String line : lines) {
+                    byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+                    if (packet.size() + bytes.length > LARGE_NOTIFICATION) {
+                        packets.add(packet.toByteArray());
+                        packet.reset();
+                    }
+                    packet.write(bytes, 0, bytes.length);
+                }
+                packets.add(packet.toByteArray());
+                break;
+            }
+            case SPLIT_FRAME: {
+                byte[] stream = String.join("", lines).getBytes(StandardCharsets.US_ASCII);
+                for (int off = 0; off < stream.length; off += SMALL_NOTIFICATION) {
+                    int len = Math.min(SMALL_NOTIFICATION, stream.length - off);
+                    byte[] packet = new byte[len];
+                    System.arraycopy(stream, off, packet, 0, len);
+                    packets.add(packet);
+                }
+                break;
+            }
+            default:
+                throw new AssertionError(kind);
+        }
+        return new Payloads(packets);
+    }
+
+    private static String line(Random random, long timestamp, int index) {
+        return "[" + timestamp + "]" + index
+                + "x " + value(random, 2)
+                + "y " + value(random, 2)
+                + "z " + value(random, 10)
+                + "t " + value(random, 40) + "\r\n";
+    }
+
+    private static String value(Random random, double range) {
+        return String.format(java.util.Locale.ROOT, "%.3f", (random.nextDouble() - 0.5) * 2 * range);
+    }
+
+    private static String corrupt(String line, int variant) {
+        switch (variant % 4) {
+            case 0:
+                return "\u0000ÿ#@!" + line.substring(7);           // 行首乱码
+            case 1:
+                return line.replaceFirst("y [-0-9.]+", "y 1.2.3");      // 非法浮点数
+            case 2:
+                return "[99999999999999999999]" + line.substring(line.indexOf(']') + 1);  // 时间戳溢出
+            default:
+                return line.substring(0, line.length() / 2) + "\r\n";  // 截断
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bletest.benchmark;
+
+import com.example.bletest.BinarySampleEncoder;
+import com.example.bletest.FrameReassembler;
+import com.example.bletest.RecordingWriter;
+import com.example.bletest.SensorData;
+import com.example.bletest.TextSampleEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 录制路径的吞吐量和分配：原 saveDataToCSVFile 与文本/二进制编码器、异步写入器对比
+ * 每次调用保存一组 {@link Payloads#SAMPLES_PER_BATCH} 个样本，结果按样本归一化。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(Payloads.SAMPLES_PER_BATCH)
+public class RecordBenchmark {
+
+    private static final long WALL_TIME = 1_718_000_000_000L;
+
+    private SensorData[] samples;
+    private LegacyDataParser legacyParser;
+    private TextSampleEncoder textEncoder;
+    private BinarySampleEncoder binaryEncoder;
+    private ByteBuffer buffer;
+
+    private File recordingFile;
+    private RecordingWriter recordingWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        samples = parseSamples();
+        legacyParser = new LegacyDataParser(data -> { }, OutputStream.nullOutputStream());
+        textEncoder = new TextSampleEncoder();
+        buffer = ByteBuffer.allocate(Payloads.SAMPLES_PER_BATCH * textEncoder.maxRecordSize());
+
+        recordingFile = File.createTempFile("px_bench_", ".txt");
+        recordingWriter = new RecordingWriter("bench", new TextSampleEncoder(), (message, e) -> {
+            throw new IllegalStateException(message, e);
+        });
+        recordingWriter.setOverflowPolicy(RecordingWriter.OverflowPolicy.BLOCK);
+        recordingWriter.open(recordingFile);
+    }
+
+    // 每轮重新创建二进制编码器，避免稀疏索引在整个测试中无限增长
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        binaryEncoder = new BinarySampleEncoder("nRF UART");
+        buffer.clear();
+        binaryEncoder.writeHeader(buffer, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        recordingWriter.shutdown();
+        recordingWriter.awaitTermination(10_000);
+        recordingFile.delete();
+    }
+
+    /**
+     * 原 DataParser.saveDataToCSVFile：每行新建 SimpleDateFormat、String.format、写入后立即 flush
+     */
+    @Benchmark
+    public void legacySaveDataToCSVFile() throws IOException {
+        for (SensorData sample : samples) {
+            legacyParser.saveDataToCSVFile(sample);
+        }
+    }
+
+    @Benchmark
+    public void textSampleEncoder(Blackhole blackhole) {
+        buffer.clear();
+        for (SensorData s : samples) {
+            textEncoder.encode(buffer, WALL_TIME, s.timestamp, s.index, s.x, s.y, s.z, s.t);
+        }
+        blackhole.consume(buffer.position());
+    }
+
+    @Benchmark
+    public void binarySampleEncoder(Blackhole blackhole) {
+        buffer.clear();
+        for (SensorData s : samples) {
+            binaryEncoder.encode(buffer, WALL_TIME, s.timestamp, s.index, s.x, s.y, s.z, s.t);
+        }
+        blackhole.consume(buffer.position());
+    }
+
+    /**
+     * 当前 DataParser 的录制路径（噪声数据和正样本触发采集）：入队到异步写入器，吞吐量受后台编码和写文件限制
+     */
+    @Benchmark
+    public void recordingWriterWrite() {
+        for (SensorData s : samples) {
+            recordingWriter.write(WALL_TIME, s.timestamp, s.index, s.x, s.y, s.z, s.t);
+        }
+    }
+
+    private static SensorData[] parseSamples() {
+        List<SensorData> parsed = new ArrayList<>();
+        FrameReassembler reassembler = new FrameReassembler(new FrameReassembler.FrameListener() {
+            @Override
+            public void onFrame(SensorData data) {
+                parsed.add(new SensorData(data.timestamp, data.index, data.x, data.y, data.z, data.t));
+            }
+
+            @Override
+            public void onNumberError(byte[] buf, int from, int to) {
+            }
+
+            @Override
+            public void onInvalidNumber(byte[] buf, int from, int to) {
+            }
+        });
+        for (byte[] packet : Payloads.create(Payloads.Kind.SINGLE_LINE).packets) {
+            reassembler.feed(packet, 0, packet.length);
+        }
+        return parsed.toArray(new SensorData[0]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bletest.benchmark;
+
+import com.example.bletest.Fft;
+import com.example.bletest.SpectralAnalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 频谱分析的单线程吞吐量
+ * analyzeStream 的 ops/s 为每秒能处理的样本数（50% 重叠，每 fftSize/2 个样本做三个轴的 FFT），
+ * 需要明显高于设备的最大通知速率乘以每个通知包含的样本数；fftOnly 为每秒单轴 FFT 次数。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SpectralBenchmark {
+
+    private static final int SAMPLES = 4096;
+    private static final double SAMPLE_RATE_HZ = 200;
+    private static final double[] BANDS_HZ = {0.5, 2, 5, 10, 20, 50, 100};
+
+    @Param({"128", "256", "1024"})
+    public int fftSize;
+
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private SpectralAnalyzer analyzer;
+    private Fft fft;
+    private double[] re;
+    private double[] im;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        Random random = new Random(1);
+        xs = new double[SAMPLES];
+        ys = new double[SAMPLES];
+        zs = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = i / SAMPLE_RATE_HZ;
+            xs[i] = Math.sin(2 * Math.PI * 7 * t) + random.nextGaussian() * 0.1;
+            ys[i] = 9.8 + random.nextGaussian() * 0.1;
+            zs[i] = Math.sin(2 * Math.PI * 31 * t) * 0.5 + random.nextGaussian() * 0.1;
+        }
+        analyzer = new SpectralAnalyzer(fftSize, fftSize / 2, SAMPLE_RATE_HZ, BANDS_HZ,
+                spectrum -> this.blackhole.consume(spectrum.bandEnergies[0]));
+        fft = new Fft(fftSize);
+        re = new double[fftSize];
+        im = new double[fftSize];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void analyzeStream() {
+        for (int i = 0; i < SAMPLES; i++) {
+            analyzer.add(i, i, xs[i], ys[i], zs[i]);
+        }
+    }
+
+    @Benchmark
+    public double fftOnly() {
+        System.arraycopy(xs, 0, re, 0, fftSize);
+        Arrays.fill(im, 0);
+        fft.transform(re, im);
+        return re[1];
+    }
+}